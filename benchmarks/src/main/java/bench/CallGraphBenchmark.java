@@ -0,0 +1,50 @@
+package bench;
+
+import metrics.CallGraphBuilder;
+import metrics.IntDiGraph;
+import model.ClassInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Construction des graphes d'appel (méthodes / classes, DiGraph / compact). */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallGraphBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int classes;
+
+    @Param({"4"})
+    public int callsPerMethod;
+
+    @Param({"8"})
+    public int methodsPerClass;
+
+    private List<ClassInfo> model;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = Fixtures.model(classes, methodsPerClass, callsPerMethod, 42L);
+    }
+
+    @Benchmark
+    public CallGraphBuilder.DiGraph<String> methodGraph() {
+        return CallGraphBuilder.buildMethodGraph(model, true);
+    }
+
+    @Benchmark
+    public IntDiGraph methodGraphCompact() {
+        return CallGraphBuilder.buildMethodGraphCompact(model, true);
+    }
+
+    @Benchmark
+    public CallGraphBuilder.DiGraph<String> classGraph() {
+        return CallGraphBuilder.buildClassGraph(model, true);
+    }
+}
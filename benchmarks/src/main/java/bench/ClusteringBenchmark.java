@@ -0,0 +1,75 @@
+package bench;
+
+import metrics.CallGraphBuilder;
+import metrics.CouplingMatrix;
+import metrics.HierarchicalClustering;
+import metrics.HierarchicalClustering.Linkage;
+import metrics.HierarchicalClustering.Node;
+import metrics.ModuleIdentifier;
+import metrics.SparseClustering;
+import model.ClassInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clustering hiérarchique et identification des modules. Le couplage est lu dans une matrice précalculée,
+ * pour ne mesurer que ces deux étapes. 10 000 classes : compter ~400 Mo de tas pour la matrice condensée.
+ * cluster (moteur exact) et clusterApproximate (SparseClustering, k plus proches voisins) tournent sur les
+ * mêmes modèles : temps et, avec le profil gc de BenchmarkMain, octets alloués par opération comparables.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ClusteringBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int classes;
+
+    @Param({"4"})
+    public int callsPerMethod;
+
+    @Param({"8"})
+    public int methodsPerClass;
+
+    @Param({"SINGLE", "AVERAGE"})
+    public Linkage linkage;
+
+    @Param({"0.05"})
+    public double cp;
+
+    @Param({"32"})
+    public int k;
+
+    private List<ClassInfo> model;
+    private CouplingMatrix matrix;
+    private HierarchicalClustering.Coupling coupling;
+    private Node root;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = Fixtures.model(classes, methodsPerClass, callsPerMethod, 42L);
+        matrix = CouplingMatrix.build(CallGraphBuilder.buildMethodGraphCompact(model, false), model);
+        coupling = matrix::weight;
+        root = HierarchicalClustering.cluster(model, coupling, linkage);
+    }
+
+    @Benchmark
+    public Node cluster() {
+        return HierarchicalClustering.cluster(model, coupling, linkage);
+    }
+
+    @Benchmark
+    public Node clusterApproximate() {
+        return SparseClustering.cluster(model, matrix, linkage, k);
+    }
+
+    @Benchmark
+    public ModuleIdentifier.Result identifyModules() {
+        return ModuleIdentifier.identify(root, coupling, cp);
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import metrics.CallGraphBuilder;
+import metrics.CouplingGraphBuilder;
+import metrics.CouplingMatrix;
+import metrics.IntDiGraph;
+import metrics.MetricsCalculator;
+import model.ClassInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Couplage : construction de la matrice (un parcours du graphe) et lectures MetricsCalculator.calculateCoupling.
+ * Les lectures passent par la variante IntDiGraph (la variante DiGraph trace chaque appel sur la sortie).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CouplingBenchmark {
+
+    private static final int LOOKUPS = 10_000;
+
+    @Param({"100", "1000", "10000"})
+    public int classes;
+
+    @Param({"4"})
+    public int callsPerMethod;
+
+    @Param({"8"})
+    public int methodsPerClass;
+
+    private List<ClassInfo> model;
+    private IntDiGraph methodGraph;
+    private int[] pairs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = Fixtures.model(classes, methodsPerClass, callsPerMethod, 42L);
+        methodGraph = CallGraphBuilder.buildMethodGraphCompact(model, false);
+        Random rnd = new Random(7);
+        pairs = new int[LOOKUPS * 2];
+        for (int i = 0; i < pairs.length; i++) pairs[i] = rnd.nextInt(classes);
+        MetricsCalculator.couplingMatrix(methodGraph, model); // la matrice en cache sert aux lectures
+    }
+
+    @Benchmark
+    public CouplingMatrix buildMatrix() {
+        return CouplingMatrix.build(methodGraph, model);
+    }
+
+    @Benchmark
+    public CouplingGraphBuilder.WeightedGraph<String> couplingGraph() {
+        return CouplingGraphBuilder.buildFromCalculator(methodGraph, model);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public float calculateCoupling() {
+        float acc = 0f;
+        for (int i = 0; i < pairs.length; i += 2) {
+            acc += MetricsCalculator.calculateCoupling(methodGraph, model, model.get(pairs[i]), model.get(pairs[i + 1]));
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,29 @@
+package bench;
+
+import model.ClassInfo;
+import synthetic.ModelGenerator;
+
+import java.util.List;
+
+/**
+ * Modèles synthétiques déterministes (graine fixe) pour les benchmarks, produits par ModelGenerator :
+ * un module planté pour 50 classes, 80 % des appels internes au module, 10 % d'appels externes.
+ */
+public final class Fixtures {
+
+    private Fixtures() {}
+
+    public static List<ClassInfo> model(int classCount, int methodsPerClass, int callsPerMethod, long seed) {
+        ModelGenerator.Config cfg = new ModelGenerator.Config();
+        cfg.classes = classCount;
+        cfg.minMethodsPerClass = methodsPerClass;
+        cfg.maxMethodsPerClass = methodsPerClass;
+        cfg.fanOut = ModelGenerator.FanOut.FIXED;
+        cfg.meanFanOut = callsPerMethod;
+        cfg.modules = Math.max(1, classCount / 50);
+        cfg.intraModule = 0.8;
+        cfg.external = 0.1;
+        cfg.seed = seed;
+        return ModelGenerator.generateClasses(cfg);
+    }
+}
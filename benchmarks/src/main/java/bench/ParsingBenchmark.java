@@ -0,0 +1,41 @@
+package bench;
+
+import model.ClassInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyse Spoon d'un vrai dossier de sources (par défaut les sources du projet, -Dbench.src=... pour un autre).
+ * SpoonAnalyzer est dans le paquetage par défaut : on ne peut pas l'importer, d'où la réflexion.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private String src;
+    private Method analyze;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        src = System.getProperty("bench.src", "../src/main/java");
+        if (!new File(src).isDirectory()) throw new IllegalStateException("bench.src introuvable : " + src);
+        analyze = Class.forName("SpoonAnalyzer").getMethod("analyze", String.class, String[].class, int.class);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<ClassInfo> analyze() throws Exception {
+        return (List<ClassInfo>) analyze.invoke(null, src, new String[0], parallelism);
+    }
+}
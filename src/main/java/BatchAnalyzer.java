@@ -0,0 +1,472 @@
+// src/main/java/BatchAnalyzer.java
+import metrics.CallGraphBuilder;
+import metrics.CouplingGraphBuilder;
+import metrics.CouplingMatrix;
+import metrics.GraphExporter;
+import metrics.HierarchicalClustering;
+import metrics.HierarchicalClustering.Linkage;
+import metrics.HierarchicalClustering.Node;
+import metrics.Instrumentation;
+import metrics.IntDiGraph;
+import metrics.ModuleIdentifier;
+import metrics.SparseClustering;
+import model.ClassInfo;
+import processors.ModelSnapshot;
+import processors.StringPool;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Mode ligne de commande, sans Swing : analyse -> graphe d'appel -> couplage -> clustering -> modules,
+ * résultats écrits dans des fichiers. N'importe rien de ui/ (aucune classe AWT n'est chargée).
+ *
+ * Usage :
+ *   java BatchAnalyzer --src <dossier> | --snapshot <fichier> [--save-snapshot <fichier>] [--classpath a.jar:b.jar] [--linkage SINGLE|COMPLETE|AVERAGE]
+ *                      [--cp 0.05] [--format csv,json,dot] [--out <dossier>] [--parallelism N]
+ *                      [--resolution EXACT|CHA|RTA] [--graphs dot,graphml,jsonl,csv] [--gzip]
+ *                      [--extraction FUSED|PROCESSORS] [--report run.json] [--approximate K]
+ *
+ * --graphs exporte aussi les graphes eux-mêmes (method-graph, coupling-graph, dendrogram), en flux ;
+ * --gzip compresse ces fichiers (suffixe .gz).
+ * --save-snapshot enregistre le modèle extrait ; --snapshot le relit à la place de l'analyse Spoon.
+ * --approximate K regroupe en mode approché (graphe des K plus proches voisins, cf. SparseClustering) :
+ * pour les très grands projets, où les n²/2 similarités du mode exact ne tiennent plus.
+ * --report écrit le rapport d'instrumentation (phases : durées, allocations, comptes ; compteurs) en JSON.
+ *
+ * Codes de sortie : 0 = OK, 1 = modules infaisables (contraintes non satisfaites),
+ *                   2 = arguments invalides, 3 = échec de l'analyse ou de l'écriture.
+ */
+public class BatchAnalyzer {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_INFEASIBLE = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_FAILURE = 3;
+
+    private static final Set<String> FORMATS = Set.of("csv", "json", "dot");
+
+    /** Options de la ligne de commande (mêmes valeurs par défaut que l'onglet Modules). */
+    static final class Options {
+        String src;
+        String[] classpath = new String[0];
+        Linkage linkage = Linkage.SINGLE;
+        double cp = 0.05;
+        Set<String> formats = new LinkedHashSet<>(List.of("csv", "json"));
+        File out = new File("analysis-out");
+        int parallelism = 1;
+        CallGraphBuilder.Resolution resolution = CallGraphBuilder.Resolution.EXACT;
+        Set<GraphExporter.Format> graphs = EnumSet.noneOf(GraphExporter.Format.class);
+        boolean gzip;
+        File snapshot;
+        File saveSnapshot;
+        SpoonAnalyzer.Extraction extraction = SpoonAnalyzer.Extraction.FUSED;
+        File report;
+        int approximate = -1;   // K ; < 0 : clustering exact
+    }
+
+    /** Durées par phase, dans l'ordre d'exécution. */
+    static final class Timings {
+        final Map<String, Long> nanosByPhase = new LinkedHashMap<>();
+        private long start = System.nanoTime();
+
+        void lap(String phase) {
+            long now = System.nanoTime();
+            nanosByPhase.put(phase, now - start);
+            start = now;
+        }
+
+        void print(PrintStream out) {
+            long total = 0;
+            for (long ns : nanosByPhase.values()) total += ns;
+            for (Map.Entry<String, Long> e : nanosByPhase.entrySet()) {
+                out.printf(Locale.ROOT, "  %-14s %9.1f ms%n", e.getKey(), e.getValue() / 1e6);
+            }
+            out.printf(Locale.ROOT, "  %-14s %9.1f ms%n", "total", total / 1e6);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /** Point d'entrée testable : renvoie le code de sortie au lieu d'appeler System.exit. */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        System.setProperty("java.awt.headless", "true");
+
+        Options opt;
+        try {
+            opt = parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println("Erreur : " + e.getMessage());
+            err.println(usage());
+            return EXIT_USAGE;
+        }
+        if (opt == null) {
+            out.println(usage());
+            return EXIT_OK;
+        }
+
+        Timings t = new Timings();
+        Instrumentation.reset();
+        try {
+            List<ClassInfo> classes;
+            StringPool strings = null;
+            if (opt.snapshot != null) {
+                try (ModelSnapshot.Reader r = ModelSnapshot.open(opt.snapshot.toPath())) {
+                    classes = r.readAll();
+                }
+                t.lap("snapshot");
+            } else {
+                strings = new StringPool();
+                classes = SpoonAnalyzer.analyze(opt.src, opt.classpath, opt.parallelism, strings, opt.extraction);
+                t.lap("parsing");
+            }
+            if (opt.saveSnapshot != null) {
+                ModelSnapshot.write(classes, opt.saveSnapshot.toPath());
+                t.lap("save-snapshot");
+            }
+
+            IntDiGraph methodGraph = CallGraphBuilder.buildMethodGraphCompact(classes, false, opt.resolution);
+            t.lap("method-graph");
+
+            CouplingMatrix matrix = CouplingMatrix.build(methodGraph, classes);
+            HierarchicalClustering.Coupling couplingFn = matrix::weight;
+            t.lap("coupling");
+
+            SparseClustering.Stats approx = null;
+            Node root;
+            if (opt.approximate >= 0) {
+                approx = new SparseClustering.Stats();
+                root = SparseClustering.cluster(classes, matrix, opt.linkage, opt.approximate, approx);
+            } else {
+                root = HierarchicalClustering.cluster(classes, couplingFn, opt.linkage);
+            }
+            t.lap("clustering");
+
+            ModuleIdentifier.Result modules = (root == null) ? null : ModuleIdentifier.identify(root, matrix, opt.cp);
+            t.lap("modules");
+
+            write(opt, classes, methodGraph, matrix, root, modules);
+            t.lap("write");
+
+            if (opt.report != null) {
+                try (PrintWriter w = open(opt.report)) {
+                    Instrumentation.writeJson(w);
+                }
+            }
+
+            out.println("Classes : " + classes.size()
+                    + "  |  Méthodes (noeuds) : " + methodGraph.nodeCount()
+                    + "  |  Arêtes : " + methodGraph.edgeCount()
+                    + "  |  Couples couplés : " + matrix.nonZeroPairs());
+            if (strings != null) out.println("Modèle : " + strings.report());
+            if (approx != null) out.println("Clustering " + approx.report());
+            if (modules != null) {
+                out.println("Modules : " + modules.modules.size() + (modules.feasible ? "" : " (infaisable)"));
+            }
+            out.println("Sorties : " + opt.out.getAbsolutePath());
+            out.println("Durées :");
+            t.print(out);
+
+            return (modules == null || modules.feasible) ? EXIT_OK : EXIT_INFEASIBLE;
+        } catch (IOException | UncheckedIOException e) {
+            err.println("Erreur d'écriture : " + e.getMessage());
+            return EXIT_FAILURE;
+        } catch (RuntimeException e) {
+            err.println("Échec de l'analyse : " + e);
+            return EXIT_FAILURE;
+        }
+    }
+
+    // -------------------- arguments --------------------
+
+    /** null si --help. */
+    static Options parse(String[] args) {
+        Options o = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "-h":
+                case "--help":
+                    return null;
+                case "--src":
+                    o.src = value(args, ++i, a);
+                    break;
+                case "--classpath":
+                    String cp = value(args, ++i, a);
+                    o.classpath = cp.isEmpty() ? new String[0] : cp.split(File.pathSeparator);
+                    for (String entry : o.classpath) {
+                        if (!new File(entry).exists()) throw new IllegalArgumentException("entrée de --classpath introuvable : " + entry);
+                    }
+                    break;
+                case "--linkage":
+                    try {
+                        o.linkage = Linkage.valueOf(value(args, ++i, a).toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("linkage inconnu : " + args[i]);
+                    }
+                    break;
+                case "--cp":
+                    try {
+                        o.cp = Double.parseDouble(value(args, ++i, a));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--cp attend un nombre : " + args[i]);
+                    }
+                    if (o.cp < 0 || o.cp > 1) throw new IllegalArgumentException("--cp doit être dans [0..1]");
+                    break;
+                case "--format":
+                    o.formats.clear();
+                    for (String f : value(args, ++i, a).split(",")) {
+                        String fmt = f.trim().toLowerCase(Locale.ROOT);
+                        if (!FORMATS.contains(fmt)) throw new IllegalArgumentException("format inconnu : " + f);
+                        o.formats.add(fmt);
+                    }
+                    break;
+                case "--out":
+                    o.out = new File(value(args, ++i, a));
+                    break;
+                case "--parallelism":
+                    try {
+                        o.parallelism = Integer.parseInt(value(args, ++i, a));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--parallelism attend un entier : " + args[i]);
+                    }
+                    break;
+                case "--resolution":
+                    String res = value(args, ++i, a);
+                    try {
+                        o.resolution = CallGraphBuilder.Resolution.valueOf(res.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("résolution inconnue : " + res);
+                    }
+                    break;
+                case "--graphs":
+                    for (String f : value(args, ++i, a).split(",")) {
+                        String g = f.trim();
+                        try {
+                            o.graphs.add(GraphExporter.Format.valueOf(g.toUpperCase(Locale.ROOT)));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("format de graphe inconnu : " + g);
+                        }
+                    }
+                    break;
+                case "--extraction":
+                    String ex = value(args, ++i, a);
+                    try {
+                        o.extraction = SpoonAnalyzer.Extraction.valueOf(ex.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("extraction inconnue : " + ex);
+                    }
+                    break;
+                case "--approximate":
+                    try {
+                        o.approximate = Math.max(0, Integer.parseInt(value(args, ++i, a)));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--approximate attend un entier : " + args[i]);
+                    }
+                    break;
+                case "--report":
+                    o.report = new File(value(args, ++i, a));
+                    break;
+                case "--snapshot":
+                    o.snapshot = new File(value(args, ++i, a));
+                    break;
+                case "--save-snapshot":
+                    o.saveSnapshot = new File(value(args, ++i, a));
+                    break;
+                case "--gzip":
+                    o.gzip = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("option inconnue : " + a);
+            }
+        }
+        if (o.snapshot != null) {
+            if (o.src != null) throw new IllegalArgumentException("--src et --snapshot sont exclusifs");
+            if (!o.snapshot.isFile()) throw new IllegalArgumentException("instantané introuvable : " + o.snapshot);
+            return o;
+        }
+        if (o.src == null) throw new IllegalArgumentException("--src ou --snapshot est obligatoire");
+        if (!new File(o.src).exists()) throw new IllegalArgumentException("source introuvable : " + o.src);
+        return o;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " attend une valeur");
+        return args[i];
+    }
+
+    static String usage() {
+        return "Usage : java BatchAnalyzer --src <dossier> | --snapshot <fichier> [--save-snapshot <fichier>]\n"
+                + "         [--classpath a.jar" + File.pathSeparator + "b.jar]\n"
+                + "         [--linkage SINGLE|COMPLETE|AVERAGE] [--cp 0.05] [--format csv,json,dot]\n"
+                + "         [--out analysis-out] [--parallelism 1] [--resolution EXACT|CHA|RTA]\n"
+                + "         [--graphs dot,graphml,jsonl,csv] [--gzip] [--extraction FUSED|PROCESSORS]\n"
+                + "         [--report run.json] [--approximate K]\n"
+                + "Codes de sortie : 0 OK, 1 modules infaisables, 2 arguments invalides, 3 échec";
+    }
+
+    // -------------------- sorties --------------------
+
+    private static void write(Options opt, List<ClassInfo> classes, IntDiGraph methodGraph,
+                              CouplingMatrix matrix, Node root, ModuleIdentifier.Result modules) throws IOException {
+        Files.createDirectories(opt.out.toPath());
+        if (opt.formats.contains("csv")) {
+            writeCouplingCsv(new File(opt.out, "coupling.csv"), matrix);
+            writeModulesCsv(new File(opt.out, "modules.csv"), modules);
+        }
+        if (opt.formats.contains("json")) {
+            writeJson(new File(opt.out, "analysis.json"), opt, classes, methodGraph, matrix, root, modules);
+        }
+        if (opt.formats.contains("dot")) {
+            writeCouplingDot(new File(opt.out, "coupling.dot"), matrix);
+        }
+        if (!opt.graphs.isEmpty()) {
+            CouplingGraphBuilder.WeightedGraph<String> coupling = CouplingGraphBuilder.buildFromMatrix(matrix, classes);
+            for (GraphExporter.Format f : opt.graphs) {
+                String ext = "." + f.extension + (opt.gzip ? ".gz" : "");
+                GraphExporter.export(methodGraph, f, new File(opt.out, "method-graph" + ext).toPath());
+                GraphExporter.export(coupling, f, new File(opt.out, "coupling-graph" + ext).toPath());
+                if (root != null) GraphExporter.export(root, f, new File(opt.out, "dendrogram" + ext).toPath());
+            }
+        }
+    }
+
+    private static PrintWriter open(File f) throws IOException {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8)));
+    }
+
+    private static void writeCouplingCsv(File f, CouplingMatrix m) throws IOException {
+        try (PrintWriter w = open(f)) {
+            w.println("classA,classB,count,weight");
+            m.forEachNonZero((a, b, weight) ->
+                    w.println(csv(m.fqnOf(a)) + "," + csv(m.fqnOf(b)) + "," + m.count(a, b) + "," + fmt(weight)));
+        }
+    }
+
+    private static void writeModulesCsv(File f, ModuleIdentifier.Result r) throws IOException {
+        try (PrintWriter w = open(f)) {
+            w.println("module,avgCoupling,class");
+            if (r == null) return;
+            for (int i = 0; i < r.modules.size(); i++) {
+                for (ClassInfo ci : r.modules.get(i)) {
+                    w.println(i + "," + fmt(r.avgCouplings.get(i)) + "," + csv(qnOf(ci)));
+                }
+            }
+        }
+    }
+
+    private static void writeCouplingDot(File f, CouplingMatrix m) throws IOException {
+        try (PrintWriter w = open(f)) {
+            w.println("graph coupling {");
+            for (int i = 0; i < m.size(); i++) w.println("  \"" + escape(m.fqnOf(i)) + "\";");
+            m.forEachNonZero((a, b, weight) -> w.println("  \"" + escape(m.fqnOf(a)) + "\" -- \""
+                    + escape(m.fqnOf(b)) + "\" [label=\"" + fmt(weight) + "\"];"));
+            w.println("}");
+        }
+    }
+
+    private static void writeJson(File f, Options opt, List<ClassInfo> classes, IntDiGraph methodGraph,
+                                  CouplingMatrix m, Node root, ModuleIdentifier.Result r) throws IOException {
+        try (PrintWriter w = open(f)) {
+            w.println("{");
+            w.println("  \"source\": " + json(opt.src != null ? opt.src : opt.snapshot.getPath()) + ",");
+            w.println("  \"linkage\": " + json(opt.linkage.name()) + ",");
+            w.println("  \"cp\": " + opt.cp + ",");
+            w.println("  \"classes\": " + classes.size() + ",");
+            w.println("  \"methodNodes\": " + methodGraph.nodeCount() + ",");
+            w.println("  \"methodEdges\": " + methodGraph.edgeCount() + ",");
+            w.println("  \"couplingDenominator\": " + m.denominator() + ",");
+
+            w.println("  \"coupling\": [");
+            boolean[] first = {true};
+            m.forEachNonZero((a, b, weight) -> {
+                w.print(first[0] ? "    " : ",\n    ");
+                first[0] = false;
+                w.print("{\"a\": " + json(m.fqnOf(a)) + ", \"b\": " + json(m.fqnOf(b))
+                        + ", \"count\": " + m.count(a, b) + ", \"weight\": " + fmt(weight) + "}");
+            });
+            w.println();
+            w.println("  ],");
+
+            w.print("  \"dendrogram\": ");
+            if (root == null) w.print("null"); else writeNode(w, root);
+            w.println(",");
+
+            w.println("  \"modules\": {");
+            w.println("    \"feasible\": " + (r == null || r.feasible) + ",");
+            w.println("    \"list\": [");
+            if (r != null) {
+                for (int i = 0; i < r.modules.size(); i++) {
+                    StringJoiner members = new StringJoiner(", ", "[", "]");
+                    for (ClassInfo ci : r.modules.get(i)) members.add(json(qnOf(ci)));
+                    w.print("      {\"avgCoupling\": " + fmt(r.avgCouplings.get(i)) + ", \"classes\": " + members + "}");
+                    w.println(i + 1 < r.modules.size() ? "," : "");
+                }
+            }
+            w.println("    ]");
+            w.println("  }");
+            w.println("}");
+        }
+    }
+
+    /** Dendrogramme en JSON imbriqué ; parcours itératif (les arbres dégénérés peuvent être très profonds). */
+    private static void writeNode(PrintWriter w, Node root) {
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object top = stack.pop();
+            if (top instanceof String) { w.print((String) top); continue; }
+            Node n = (Node) top;
+            if (n.isLeaf()) {
+                w.print("{\"class\": " + json(n.label) + "}");
+            } else {
+                w.print("{\"height\": " + fmt(n.height) + ", \"children\": [");
+                stack.push("]}");
+                stack.push(n.right);
+                stack.push(", ");
+                stack.push(n.left);
+            }
+        }
+    }
+
+    // -------------------- helpers --------------------
+
+    private static String fmt(double v) { return String.format(Locale.ROOT, "%.6f", v); }
+
+    private static String csv(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String escape(String s) { return s.replace("\\", "\\\\").replace("\"", "\\\""); }
+
+    private static String json(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String qnOf(ClassInfo ci) {
+        if (ci.qualifiedName != null && !ci.qualifiedName.isEmpty()) return ci.qualifiedName;
+        if (ci.packageName != null && !ci.packageName.isEmpty()) return ci.packageName + "." + ci.className;
+        return ci.className;
+    }
+}
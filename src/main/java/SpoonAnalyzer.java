@@ -1,4 +1,5 @@
 // src/main/java/SpoonAnalyzer.java
+import metrics.Instrumentation;
 import metrics.MetricsCalculator;
 import model.ClassInfo;
 import model.FieldInfo;
@@ -6,41 +7,459 @@ import model.MethodCallInfo;
 import model.MethodInfo;
 import processors.*;
 import spoon.Launcher;
+import spoon.processing.Processor;
 import spoon.reflect.CtModel;
 import spoon.reflect.code.CtConstructorCall;
 import spoon.reflect.code.CtInvocation;
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.*;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
+import spoon.support.QueueProcessingManager;
 import ui.MetricsUI;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class SpoonAnalyzer {
 
+    public static final int COMPLIANCE_LEVEL = 17;
+
+    /**
+     * Mode d'extraction : FUSED = un seul parcours (ModelScanner, appels rattachés à la méthode englobante),
+     * PROCESSORS = les six processeurs Spoon d'origine (un parcours chacun, rattachement par clé), conservé
+     * pour compatibilité.
+     */
+    public enum Extraction { FUSED, PROCESSORS }
+
     public static List<ClassInfo> analyze(String projectSourcePath, String[] classpath) {
-        Launcher launcher = new Launcher();
+        return analyzeRepo(projectSourcePath, classpath).asList();
+    }
+
+    /** Comme analyze, mais renvoie le dépôt complet (index des méthodes, fichiers sources) pour reanalyze. */
+    public static ModelRepo analyzeRepo(String projectSourcePath, String[] classpath) {
+        return analyzeRepo(projectSourcePath, classpath, new StringPool());
+    }
+
+    /** strings : table de chaînes du modèle (strings.report() donne la mémoire économisée). */
+    public static ModelRepo analyzeRepo(String projectSourcePath, String[] classpath, StringPool strings) {
+        return analyzeRepo(projectSourcePath, classpath, strings, Extraction.FUSED);
+    }
+
+    public static ModelRepo analyzeRepo(String projectSourcePath, String[] classpath, StringPool strings,
+                                        Extraction extraction) {
+        Launcher launcher = newLauncher(classpath);
         launcher.addInputResource(projectSourcePath);
 
-        launcher.getEnvironment().setComplianceLevel(17);
+        CtModel model = buildModel(launcher);
+
+        ModelRepo repo = new ModelRepo(false, strings);
+        extract(launcher, model, repo, extraction);
+        recordReferences(topLevelTypes(model), repo);
+
+        return repo;
+    }
+
+    /**
+     * Ré-analyse incrémentale : sont réextraits les fichiers ajoutés/modifiés et ceux qui en dépendent,
+     * transitivement (d'après previous.referencesByFile : un appel b.m() change de cible si B gagne une
+     * redéfinition). Spoon ne reçoit que ces fichiers et ceux dont ils dépendent (cf. parseClosure), de
+     * sorte que les appels sont résolus comme par une analyse complète. previous est patché sur place
+     * (classesByFqn, methodsByKey) ; le Delta renvoyé alimente IncrementalGraphs.update pour mettre à
+     * jour les graphes d'appel et le couplage sans les reconstruire.
+     */
+    public static ModelRepo.Delta reanalyze(ModelRepo previous, String[] classpath,
+                                            Set<File> added, Set<File> modified, Set<File> deleted) {
+        Set<File> changed = new LinkedHashSet<>();
+        for (File f : added) changed.add(f.getAbsoluteFile());
+        for (File f : modified) changed.add(f.getAbsoluteFile());
+        for (File f : deleted) changed.add(f.getAbsoluteFile());
+
+        // le projet après changement ; les types connus des fichiers (supprimés compris) restent indexés
+        Set<File> files = new TreeSet<>();
+        for (File f : previous.sourceFileByFqn.values()) files.add(f.getAbsoluteFile());
+        files.addAll(changed);
+        files.removeIf(f -> !f.isFile());
+        SourceIndex index = new SourceIndex(files);
+        for (Map.Entry<String, File> e : previous.sourceFileByFqn.entrySet()) {
+            ClassInfo ci = previous.classesByFqn.get(e.getKey());
+            index.declare(e.getValue(), ci != null ? ci.packageName : "", List.of(e.getKey()));
+        }
+
+        Set<File> dirty = dependentsOf(changed, previous, index);
+        List<File> toExtract = new ArrayList<>();
+        for (File f : files) if (dirty.contains(f)) toExtract.add(f);
+
+        ModelRepo fresh = new ModelRepo(false, previous.strings);
+        if (!toExtract.isEmpty()) {
+            Set<File> seed = new LinkedHashSet<>(toExtract);
+            for (File f : toExtract) {
+                Set<String> refs = previous.referencesByFile.get(f);
+                if (refs != null) seed.addAll(index.filesFor(refs));
+            }
+            Parsed parsed = parseClosure(seed, index, classpath);
+            List<CtType<?>> types = parsed.typesOf(toExtract);
+            extract(parsed.launcher, types, fresh, Extraction.FUSED);
+            recordReferences(types, fresh);
+        }
+        return previous.patch(dirty, fresh);
+    }
+
+    /**
+     * changed et les fichiers de previous dont la résolution dépend, transitivement, de l'un d'eux. Un fichier
+     * sans références connues est tenu pour dépendant de tout.
+     */
+    private static Set<File> dependentsOf(Set<File> changed, ModelRepo previous, SourceIndex index) {
+        Map<File, List<File>> dependents = new HashMap<>();
+        Set<File> dirty = new LinkedHashSet<>(changed);
+        for (File f : previous.sourceFileByFqn.values()) {
+            File file = f.getAbsoluteFile();
+            Set<String> refs = previous.referencesByFile.get(file);
+            if (refs == null) {
+                if (!changed.isEmpty()) dirty.add(file);
+                continue;
+            }
+            for (File d : index.filesFor(refs)) dependents.computeIfAbsent(d, k -> new ArrayList<>()).add(file);
+        }
+        Deque<File> todo = new ArrayDeque<>(dirty);
+        while (!todo.isEmpty()) {
+            for (File f : dependents.getOrDefault(todo.pop(), List.of())) {
+                if (dirty.add(f)) todo.push(f);
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Variante parallèle (opt-in) : l'arborescence est découpée en fragments (un par répertoire de paquetage),
+     * chaque fragment a son propre Launcher construit sur un thread du pool, puis les ModelRepo sont fusionnés
+     * dans l'ordre global. Le Launcher d'un fragment reçoit aussi les fichiers des types dont il dépend
+     * (cf. parseClosure) pour résoudre les appels comme le Launcher unique, mais seuls les types du fragment
+     * sont extraits. parallelism borne le nombre de modèles Spoon en mémoire simultanément ;
+     * parallelism <= 1 revient au chemin à un seul Launcher.
+     */
+    public static List<ClassInfo> analyze(String projectSourcePath, String[] classpath, int parallelism) {
+        return analyze(projectSourcePath, classpath, parallelism, new StringPool(), Extraction.FUSED);
+    }
+
+    /** Idem, avec une table de chaînes commune à tous les fragments et le mode d'extraction choisi. */
+    public static List<ClassInfo> analyze(String projectSourcePath, String[] classpath, int parallelism,
+                                          StringPool strings, Extraction extraction) {
+        if (parallelism <= 1) return analyzeRepo(projectSourcePath, classpath, strings, extraction).asList();
+
+        List<List<File>> shards = shardByPackage(new File(projectSourcePath));
+        if (shards.isEmpty()) return new ArrayList<>();
+        List<File> sources = new ArrayList<>();
+        for (List<File> shard : shards) sources.addAll(shard);
+        SourceIndex index = new SourceIndex(sources);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()));
+        try {
+            List<Future<ModelRepo>> futures = new ArrayList<>();
+            for (List<File> shard : shards) {
+                futures.add(pool.submit(() -> extractShard(shard, index, classpath, strings, extraction)));
+            }
+
+            List<ModelRepo> repos = new ArrayList<>();
+            for (Future<ModelRepo> f : futures) repos.add(f.get());
+            return ModelRepo.merge(repos).asList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analyse interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Échec de l'analyse d'un fragment", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Variante avec cache disque : les fichiers dont le contenu et les dépendances n'ont pas changé depuis
+     * la dernière analyse sont rechargés depuis le cache. Spoon ne reçoit que les fichiers manquants, ceux
+     * dont dépendait leur extraction précédente et, au besoin, ceux des types qu'ils référencent désormais
+     * (cf. parseClosure : en no-classpath, les appels doivent être résolus comme sur tout le projet) ; seuls
+     * les types des fichiers manquants sont extraits. cache.report() donne les hits/misses.
+     */
+    public static List<ClassInfo> analyze(String projectSourcePath, String[] classpath, ModelCache cache) throws IOException {
+        List<File> sources = new ArrayList<>();
+        for (List<File> shard : shardByPackage(new File(projectSourcePath))) sources.addAll(shard);
+        ModelCache.Project project = cache.project(sources);
+
+        // classes relues du cache et classes extraites partagent les mêmes chaînes
+        StringPool strings = new StringPool();
+        Map<File, List<ClassInfo>> byFile = new HashMap<>();
+        Set<File> missed = new LinkedHashSet<>();
+        for (File f : sources) {
+            List<ClassInfo> cached = cache.get(project, f);
+            if (cached != null) {
+                for (ClassInfo ci : cached) strings.internAll(ci);
+                byFile.put(f.getAbsoluteFile(), cached);
+            } else {
+                missed.add(f.getAbsoluteFile());
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            Set<File> seed = new LinkedHashSet<>(missed);
+            for (File f : missed) seed.addAll(cache.recordedDependencies(f));
+            Parsed parsed = parseClosure(seed, project.index(), classpath);
+
+            Map<String, File> fileByType = new HashMap<>();
+            parsed.typesByFile.forEach((f, types) -> {
+                for (CtType<?> t : types) fileByType.put(t.getQualifiedName(), f);
+            });
+            ModelRepo repo = new ModelRepo(false, strings);
+            extract(parsed.launcher, parsed.typesOf(missed), repo, Extraction.FUSED);
+
+            for (ClassInfo ci : repo.classesByFqn.values()) {
+                File src = repo.sourceFileByFqn.get(ci.qualifiedName);
+                if (src != null) byFile.computeIfAbsent(src.getAbsoluteFile(), k -> new ArrayList<>()).add(ci);
+            }
+            Map<File, Set<File>> direct = new HashMap<>();
+            for (File f : missed) {
+                Set<File> deps = dependencies(f, parsed.typesByFile, fileByType, direct);
+                Set<String> refs = new HashSet<>();
+                for (CtType<?> t : parsed.typesByFile.getOrDefault(f, List.of())) refs.addAll(SourceIndex.references(t));
+                cache.put(project, f, byFile.getOrDefault(f, List.of()), deps, refs);
+            }
+        }
+        cache.flush();
+
+        // ordre du modèle : fichiers dans l'ordre de parcours, puis types dans l'ordre de déclaration
+        List<ClassInfo> all = new ArrayList<>();
+        for (File f : sources) all.addAll(byFile.getOrDefault(f.getAbsoluteFile(), List.of()));
+        all.sort(ModelRepo.SPOON_ORDER);
+        return all;
+    }
+
+    /**
+     * Fichiers du projet dont dépend l'extraction de file : ceux des types qu'il référence, transitivement
+     * (un appel hérité est résolu dans les super-types du type référencé). direct mémoïse un niveau.
+     */
+    private static Set<File> dependencies(File file, Map<File, List<CtType<?>>> typesByFile,
+                                          Map<String, File> fileByType, Map<File, Set<File>> direct) {
+        Set<File> seen = new LinkedHashSet<>();
+        Deque<File> todo = new ArrayDeque<>();
+        todo.push(file);
+        while (!todo.isEmpty()) {
+            File f = todo.pop();
+            Set<File> next = direct.computeIfAbsent(f, k -> {
+                Set<File> out = new LinkedHashSet<>();
+                for (CtType<?> t : typesByFile.getOrDefault(k, List.of())) {
+                    for (CtTypeReference<?> ref : t.getReferencedTypes()) {
+                        CtTypeReference<?> top = ref.getTopLevelType();
+                        File d = fileByType.get((top != null ? top : ref).getQualifiedName());
+                        if (d != null && !d.equals(k)) out.add(d);
+                    }
+                }
+                return out;
+            });
+            for (File d : next) {
+                if (!d.equals(file) && seen.add(d)) todo.push(d);
+            }
+        }
+        return seen;
+    }
+
+    private static File sourceOf(CtType<?> t) {
+        SourcePosition pos = t.getPosition();
+        if (pos == null || !pos.isValidPosition() || pos.getFile() == null) return null;
+        return pos.getFile().getAbsoluteFile();
+    }
+
+    private static ModelRepo extractShard(List<File> files, SourceIndex index, String[] classpath, StringPool strings,
+                                          Extraction extraction) {
+        Parsed parsed = parseClosure(files, index, classpath);
+        ModelRepo repo = new ModelRepo(true, strings);
+        extract(parsed.launcher, parsed.typesOf(files), repo, extraction);
+        return repo;
+    }
+
+    /** Modèle Spoon construit sur un sous-ensemble du projet ; types de premier niveau par fichier, dans l'ordre du modèle. */
+    private static final class Parsed {
+        final Launcher launcher;
+        final CtModel model;
+        final Map<File, List<CtType<?>>> typesByFile = new HashMap<>();
+
+        Parsed(Launcher launcher, CtModel model) {
+            this.launcher = launcher;
+            this.model = model;
+            for (CtType<?> t : topLevelTypes(model)) {
+                File src = sourceOf(t);
+                if (src != null) typesByFile.computeIfAbsent(src, k -> new ArrayList<>()).add(t);
+            }
+        }
+
+        /** Types déclarés par files, dans l'ordre de parcours du modèle. */
+        List<CtType<?>> typesOf(Collection<File> files) {
+            Set<File> wanted = new HashSet<>();
+            for (File f : files) wanted.add(f.getAbsoluteFile());
+            List<CtType<?>> out = new ArrayList<>();
+            for (CtType<?> t : topLevelTypes(model)) {
+                if (wanted.contains(sourceOf(t))) out.add(t);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Parse seed et, jusqu'à stabilité, les fichiers de index déclarant les types référencés par ce qui est
+     * déjà parsé : en no-classpath, un appel n'est résolu comme sur tout le projet (surcharge, méthode
+     * héritée) que si le type visé et ses super-types sont dans le modèle. Un seul parse si seed contient
+     * déjà sa fermeture.
+     */
+    private static Parsed parseClosure(Collection<File> seed, SourceIndex index, String[] classpath) {
+        Set<File> input = new HashSet<>();
+        for (File f : seed) input.add(f.getAbsoluteFile());
+        while (true) {
+            Launcher launcher = newLauncher(classpath);
+            for (File f : index.files()) if (input.contains(f)) launcher.addInputResource(f.getPath());
+            Parsed parsed = new Parsed(launcher, buildModel(launcher));
+
+            boolean grown = false;
+            try (Instrumentation.Phase p = Instrumentation.phase("dependencies")) {
+                for (List<CtType<?>> types : parsed.typesByFile.values()) {
+                    for (CtType<?> t : types) {
+                        for (File f : index.filesFor(SourceIndex.references(t))) {
+                            if (index.contains(f) && input.add(f)) grown = true;
+                        }
+                    }
+                }
+                p.count("files", input.size());
+            }
+            if (!grown) return parsed;
+        }
+    }
+
+    /** Note dans repo les types référencés par chaque fichier de types (cf. reanalyze). */
+    private static void recordReferences(List<CtType<?>> types, ModelRepo repo) {
+        try (Instrumentation.Phase p = Instrumentation.phase("dependencies")) {
+            for (CtType<?> t : types) {
+                File src = sourceOf(t);
+                if (src == null) continue;
+                Set<String> refs = repo.referencesByFile.computeIfAbsent(src, k -> new HashSet<>());
+                for (String key : SourceIndex.references(t)) refs.add(repo.intern(key));
+            }
+            p.count("files", repo.referencesByFile.size());
+        }
+    }
+
+    /** Types de premier niveau dans l'ordre de parcours du modèle (sous-paquetages d'abord, cf. CtScanner). */
+    private static List<CtType<?>> topLevelTypes(CtModel model) {
+        List<CtType<?>> out = new ArrayList<>();
+        collectTypes(model.getRootPackage(), out);
+        return out;
+    }
+
+    private static void collectTypes(CtPackage pkg, List<CtType<?>> out) {
+        for (CtPackage sub : pkg.getPackages()) collectTypes(sub, out);
+        out.addAll(pkg.getTypes());
+    }
+
+    /** Regroupe les .java par répertoire, dans l'ordre de parcours des paquetages de Spoon. */
+    static List<List<File>> shardByPackage(File root) {
+        Map<List<String>, List<File>> byDir = new HashMap<>();
+        if (root.isFile()) {
+            byDir.put(List.of(), List.of(root));
+        } else {
+            collectSources(root, new ArrayList<>(), byDir);
+        }
+        List<List<String>> dirs = new ArrayList<>(byDir.keySet());
+        dirs.sort((a, b) -> {
+            int n = Math.min(a.size(), b.size());
+            for (int i = 0; i < n; i++) {
+                int c = a.get(i).compareTo(b.get(i));
+                if (c != 0) return c;
+            }
+            return Integer.compare(b.size(), a.size()); // sous-paquetages avant le paquetage parent
+        });
+        List<List<File>> shards = new ArrayList<>();
+        for (List<String> d : dirs) shards.add(byDir.get(d));
+        return shards;
+    }
+
+    private static void collectSources(File dir, List<String> path, Map<List<String>, List<File>> out) {
+        File[] children = dir.listFiles();
+        if (children == null) return;
+        Arrays.sort(children);
+        for (File f : children) {
+            if (f.isDirectory()) {
+                List<String> sub = new ArrayList<>(path);
+                sub.add(f.getName());
+                collectSources(f, sub, out);
+            } else if (f.getName().endsWith(".java")) {
+                out.computeIfAbsent(List.copyOf(path), k -> new ArrayList<>()).add(f);
+            }
+        }
+    }
+
+    /**
+     * classpath (jars, dossiers de classes ; null ou vide : aucun) sert à résoudre les types externes.
+     * Le mode no-classpath reste actif : ce qui n'y figure pas est toléré, comme sans classpath.
+     */
+    private static Launcher newLauncher(String[] classpath) {
+        Launcher launcher = new Launcher();
+        launcher.getEnvironment().setComplianceLevel(COMPLIANCE_LEVEL);
         launcher.getEnvironment().setNoClasspath(true);
+        if (classpath != null && classpath.length > 0) launcher.getEnvironment().setSourceClasspath(classpath);
         launcher.getEnvironment().setAutoImports(false);
         launcher.getEnvironment().setCommentEnabled(false);
+        return launcher;
+    }
+
+    private static CtModel buildModel(Launcher launcher) {
+        try (Instrumentation.Phase p = Instrumentation.phase("parsing")) {
+            CtModel model = launcher.buildModel();
+            p.count("types", model.getAllTypes().size());
+            return model;
+        }
+    }
 
-        CtModel model = launcher.buildModel();
+    private static void extract(Launcher launcher, CtModel model, ModelRepo repo, Extraction extraction) {
+        try (Instrumentation.Phase p = Instrumentation.phase("extraction")) {
+            if (extraction == Extraction.PROCESSORS) {
+                for (Processor<?> processor : processors(repo)) launcher.addProcessor(processor);
+                launcher.process();
+            } else {
+                ModelScanner.extract(model, repo);
+            }
+            counted(p, repo);
+        }
+    }
 
-        ModelRepo repo = new ModelRepo();
-        launcher.addProcessor(new TypeProcessor(repo));
-        launcher.addProcessor(new FieldProcessor(repo));
-        launcher.addProcessor(new MethodProcessor(repo));
-        launcher.addProcessor(new CtorProcessor(repo));
-        launcher.addProcessor(new CallProcessor(repo));
-        launcher.addProcessor(new CallProcessor.CtorCallProcessor(repo));
+    /** N'extrait que types (ceux d'un fragment ou des fichiers à mettre à jour), dans l'ordre donné. */
+    private static void extract(Launcher launcher, List<CtType<?>> types, ModelRepo repo, Extraction extraction) {
+        try (Instrumentation.Phase p = Instrumentation.phase("extraction")) {
+            if (extraction == Extraction.PROCESSORS) {
+                QueueProcessingManager processing = new QueueProcessingManager(launcher.getFactory());
+                for (Processor<?> processor : processors(repo)) processing.addProcessor(processor);
+                processing.process(types);
+            } else {
+                ModelScanner.extract(types, repo);
+            }
+            counted(p, repo);
+        }
+    }
 
-        launcher.process();
+    private static void counted(Instrumentation.Phase p, ModelRepo repo) {
+        long methods = 0, calls = 0;
+        for (ClassInfo ci : repo.classesByFqn.values()) {
+            methods += ci.methods.size();
+            for (MethodInfo mi : ci.methods) calls += mi.calls.size();
+        }
+        p.count("classes", repo.classesByFqn.size()).count("methods", methods).count("call-sites", calls);
+    }
 
-        return repo.asList();
+    private static List<Processor<?>> processors(ModelRepo repo) {
+        return List.of(
+                new TypeProcessor(repo),
+                new FieldProcessor(repo),
+                new MethodProcessor(repo),
+                new CtorProcessor(repo),
+                new CallProcessor(repo),
+                new CallProcessor.CtorCallProcessor(repo));
     }
 
     // Démo rapide
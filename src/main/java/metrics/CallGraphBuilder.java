@@ -14,30 +14,104 @@ import java.util.stream.Collectors;
  */
 public class CallGraphBuilder {
 
-    public static class DiGraph<N> {
+    /** Vue en lecture d'un graphe orienté (DiGraph, IntDiGraph). */
+    public interface Graph<N> {
+        Set<N> nodes();
+        Map<N, Set<N>> edges();
+    }
+
+    public static class DiGraph<N> implements Graph<N> {
         private final Set<N> nodes = new LinkedHashSet<>();
         private final Map<N, Set<N>> adj = new LinkedHashMap<>();
+        private int version; // incrémenté à chaque modification (invalidation des caches dérivés)
 
         public void addNode(N n) {
             if (nodes.add(n)) {
                 adj.put(n, new LinkedHashSet<>());
+                version++;
             }
         }
         public void addEdge(N from, N to) {
             addNode(from);
             addNode(to);
-            adj.get(from).add(to);
+            if (adj.get(from).add(to)) version++;
+        }
+        /** Supprime toutes les arêtes sortantes de from (le noeud reste). */
+        public void clearEdgesFrom(N from) {
+            Set<N> out = adj.get(from);
+            if (out != null && !out.isEmpty()) {
+                out.clear();
+                version++;
+            }
+        }
+        /** Supprime un noeud, ses arêtes sortantes et les arêtes qui le visent. */
+        public void removeNode(N n) {
+            if (!nodes.remove(n)) return;
+            adj.remove(n);
+            for (Set<N> out : adj.values()) out.remove(n);
+            version++;
         }
         public Set<N> nodes() { return nodes; }
         public Map<N, Set<N>> edges() { return adj; }
+        public int version() { return version; }
+    }
+
+    /**
+     * Résolution des appels du graphe méthode->méthode :
+     * EXACT : la clé de la méthode appelée doit correspondre à une méthode du projet ;
+     * CHA : un appel virtuel vise toutes les redéfinitions possibles dans les sous-types du récepteur ;
+     * RTA : comme CHA, limité aux classes instanciées dans le projet (appels "<init>").
+     */
+    public enum Resolution { EXACT, CHA, RTA }
 
-        // helpers
-        private String id(N n) { return "n" + Integer.toHexString(System.identityHashCode(n)); }
-        private static String safe(String s) { return s.replaceAll("\\W+", "_"); }
-        private static String escape(String s) { return s.replace("\\", "\\\\").replace("\"", "\\\""); }
+    /** Destination des noeuds/arêtes produits par les constructeurs de graphes. */
+    private interface Sink {
+        void node(String n);
+        void edge(String from, String to);
     }
 
     public static DiGraph<String> buildMethodGraph(List<ClassInfo> classes, boolean includeExternal) {
+        return buildMethodGraph(classes, includeExternal, Resolution.EXACT);
+    }
+
+    public static DiGraph<String> buildMethodGraph(List<ClassInfo> classes, boolean includeExternal,
+                                                   Resolution resolution) {
+        try (Instrumentation.Phase p = Instrumentation.phase("method-graph")) {
+            DiGraph<String> g = new DiGraph<>();
+            emitMethodGraph(classes, includeExternal, resolution, sinkOf(g));
+            return counted(p, g);
+        }
+    }
+
+    /** Même graphe que buildMethodGraph, en représentation compacte (libellés internés, CSR). */
+    public static IntDiGraph buildMethodGraphCompact(List<ClassInfo> classes, boolean includeExternal) {
+        return buildMethodGraphCompact(classes, includeExternal, Resolution.EXACT);
+    }
+
+    public static IntDiGraph buildMethodGraphCompact(List<ClassInfo> classes, boolean includeExternal,
+                                                     Resolution resolution) {
+        try (Instrumentation.Phase p = Instrumentation.phase("method-graph")) {
+            IntDiGraph g = new IntDiGraph();
+            emitMethodGraph(classes, includeExternal, resolution, sinkOf(g));
+            return counted(p, g.freeze());
+        }
+    }
+
+    private static <G extends Graph<String>> G counted(Instrumentation.Phase p, G g) {
+        long edges = 0;
+        if (g instanceof IntDiGraph) edges = ((IntDiGraph) g).edgeCount();
+        else for (Set<String> out : g.edges().values()) edges += out.size();
+        p.count("nodes", g.nodes().size()).count("edges", edges);
+        return g;
+    }
+
+    private static void emitMethodGraph(List<ClassInfo> classes, boolean includeExternal,
+                                        Resolution resolution, Sink g) {
+        if (resolution != null && resolution != Resolution.EXACT) {
+            emitResolvedMethodGraph(classes, includeExternal, resolution, g);
+            return;
+        }
+
         // Index des méthodes du projet par signature qualifiée si dispo, sinon par "FQN#name(params)"
         Map<String, String> projectMethodKeys = new LinkedHashMap<>(); // key -> display
         Map<String, String> displayByKey      = new LinkedHashMap<>();
@@ -52,10 +126,8 @@ public class CallGraphBuilder {
             }
         }
 
-        DiGraph<String> g = new DiGraph<>();
-
         // Ajouter tous les noeuds "projet"
-        for (String disp : projectMethodKeys.values()) g.addNode(disp);
+        for (String disp : projectMethodKeys.values()) g.node(disp);
 
         // Arêtes
         for (ClassInfo ci : classes) {
@@ -76,27 +148,63 @@ public class CallGraphBuilder {
                         calleeDisp = projectMethodKeys.get(calleeKey);
                     } else {
                         if (!includeExternal) continue;
-                        // External: construire un libellé raisonnable
-                        String targetOwner = (call.declaringType != null ? call.declaringType : call.receiverStaticType);
-                        String sig = (call.qualifiedSignature != null)
-                                ? call.qualifiedSignature
-                                : (targetOwner != null ? targetOwner + "." + call.name + "(...)" : call.name + "(...)");
-                        calleeDisp = "[EXT] " + sig;
+                        calleeDisp = externalLabel(call);
                     }
 
-                    g.addEdge(srcDisp, calleeDisp);
+                    g.edge(srcDisp, calleeDisp);
                 }
             }
         }
+    }
 
-        return g;
+    // CHA/RTA : noeuds et sources identifiés par (propriétaire, signature), cibles via CallResolver
+    private static void emitResolvedMethodGraph(List<ClassInfo> classes, boolean includeExternal,
+                                                Resolution resolution, Sink g) {
+        CallResolver resolver = new CallResolver(classes, resolution == Resolution.RTA);
+
+        for (ClassInfo ci : classes) {
+            String owner = qnOf(ci);
+            for (MethodInfo mi : ci.methods) g.node(displaySig(mi, owner));
+        }
+
+        for (ClassInfo ci : classes) {
+            String owner = qnOf(ci);
+            for (MethodInfo src : ci.methods) {
+                if (src.calls == null) continue;
+                String srcDisp = displaySig(src, owner);
+                for (MethodCallInfo call : src.calls) {
+                    String[] callees = resolver.resolve(call);
+                    if (callees.length == 0) {
+                        if (includeExternal) g.edge(srcDisp, externalLabel(call));
+                        continue;
+                    }
+                    for (String callee : callees) g.edge(srcDisp, callee);
+                }
+            }
+        }
     }
 
     /** Construit un graphe d’appel au niveau CLASSES. */
     public static DiGraph<String> buildClassGraph(List<ClassInfo> classes, boolean includeExternal) {
+        try (Instrumentation.Phase p = Instrumentation.phase("class-graph")) {
+            DiGraph<String> g = new DiGraph<>();
+            emitClassGraph(classes, includeExternal, sinkOf(g));
+            return counted(p, g);
+        }
+    }
+
+    /** Même graphe que buildClassGraph, en représentation compacte. */
+    public static IntDiGraph buildClassGraphCompact(List<ClassInfo> classes, boolean includeExternal) {
+        try (Instrumentation.Phase p = Instrumentation.phase("class-graph")) {
+            IntDiGraph g = new IntDiGraph();
+            emitClassGraph(classes, includeExternal, sinkOf(g));
+            return counted(p, g.freeze());
+        }
+    }
+
+    private static void emitClassGraph(List<ClassInfo> classes, boolean includeExternal, Sink g) {
         Set<String> projectClasses = classes.stream().map(CallGraphBuilder::qnOf).collect(Collectors.toCollection(LinkedHashSet::new));
-        DiGraph<String> g = new DiGraph<>();
-        for (String c : projectClasses) g.addNode(c);
+        for (String c : projectClasses) g.node(c);
 
         for (ClassInfo ci : classes) {
             String from = qnOf(ci);
@@ -110,31 +218,44 @@ public class CallGraphBuilder {
                         target = "[EXT] " + target;
                     }
                     if (!from.equals(target)) {
-                        g.addEdge(from, target);
+                        g.edge(from, target);
                     }
                 }
             }
         }
-        return g;
     }
 
     // -------------------- helpers --------------------
 
-    private static String qnOf(ClassInfo ci) {
+    private static Sink sinkOf(DiGraph<String> g) {
+        return new Sink() {
+            @Override public void node(String n) { g.addNode(n); }
+            @Override public void edge(String from, String to) { g.addEdge(from, to); }
+        };
+    }
+
+    private static Sink sinkOf(IntDiGraph g) {
+        return new Sink() {
+            @Override public void node(String n) { g.addNode(n); }
+            @Override public void edge(String from, String to) { g.addEdge(from, to); }
+        };
+    }
+
+    static String qnOf(ClassInfo ci) {
         if (ci.qualifiedName != null && !ci.qualifiedName.isEmpty()) return ci.qualifiedName;
         if (ci.packageName != null && !ci.packageName.isEmpty()) return ci.packageName + "." + ci.className;
         return ci.className;
     }
 
     /** Clé "globale" d’une méthode du projet (préférence au methodKey/binding) */
-    private static String methodKey(MethodInfo mi, String ownerQN) {
+    static String methodKey(MethodInfo mi, String ownerQN) {
         if (mi.methodKey != null && !mi.methodKey.startsWith("NO_BINDING:")) return mi.methodKey;
         // fallback stable
         return ownerQN + "#" + simpleSig(mi);
     }
 
     /** Tenter de reconstituer une clé de méthode appelée (via binding s’il existe). */
-    private static String calledMethodKey(MethodCallInfo call) {
+    static String calledMethodKey(MethodCallInfo call) {
         if (call.methodKey != null && !call.methodKey.startsWith("NO_BINDING:")) return call.methodKey;
         if (call.qualifiedSignature != null) return call.qualifiedSignature; // Owner.m(T1,T2)->R
         if (call.declaringType != null && call.name != null) {
@@ -143,12 +264,21 @@ public class CallGraphBuilder {
         return null;
     }
 
+    /** External: construire un libellé raisonnable */
+    static String externalLabel(MethodCallInfo call) {
+        String targetOwner = (call.declaringType != null ? call.declaringType : call.receiverStaticType);
+        String sig = (call.qualifiedSignature != null)
+                ? call.qualifiedSignature
+                : (targetOwner != null ? targetOwner + "." + call.name + "(...)" : call.name + "(...)");
+        return "[EXT] " + sig;
+    }
+
     private static String simpleSig(MethodInfo m) {
         String params = (m.parameterTypes == null) ? "" : String.join(",", m.parameterTypes);
         return m.name + "(" + params + ")";
     }
 
-    private static String displaySig(MethodInfo m, String ownerQN) {
+    static String displaySig(MethodInfo m, String ownerQN) {
         return ownerQN + "." + simpleSig(m);
     }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package metrics;
+
+import model.ClassInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+
+import java.util.*;
+
+/**
+ * Résolution des appels virtuels par la hiérarchie de classes (CHA), éventuellement restreinte aux types
+ * effectivement instanciés dans le projet (RTA, d'après les appels "<init>").
+ * Les appels sans dispatch (statiques, super.m(), méthodes private ou final) vont à la méthode vue depuis
+ * le type déclarant, sans expansion aux sous-types ni filtrage RTA.
+ *
+ * Les index sont construits une fois : types (projet + super-types externes cités), sous-types directs,
+ * méthodes déclarées par type. La table de dispatch (type, signature) et les cibles d'un couple
+ * (type racine, signature) sont mémoïsées : chaque site d'appel coûte une recherche dans une table.
+ */
+final class CallResolver {
+
+    private static final String NONE = "";
+
+    private static final class Type {
+        final String name;
+        ClassInfo ci; // null : type externe cité comme super-type
+        final List<Type> supers = new ArrayList<>();
+        final List<Type> subs = new ArrayList<>();
+        final Map<String, String> declared = new HashMap<>(); // signature -> libellé du noeud
+        final Map<String, String> dispatch = new HashMap<>(); // mémo : signature -> implémentation (NONE si aucune)
+        boolean instantiated;
+        List<Type> subtypes; // mémo : fermeture (type compris), ordre de parcours en profondeur
+
+        Type(String name) { this.name = name; }
+
+        boolean concrete() { return ci != null && !ci.isInterface && !ci.isAbstract; }
+    }
+
+    private final boolean rta;
+    private final Map<String, Type> types = new HashMap<>();
+    // mémo des cibles : racine -> signature -> libellés, une table par sorte d'appel
+    private final Map<String, Map<String, String[]>> virtualTargets = new HashMap<>();
+    private final Map<String, Map<String, String[]>> directTargets = new HashMap<>();
+    private final Map<String, Map<String, String[]>> ctorTargets = new HashMap<>();
+    private final Set<String> abstractMethods = new HashSet<>();
+
+    CallResolver(List<ClassInfo> classes, boolean rta) {
+        this.rta = rta;
+        for (ClassInfo ci : classes) {
+            Type t = type(CallGraphBuilder.qnOf(ci));
+            t.ci = ci;
+            for (MethodInfo mi : ci.methods) {
+                String display = CallGraphBuilder.displaySig(mi, t.name);
+                t.declared.putIfAbsent(signature(mi), display);
+                if (mi.isAbstract) abstractMethods.add(display);
+            }
+        }
+        for (ClassInfo ci : classes) {
+            Type t = types.get(CallGraphBuilder.qnOf(ci));
+            // superClassesChain : super-classe directe d'abord, puis interfaces (cf. TypeProcessor)
+            Set<String> direct = new LinkedHashSet<>();
+            if (ci.superClass != null) direct.add(ci.superClass);
+            direct.addAll(ci.superClassesChain);
+            direct.addAll(ci.interfaces);
+            for (String s : direct) {
+                if (s == null || s.equals(t.name)) continue;
+                Type sup = type(s);
+                t.supers.add(sup);
+                sup.subs.add(t);
+            }
+        }
+        if (rta) {
+            for (ClassInfo ci : classes) {
+                if (ci.isEnum) types.get(CallGraphBuilder.qnOf(ci)).instantiated = true; // constantes implicites
+                Type owner = types.get(CallGraphBuilder.qnOf(ci));
+                for (MethodInfo mi : ci.methods) {
+                    if (mi.calls == null) continue;
+                    boolean inCtor = "<init>".equals(mi.name);
+                    for (MethodCallInfo call : mi.calls) {
+                        if (!"<init>".equals(call.name) || call.declaringType == null) continue;
+                        Type t = types.get(call.declaringType);
+                        if (t == null) continue;
+                        // super(...) / this(...) dans un constructeur : pas une instanciation
+                        if (inCtor && (t == owner || owner.supers.contains(t))) continue;
+                        t.instantiated = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private Type type(String name) {
+        return types.computeIfAbsent(name, Type::new);
+    }
+
+    /** Signature "nom(params)" d'une méthode du projet (constructeurs : "<init>(params)"). */
+    static String signature(MethodInfo mi) {
+        String params = (mi.parameterTypes == null) ? "" : String.join(",", mi.parameterTypes);
+        return mi.name + "(" + params + ")";
+    }
+
+    /** Signature de la méthode appelée, ou null si elle n'est pas connue. */
+    static String signature(MethodCallInfo call) {
+        String key = call.methodKey;
+        if (call.name == null || key == null || key.startsWith("NO_BINDING:")) return null;
+        // la clé Spoon d'une méthode est déjà "nom(params)" ; celle d'un constructeur est "Owner(params)"
+        int n = call.name.length();
+        if (key.length() > n && key.charAt(n) == '(' && key.startsWith(call.name)) return key;
+        int paren = key.indexOf('(');
+        if (paren < 0) return null;
+        return call.name + key.substring(paren);
+    }
+
+    /** Libellés des méthodes du projet que cet appel peut atteindre (tableau vide : appel externe). */
+    String[] resolve(MethodCallInfo call) {
+        String sig = signature(call);
+        if (sig == null) return new String[0];
+        boolean ctor = "<init>".equals(call.name);
+        // récepteur "void" : accès statique (Type.m()) ; super.m(), private, final : pas de dispatch non plus
+        boolean direct = !ctor && ("void".equals(call.receiverStaticType) || call.nonVirtual);
+        String root = (!ctor && !direct && call.receiverStaticType != null && types.containsKey(call.receiverStaticType))
+                ? call.receiverStaticType : call.declaringType;
+        if (root == null) return new String[0];
+
+        Map<String, Map<String, String[]>> cache = ctor ? ctorTargets : direct ? directTargets : virtualTargets;
+        Map<String, String[]> bySig = cache.computeIfAbsent(root, k -> new HashMap<>());
+        String[] out = bySig.get(sig);
+        if (out == null) {
+            out = compute(root, sig, ctor, direct);
+            bySig.put(sig, out);
+        }
+        return out;
+    }
+
+    private String[] compute(String root, String sig, boolean ctor, boolean direct) {
+        Type t = types.get(root);
+        if (t == null) return new String[0];
+        if (ctor) {
+            String d = t.declared.get(sig);
+            return d != null ? new String[]{d} : new String[0];
+        }
+        if (direct) {
+            String d = dispatch(t, sig);
+            return d != NONE ? new String[]{d} : new String[0];
+        }
+
+        Set<String> cha = new LinkedHashSet<>(), narrowed = new LinkedHashSet<>();
+        for (Type sub : subtypes(t)) {
+            if (!sub.concrete()) continue;
+            String d = dispatch(sub, sig);
+            if (d == NONE || abstractMethods.contains(d)) continue;
+            cha.add(d);
+            if (sub.instantiated) narrowed.add(d);
+        }
+        if (cha.isEmpty()) {
+            // aucune classe concrète du projet sous la racine : on garde la déclaration elle-même
+            String d = dispatch(t, sig);
+            return d != NONE ? new String[]{d} : new String[0];
+        }
+        // RTA sans instanciation visible (fabriques externes, réflexion...) : repli sur CHA
+        Set<String> chosen = (rta && !narrowed.isEmpty()) ? narrowed : cha;
+        return chosen.toArray(new String[0]);
+    }
+
+    // implémentation vue depuis t : déclarée par t, sinon héritée (super-classe avant interfaces)
+    private String dispatch(Type t, String sig) {
+        String d = t.dispatch.get(sig);
+        if (d != null) return d;
+        d = t.declared.get(sig);
+        if (d == null) {
+            t.dispatch.put(sig, NONE); // garde contre une hiérarchie cyclique (modèle incomplet)
+            d = NONE;
+            for (Type s : t.supers) {
+                String inherited = dispatch(s, sig);
+                if (inherited != NONE) { d = inherited; break; }
+            }
+        }
+        t.dispatch.put(sig, d);
+        return d;
+    }
+
+    private List<Type> subtypes(Type root) {
+        if (root.subtypes != null) return root.subtypes;
+        List<Type> out = new ArrayList<>();
+        Set<Type> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Type> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Type t = stack.pop();
+            if (!seen.add(t)) continue;
+            out.add(t);
+            for (int i = t.subs.size() - 1; i >= 0; i--) stack.push(t.subs.get(i));
+        }
+        root.subtypes = out;
+        return out;
+    }
+}
@@ -0,0 +1,143 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Matrice triangulaire condensée : la case (i < j) d'une matrice n x n symétrique est rangée à l'indice
+ * index(n, i, j), ligne par ligne, soit n(n-1)/2 cases.
+ *
+ * Deux supports :
+ *  - heap(cells) : un double[] (limité à ~2^31 cases et à la taille du tas) ;
+ *  - mapped(cells, cell, dir) : un fichier temporaire projeté en mémoire par tranches de 1 Go. Les pages
+ *    vivent dans le cache du système, hors du tas : de quoi regrouper des projets dont les similarités
+ *    ne tiennent pas dans la JVM. Le fichier est créé creux (rempli de zéros) et supprimé à la fermeture.
+ *    Cell.FLOAT divise la place par deux (exact pour des couplages float, ex. CouplingMatrix.weight).
+ */
+public abstract class CondensedStore implements Closeable {
+
+    public enum Cell {
+        FLOAT(4), DOUBLE(8);
+        final int bytes;
+        Cell(int bytes) { this.bytes = bytes; }
+    }
+
+    private final long size;
+
+    private CondensedStore(long size) { this.size = size; }
+
+    /** Indice de la case (i, j), i != j, dans une matrice condensée de côté n. */
+    public static long index(int n, int i, int j) {
+        if (i > j) { int t = i; i = j; j = t; }
+        return (long) i * n - (long) i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    public static long cells(int n) { return (long) n * (n - 1) / 2; }
+
+    public static CondensedStore heap(long cells) {
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Trop de cases pour une matrice sur le tas : " + cells);
+        }
+        return new Heap(new double[(int) cells]);
+    }
+
+    /** Fichier temporaire dans dir (null : répertoire temporaire du système), initialisé à 0. */
+    public static CondensedStore mapped(long cells, Cell cell, Path dir) throws IOException {
+        return new Mapped(cells, cell, dir);
+    }
+
+    public final long size() { return size; }
+
+    public abstract double get(long k);
+
+    public abstract void set(long k, double v);
+
+    /** Copie sur le même type de support (cases identiques). */
+    public abstract CondensedStore copy();
+
+    @Override public void close() throws IOException {}
+
+    // ---------------------------------------------------------------------------------------------
+
+    private static final class Heap extends CondensedStore {
+        private final double[] a;
+
+        Heap(double[] a) { super(a.length); this.a = a; }
+
+        @Override public double get(long k) { return a[(int) k]; }
+        @Override public void set(long k, double v) { a[(int) k] = v; }
+        @Override public CondensedStore copy() { return new Heap(a.clone()); }
+    }
+
+    private static final class Mapped extends CondensedStore {
+        private static final int SEGMENT_SHIFT = 30;               // tranches de 1 Go
+
+        private final Cell cell;
+        private final Path dir;
+        private final int cellShift;                               // log2 des cases par tranche
+        private final long cellMask;
+        private FileChannel channel;
+        private MappedByteBuffer[] segments;
+
+        Mapped(long cells, Cell cell, Path dir) throws IOException {
+            super(cells);
+            this.cell = cell;
+            this.dir = dir;
+            this.cellShift = SEGMENT_SHIFT - Integer.numberOfTrailingZeros(cell.bytes);
+            this.cellMask = (1L << cellShift) - 1;
+
+            Path file = dir == null ? Files.createTempFile("condensed-", ".bin") : Files.createTempFile(dir, "condensed-", ".bin");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            try {
+                long bytes = Math.max(1, cells * cell.bytes);
+                channel.write(ByteBuffer.allocate(1), bytes - 1);  // fichier creux : pas d'écriture des zéros
+                int count = (int) ((bytes + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+                segments = new MappedByteBuffer[count];
+                for (int s = 0; s < count; s++) {
+                    long from = (long) s << SEGMENT_SHIFT;
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, from, Math.min(1L << SEGMENT_SHIFT, bytes - from));
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override public double get(long k) {
+            MappedByteBuffer b = segments[(int) (k >>> cellShift)];
+            int off = (int) (k & cellMask) * cell.bytes;
+            return cell == Cell.FLOAT ? b.getFloat(off) : b.getDouble(off);
+        }
+
+        @Override public void set(long k, double v) {
+            MappedByteBuffer b = segments[(int) (k >>> cellShift)];
+            int off = (int) (k & cellMask) * cell.bytes;
+            if (cell == Cell.FLOAT) b.putFloat(off, (float) v); else b.putDouble(off, v);
+        }
+
+        @Override public CondensedStore copy() {
+            try {
+                Mapped c = new Mapped(size(), cell, dir);
+                for (int s = 0; s < segments.length; s++) c.segments[s].put(0, segments[s], 0, segments[s].limit());
+                return c;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Ferme (et supprime) le fichier ; les pages sont rendues quand les tranches sont ramassées. */
+        @Override public void close() throws IOException {
+            segments = null;
+            if (channel != null) channel.close();
+            channel = null;
+        }
+    }
+}
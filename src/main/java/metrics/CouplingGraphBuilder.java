@@ -21,27 +21,26 @@ public final class CouplingGraphBuilder {
         public Map<N, Map<N, Double>> edges(){ return w; }
     }
 
-    /** Construit le graphe de couplage pondéré en appelant calculateCoupling pour chaque couple (A,B). */
+    /** Construit le graphe de couplage pondéré à partir de la matrice de couplage (un seul parcours du graphe d'appel). */
     public static WeightedGraph<String> buildFromCalculator(
-            CallGraphBuilder.DiGraph<String> methodGraph,
+            CallGraphBuilder.Graph<String> methodGraph,
             List<ClassInfo> classes
     ) {
         Objects.requireNonNull(methodGraph, "methodGraph");
         Objects.requireNonNull(classes, "classes");
 
-        WeightedGraph<String> g = new WeightedGraph<>();
+        return buildFromMatrix(MetricsCalculator.couplingMatrix(methodGraph, classes), classes);
+    }
+
+    /** Même graphe, à partir d'une matrice de couplage déjà calculée. */
+    public static WeightedGraph<String> buildFromMatrix(CouplingMatrix matrix, List<ClassInfo> classes) {
+        Objects.requireNonNull(matrix, "matrix");
+        Objects.requireNonNull(classes, "classes");
 
+        WeightedGraph<String> g = new WeightedGraph<>();
         for (ClassInfo ci : classes) g.addNode(qnOf(ci));
 
-        final int n = classes.size();
-        for (int i = 0; i < n; i++) {
-            ClassInfo A = classes.get(i);
-            for (int j = i+1; j < n; j++) {
-                ClassInfo B = classes.get(j);
-                float w = MetricsCalculator.calculateCoupling(methodGraph, classes, A, B);
-                g.addEdgeUndirected(qnOf(A), qnOf(B), w);
-            }
-        }
+        matrix.forEachNonZero((a, b, w) -> g.addEdgeUndirected(matrix.fqnOf(a), matrix.fqnOf(b), w));
         return g;
     }
 
@@ -0,0 +1,445 @@
+package metrics;
+
+import model.ClassInfo;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Matrice de couplage creuse et symétrique entre classes du projet.
+ * Construite en un seul parcours des arêtes du graphe d'appel (méthode->méthode) :
+ * chaque arête est ramenée à son couple (propriétaire appelant, propriétaire appelé),
+ * et le nombre d'arêtes est accumulé par couple d'identifiants entiers de classes.
+ *
+ * couplage(A,B) = #arêtes entre A et B (dans les deux sens) / #arêtes entre classes du projet
+ *
+ * Sur un graphe compact, le parcours peut être réparti en tâches fork/join (blocs de noeuds sources) :
+ * comptes entiers, donc résultat identique à la construction séquentielle quel que soit le parallélisme.
+ */
+public final class CouplingMatrix {
+
+    /** Visiteur des cases non nulles (a < b), dans l'ordre (a, b) croissant. */
+    public interface PairConsumer {
+        void accept(int a, int b, float weight);
+    }
+
+    private final List<ClassInfo> classes;
+    private final List<String> fqnById = new ArrayList<>();
+    private final Map<String, Integer> idByFqn = new HashMap<>();
+    private final Map<String, Integer> idBySimpleName = new HashMap<>();
+    private PairCounts counts = new PairCounts();
+    private long denominator;
+
+    // pour savoir si la matrice en cache correspond encore au graphe
+    private final CallGraphBuilder.Graph<String> source;
+    private int sourceVersion;
+    private int classCount;
+
+    private CouplingMatrix(CallGraphBuilder.Graph<String> source, List<ClassInfo> classes) {
+        this.source = source;
+        this.sourceVersion = versionOf(source);
+        this.classes = classes;
+        this.classCount = classes.size();
+        for (int i = 0; i < classes.size(); i++) {
+            String fqn = qnOf(classes.get(i));
+            fqnById.add(fqn);
+            idByFqn.putIfAbsent(fqn, i);
+        }
+        reindexSimpleNames();
+    }
+
+    // même règle que l'ancien simple2fqn : le dernier nom simple gagne
+    private void reindexSimpleNames() {
+        idBySimpleName.clear();
+        for (ClassInfo ci : classes) {
+            Integer id = idByFqn.get(qnOf(ci));
+            if (id != null) idBySimpleName.put(ci.className, id);
+        }
+    }
+
+    /**
+     * Parcourt une seule fois le graphe d'appel et accumule les comptes par couple de classes.
+     * Un graphe compact passe par build(g, classes, parallelism), réparti sur les coeurs disponibles.
+     */
+    public static CouplingMatrix build(CallGraphBuilder.Graph<String> methodGraph, List<ClassInfo> classes) {
+        Objects.requireNonNull(methodGraph, "methodGraph");
+        Objects.requireNonNull(classes, "classes");
+        if (methodGraph instanceof IntDiGraph) {
+            return build((IntDiGraph) methodGraph, classes, Runtime.getRuntime().availableProcessors());
+        }
+
+        try (Instrumentation.Phase p = Instrumentation.phase("coupling-matrix")) {
+            CouplingMatrix m = new CouplingMatrix(methodGraph, classes);
+            Map<String, Integer> ownerCache = new HashMap<>();
+
+            for (Map.Entry<String, Set<String>> e : methodGraph.edges().entrySet()) {
+                int from = ownerCache.computeIfAbsent(e.getKey(), m::resolveOwner);
+                if (from < 0) continue;
+                for (String toNode : e.getValue()) {
+                    int to = ownerCache.computeIfAbsent(toNode, m::resolveOwner);
+                    if (to < 0) continue;
+                    m.denominator++;
+                    m.counts.increment(from, to);
+                }
+            }
+            return counted(p, m);
+        }
+    }
+
+    /**
+     * Même calcul sur un graphe compact : le propriétaire de chaque noeud est résolu une fois, par identifiant.
+     * Avec parallelism > 1 et un graphe assez grand, résolution et comptage sont découpés en blocs de noeuds
+     * sources (bornes fixes, indépendantes du nombre de threads) comptant chacun dans sa propre table ;
+     * les tables sont ensuite fusionnées par tranche de clés, chaque tranche dans l'ordre des blocs.
+     */
+    public static CouplingMatrix build(IntDiGraph methodGraph, List<ClassInfo> classes, int parallelism) {
+        Objects.requireNonNull(methodGraph, "methodGraph");
+        Objects.requireNonNull(classes, "classes");
+
+        try (Instrumentation.Phase p = Instrumentation.phase("coupling-matrix")) {
+            CouplingMatrix m = new CouplingMatrix(methodGraph, classes);
+            int[] ownerOfNode = new int[methodGraph.nodeCount()];
+
+            if (parallelism <= 1 || methodGraph.edgeCount() < PARALLEL_THRESHOLD) {
+                for (int i = 0; i < ownerOfNode.length; i++) ownerOfNode[i] = m.resolveOwner(methodGraph.label(i));
+                m.denominator = count(methodGraph, ownerOfNode, 0, ownerOfNode.length, m.counts);
+                return counted(p, m);
+            }
+
+            List<ForkJoinTask<?>> owners = new ArrayList<>();
+            for (int lo = 0; lo < ownerOfNode.length; lo += OWNER_GRAIN) {
+                int from = lo, to = Math.min(ownerOfNode.length, lo + OWNER_GRAIN);
+                owners.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) ownerOfNode[i] = m.resolveOwner(methodGraph.label(i));
+                }));
+            }
+
+            // blocs de noeuds consécutifs d'environ EDGE_GRAIN arêtes
+            List<int[]> bounds = new ArrayList<>();
+            for (int lo = 0; lo < ownerOfNode.length; ) {
+                int hi = lo + 1;
+                while (hi < ownerOfNode.length && methodGraph.edgeOffset(hi) - methodGraph.edgeOffset(lo) < EDGE_GRAIN) hi++;
+                bounds.add(new int[]{lo, hi});
+                lo = hi;
+            }
+            PairCounts[] local = new PairCounts[bounds.size()];
+            long[] edges = new long[bounds.size()];
+            List<ForkJoinTask<?>> blocks = new ArrayList<>();
+            for (int i = 0; i < local.length; i++) {
+                int k = i;
+                blocks.add(ForkJoinTask.adapt(() -> {
+                    local[k] = new PairCounts(STRIPES);
+                    edges[k] = count(methodGraph, ownerOfNode, bounds.get(k)[0], bounds.get(k)[1], local[k]);
+                }));
+            }
+
+            PairCounts merged = new PairCounts(STRIPES);
+            List<ForkJoinTask<?>> stripes = new ArrayList<>();
+            for (int s = 0; s < STRIPES; s++) {
+                int stripe = s;
+                stripes.add(ForkJoinTask.adapt(() -> merged.mergeStripe(stripe, local)));
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> {
+                    ForkJoinTask.invokeAll(owners);
+                    ForkJoinTask.invokeAll(blocks);
+                    ForkJoinTask.invokeAll(stripes);
+                }));
+            } finally {
+                pool.shutdown();
+            }
+            m.counts = merged;
+            for (long e : edges) m.denominator += e;
+            p.count("threads", parallelism).count("blocks", local.length);
+            return counted(p, m);
+        }
+    }
+
+    // en dessous : tout en séquentiel (créer le pool coûterait plus que le parcours)
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int OWNER_GRAIN = 1 << 11;   // noeuds par tâche de résolution
+    private static final int EDGE_GRAIN = 1 << 13;    // arêtes par tâche de comptage
+    private static final int STRIPES = 64;            // tranches de clés fusionnées en parallèle
+
+    /** Compte les arêtes entre classes du projet issues des noeuds [lo, hi) ; renvoie leur nombre. */
+    private static long count(IntDiGraph g, int[] owner, int lo, int hi, PairCounts into) {
+        long edges = 0;
+        for (int from = lo; from < hi; from++) {
+            int a = owner[from];
+            if (a < 0) continue;
+            int end = g.edgeOffset(from + 1);
+            for (int e = g.edgeOffset(from); e < end; e++) {
+                int b = owner[g.edgeTarget(e)];
+                if (b < 0) continue;
+                edges++;
+                into.increment(a, b);
+            }
+        }
+        return edges;
+    }
+
+    private static CouplingMatrix counted(Instrumentation.Phase p, CouplingMatrix m) {
+        p.count("classes", m.classCount).count("edges", m.denominator).count("pairs", m.nonZeroPairs());
+        return m;
+    }
+
+    /** true si cette matrice a été calculée à partir de ce graphe (non modifié depuis) et de ces classes. */
+    boolean isFor(CallGraphBuilder.Graph<String> methodGraph, List<ClassInfo> classes) {
+        return source == methodGraph && sourceVersion == versionOf(methodGraph)
+                && this.classes == classes && classCount == classes.size();
+    }
+
+    // un IntDiGraph figé ne change plus : seule l'identité compte
+    private static int versionOf(CallGraphBuilder.Graph<String> g) {
+        return (g instanceof CallGraphBuilder.DiGraph) ? ((CallGraphBuilder.DiGraph<String>) g).version() : 0;
+    }
+
+    // --- mise à jour incrémentale (cf. IncrementalGraphs) ---
+
+    /** Donne un identifiant à une nouvelle classe du projet (à appeler avant d'ajouter ses arêtes). */
+    void addClass(ClassInfo ci) {
+        String fqn = qnOf(ci);
+        if (idByFqn.containsKey(fqn)) return;
+        idByFqn.put(fqn, fqnById.size());
+        fqnById.add(fqn);
+    }
+
+    /** Retire une classe du projet (à appeler après avoir retiré ses arêtes) ; son identifiant n'est pas réutilisé. */
+    void removeClass(String fqn) {
+        idByFqn.remove(fqn);
+    }
+
+    /** Ajoute (delta > 0) ou retire (delta < 0) une arête méthode->méthode. */
+    void addEdge(String fromNode, String toNode, long delta) {
+        int from = resolveOwner(fromNode);
+        if (from < 0) return;
+        int to = resolveOwner(toNode);
+        if (to < 0) return;
+        denominator += delta;
+        counts.add(PairCounts.pack(from, to), delta);
+    }
+
+    /** Fin d'une mise à jour : la matrice correspond de nouveau au graphe et à la liste de classes. */
+    void sync() {
+        reindexSimpleNames();
+        sourceVersion = versionOf(source);
+        classCount = classes.size();
+    }
+
+    public int size() { return fqnById.size(); }
+
+    public long denominator() { return denominator; }
+
+    public String fqnOf(int id) { return fqnById.get(id); }
+
+    /** Identifiant de la classe, ou -1 si elle n'appartient pas au projet. */
+    public int idOf(ClassInfo ci) {
+        if (ci == null) return -1;
+        Integer id = idByFqn.get(qnOf(ci));
+        return id != null ? id : -1;
+    }
+
+    /** Nombre d'arêtes entre a et b (dans les deux sens). */
+    public long count(int a, int b) {
+        return counts.get(a, b);
+    }
+
+    public float weight(int a, int b) {
+        if (a < 0 || b < 0 || denominator == 0) return 0f;
+        return (float) counts.get(a, b) / (float) denominator;
+    }
+
+    public float weight(ClassInfo A, ClassInfo B) {
+        if (A == null || B == null || A == B) return 0f;
+        return weight(idOf(A), idOf(B));
+    }
+
+    /** Nombre de couples (a < b) de poids non nul. */
+    public int nonZeroPairs() {
+        int[] n = {0};
+        counts.forEach((a, b, c) -> { if (a != b && c != 0) n[0]++; });
+        return n[0];
+    }
+
+    public void forEachNonZero(PairConsumer consumer) {
+        if (denominator == 0) return;
+        long[] keys = counts.keys();
+        Arrays.sort(keys);
+        for (long k : keys) {
+            int a = (int) (k >>> 32), b = (int) k;
+            long c = counts.get(a, b);
+            if (a == b || c == 0) continue;
+            consumer.accept(a, b, (float) c / (float) denominator);
+        }
+    }
+
+    // --- helpers ---
+
+    private int resolveOwner(String nodeLabel) {
+        String owner = ownerOfMethodNode(nodeLabel);
+        owner = owner.trim().replace('$', '.');
+        if (owner.isEmpty()) return -1;
+
+        Integer id = idByFqn.get(owner);
+        if (id != null) return id;
+
+        if (owner.indexOf('.') < 0) {
+            id = idBySimpleName.get(owner);
+            return id != null ? id : -1;
+        }
+        return -1;
+    }
+
+    private static String ownerOfMethodNode(String nodeLabel) {
+        if (nodeLabel == null) return "";
+        String s = nodeLabel.trim();
+        int paren = s.indexOf('(');
+        if (paren <= 0) return "";
+        int lastDot = s.lastIndexOf('.', paren);
+        if (lastDot <= 0) return "";
+        return s.substring(0, lastDot).replace('$', '.');
+    }
+
+    private static String qnOf(ClassInfo ci) {
+        if (ci.qualifiedName != null && !ci.qualifiedName.isEmpty()) return ci.qualifiedName;
+        if (ci.packageName != null && !ci.packageName.isEmpty()) return ci.packageName + "." + ci.className;
+        return ci.className;
+    }
+
+    /**
+     * Table de hachage ouverte (clé = couple ordonné a<=b empaqueté sur un long) -> compte.
+     * Éventuellement découpée en tranches (selon un second hachage de la clé) : deux tables de même
+     * découpage se fusionnent tranche par tranche, indépendamment (cf. build parallèle).
+     */
+    static final class PairCounts {
+        interface Visitor { void visit(int a, int b, long count); }
+
+        private static final long EMPTY = -1L;
+        private final Table[] stripes;
+        private final int stripeBits;
+
+        PairCounts() { this(1); }
+
+        /** stripes : puissance de 2. */
+        PairCounts(int stripes) {
+            this.stripes = new Table[stripes];
+            for (int i = 0; i < stripes; i++) this.stripes[i] = new Table();
+            this.stripeBits = Integer.numberOfTrailingZeros(stripes);
+        }
+
+        static long pack(int a, int b) {
+            if (a > b) { int t = a; a = b; b = t; }
+            return ((long) a << 32) | (b & 0xFFFFFFFFL);
+        }
+
+        void increment(int a, int b) { add(pack(a, b), 1); }
+
+        void add(long key, long delta) { stripeOf(key).add(key, delta); }
+
+        long get(int a, int b) {
+            if (a < 0 || b < 0) return 0;
+            return stripeOf(pack(a, b)).get(pack(a, b));
+        }
+
+        long[] keys() {
+            int size = 0;
+            for (Table t : stripes) size += t.size;
+            long[] out = new long[size];
+            int n = 0;
+            for (Table t : stripes) {
+                for (long k : t.keys) if (k != EMPTY) out[n++] = k;
+            }
+            return out;
+        }
+
+        void forEach(Visitor v) {
+            for (Table t : stripes) {
+                for (int i = 0; i < t.keys.length; i++) {
+                    long k = t.keys[i];
+                    if (k != EMPTY) v.visit((int) (k >>> 32), (int) k, t.values[i]);
+                }
+            }
+        }
+
+        /**
+         * Ajoute à la tranche s les tranches s des tables parts (même découpage), dans l'ordre du tableau.
+         * Une paire vue par plusieurs blocs figure dans plusieurs parts : la table est dimensionnée sur la plus
+         * grande (minorant des clés distinctes), add agrandit au besoin.
+         */
+        void mergeStripe(int s, PairCounts[] parts) {
+            int size = 0;
+            for (PairCounts p : parts) size = Math.max(size, p.stripes[s].size);
+            Table into = stripes[s];
+            into.reserve(size);
+            for (PairCounts p : parts) {
+                Table t = p.stripes[s];
+                for (int i = 0; i < t.keys.length; i++) {
+                    if (t.keys[i] != EMPTY) into.add(t.keys[i], t.values[i]);
+                }
+            }
+        }
+
+        // bits hauts d'un hachage multiplicatif : indépendants des bits bas qui choisissent la case
+        private Table stripeOf(long key) {
+            return stripeBits == 0 ? stripes[0] : stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - stripeBits))];
+        }
+
+        private static final class Table {
+            long[] keys = newKeys(64);
+            long[] values = new long[64];
+            int size;
+
+            private static long[] newKeys(int cap) {
+                long[] k = new long[cap];
+                Arrays.fill(k, EMPTY);
+                return k;
+            }
+
+            void add(long key, long delta) {
+                int slot = slotOf(key);
+                if (keys[slot] == EMPTY) {
+                    keys[slot] = key;
+                    values[slot] = delta;
+                    if (++size * 2 > keys.length) grow(keys.length * 2);
+                } else {
+                    values[slot] += delta;
+                }
+            }
+
+            long get(long key) {
+                int slot = slotOf(key);
+                return keys[slot] == EMPTY ? 0 : values[slot];
+            }
+
+            /** Capacité pour n clés sans agrandissement. */
+            void reserve(int n) {
+                int cap = keys.length;
+                while (n * 2L > cap) cap *= 2;
+                if (cap != keys.length) grow(cap);
+            }
+
+            private int slotOf(long key) {
+                int mask = keys.length - 1;
+                int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+                int i = (h ^ (h >>> 16)) & mask;
+                while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+                return i;
+            }
+
+            private void grow(int cap) {
+                long[] oldK = keys, oldV = values;
+                keys = newKeys(cap);
+                values = new long[cap];
+                for (int i = 0; i < oldK.length; i++) {
+                    if (oldK[i] == EMPTY) continue;
+                    int slot = slotOf(oldK[i]);
+                    keys[slot] = oldK[i];
+                    values[slot] = oldV[i];
+                }
+            }
+        }
+    }
+}
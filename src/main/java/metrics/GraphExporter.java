@@ -0,0 +1,440 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export des graphes (appel, couplage pondéré, dendrogramme) en DOT, GraphML, JSON Lines ou CSV.
+ * Le texte est encodé au fil de l'eau dans un tampon de 64 Ko vidé dans un canal NIO : aucun document
+ * complet n'est construit en mémoire. Un fichier dont le nom finit par ".gz" est compressé (gzip).
+ * Sans dépendance Swing : utilisable depuis l'IHM comme en mode batch.
+ */
+public final class GraphExporter {
+
+    private GraphExporter() {}
+
+    public enum Format {
+        DOT("dot"), GRAPHML("graphml"), JSONL("jsonl"), CSV("csv");
+
+        public final String extension;
+        Format(String extension) { this.extension = extension; }
+
+        /** Format déduit de l'extension (".gz" final ignoré), ou null. */
+        public static Format fromFileName(String name) {
+            String n = name.toLowerCase(Locale.ROOT);
+            if (n.endsWith(".gz")) n = n.substring(0, n.length() - 3);
+            for (Format f : values()) if (n.endsWith("." + f.extension)) return f;
+            return null;
+        }
+    }
+
+    // -------------------- points d'entrée --------------------
+
+    /** Graphe orienté (DiGraph ou IntDiGraph) ; noeuds numérotés dans l'ordre du graphe. */
+    public static void export(CallGraphBuilder.Graph<String> g, Format format, Path file) throws IOException {
+        try (Out out = Out.open(file)) { export(g, format, out); }
+    }
+
+    /**
+     * Même export vers un canal fourni par l'appelant, qui reste ouvert (à lui de le fermer) : avec gzip,
+     * le flux compressé est terminé (en-queue écrite) sans fermer channel.
+     */
+    public static void export(CallGraphBuilder.Graph<String> g, Format format, WritableByteChannel channel,
+                              boolean gzip) throws IOException {
+        try (Out out = Out.wrap(channel, gzip)) { export(g, format, out); }
+    }
+
+    /** Graphe de couplage non orienté : chaque paire est écrite une fois, avec son poids. */
+    public static void export(CouplingGraphBuilder.WeightedGraph<String> g, Format format, Path file) throws IOException {
+        try (Out out = Out.open(file)) { export(g, format, out); }
+    }
+
+    /** channel reste ouvert (cf. export(Graph, Format, WritableByteChannel, boolean)). */
+    public static void export(CouplingGraphBuilder.WeightedGraph<String> g, Format format,
+                              WritableByteChannel channel, boolean gzip) throws IOException {
+        try (Out out = Out.wrap(channel, gzip)) { export(g, format, out); }
+    }
+
+    /** Dendrogramme : arbre parent -> enfants, hauteur de fusion sur les noeuds internes. */
+    public static void export(HierarchicalClustering.Node root, Format format, Path file) throws IOException {
+        try (Out out = Out.open(file)) { export(root, format, out); }
+    }
+
+    /** channel reste ouvert (cf. export(Graph, Format, WritableByteChannel, boolean)). */
+    public static void export(HierarchicalClustering.Node root, Format format, WritableByteChannel channel,
+                              boolean gzip) throws IOException {
+        try (Out out = Out.wrap(channel, gzip)) { export(root, format, out); }
+    }
+
+    // -------------------- graphe orienté --------------------
+
+    /** Visiteur d'arêtes par identifiants (ordre du graphe). */
+    private interface EdgeSource { void forEach(IntDiGraph.EdgeVisitor v); }
+
+    private static void export(CallGraphBuilder.Graph<String> g, Format format, Out out) throws IOException {
+        String[] labels;
+        EdgeSource edges;
+        if (g instanceof IntDiGraph) {
+            IntDiGraph ig = (IntDiGraph) g;
+            labels = new String[ig.nodeCount()];
+            for (int i = 0; i < labels.length; i++) labels[i] = ig.label(i);
+            edges = ig::forEachEdge;
+        } else {
+            labels = g.nodes().toArray(new String[0]);
+            Map<String, Integer> id = new HashMap<>(labels.length * 2);
+            for (int i = 0; i < labels.length; i++) id.put(labels[i], i);
+            edges = v -> {
+                for (Map.Entry<String, Set<String>> e : g.edges().entrySet()) {
+                    Integer from = id.get(e.getKey());
+                    if (from == null) continue;
+                    for (String to : e.getValue()) {
+                        Integer t = id.get(to);
+                        if (t != null) v.visit(from, t);
+                    }
+                }
+            };
+        }
+        writeGraph(labels, edges, null, true, format, out);
+    }
+
+    // -------------------- graphe pondéré --------------------
+
+    private static void export(CouplingGraphBuilder.WeightedGraph<String> g, Format format, Out out) throws IOException {
+        String[] labels = g.nodes().toArray(new String[0]);
+        Map<String, Integer> id = new HashMap<>(labels.length * 2);
+        for (int i = 0; i < labels.length; i++) id.put(labels[i], i);
+        // une seule fois par paire : de l'identifiant le plus petit vers le plus grand
+        WeightedEdges edges = v -> {
+            for (Map.Entry<String, Map<String, Double>> e : g.edges().entrySet()) {
+                Integer a = id.get(e.getKey());
+                if (a == null) continue;
+                for (Map.Entry<String, Double> f : e.getValue().entrySet()) {
+                    Integer b = id.get(f.getKey());
+                    if (b != null && a < b) v.visit(a, b, f.getValue());
+                }
+            }
+        };
+        writeGraph(labels, null, edges, false, format, out);
+    }
+
+    private interface WeightedVisitor { void visit(int a, int b, double w) throws IOException; }
+    private interface WeightedEdges { void forEach(WeightedVisitor v) throws IOException; }
+
+    // les visiteurs ne lèvent pas IOException : on la fait transiter par une exception non vérifiée
+    private static final class Unchecked extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final IOException cause;
+        Unchecked(IOException cause) { super(cause); this.cause = cause; }
+    }
+
+    private static void writeGraph(String[] labels, EdgeSource plain, WeightedEdges weighted, boolean directed,
+                                   Format format, Out out) throws IOException {
+        WeightedEdges edges = weighted != null ? weighted : v -> {
+            try {
+                plain.forEach((a, b) -> {
+                    try { v.visit(a, b, Double.NaN); } catch (IOException e) { throw new Unchecked(e); }
+                });
+            } catch (Unchecked u) {
+                throw u.cause;
+            }
+        };
+        boolean hasWeight = weighted != null;
+
+        switch (format) {
+            case DOT: {
+                out.a(directed ? "digraph G {\n" : "graph G {\n");
+                for (int i = 0; i < labels.length; i++) {
+                    out.a("  n").a(i).a(" [label=\"").dot(labels[i]).a("\"];\n");
+                }
+                String arrow = directed ? " -> " : " -- ";
+                edges.forEach((a, b, w) -> {
+                    out.a("  n").a(a).a(arrow).a('n').a(b);
+                    if (hasWeight) out.a(" [weight=").a(w).a(']');
+                    out.a(";\n");
+                });
+                out.a("}\n");
+                break;
+            }
+            case GRAPHML: {
+                graphmlHeader(out);
+                out.a("  <key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n");
+                if (hasWeight) out.a("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"double\"/>\n");
+                out.a("  <graph id=\"G\" edgedefault=\"").a(directed ? "directed" : "undirected").a("\">\n");
+                for (int i = 0; i < labels.length; i++) {
+                    out.a("    <node id=\"n").a(i).a("\"><data key=\"label\">").xml(labels[i]).a("</data></node>\n");
+                }
+                edges.forEach((a, b, w) -> {
+                    out.a("    <edge source=\"n").a(a).a("\" target=\"n").a(b).a('"');
+                    if (hasWeight) out.a("><data key=\"weight\">").a(w).a("</data></edge>\n");
+                    else out.a("/>\n");
+                });
+                out.a("  </graph>\n</graphml>\n");
+                break;
+            }
+            case JSONL: {
+                for (int i = 0; i < labels.length; i++) {
+                    out.a("{\"type\":\"node\",\"id\":").a(i).a(",\"label\":").json(labels[i]).a("}\n");
+                }
+                edges.forEach((a, b, w) -> {
+                    out.a("{\"type\":\"edge\",\"source\":").a(a).a(",\"target\":").a(b);
+                    if (hasWeight) out.a(",\"weight\":").a(w);
+                    out.a("}\n");
+                });
+                break;
+            }
+            case CSV: {
+                out.a(hasWeight ? "source,target,weight\n" : "source,target\n");
+                edges.forEach((a, b, w) -> {
+                    out.csv(labels[a]).a(',').csv(labels[b]);
+                    if (hasWeight) out.a(',').a(w);
+                    out.a('\n');
+                });
+                break;
+            }
+        }
+    }
+
+    private static void graphmlHeader(Out out) throws IOException {
+        out.a("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .a("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+    }
+
+    // -------------------- dendrogramme --------------------
+
+    /** Noeuds numérotés en préordre (parcours itératif : les arbres dégénérés peuvent être très profonds). */
+    private static void export(HierarchicalClustering.Node root, Format format, Out out) throws IOException {
+        switch (format) {
+            case DOT:
+                out.a("digraph dendrogram {\n");
+                break;
+            case GRAPHML:
+                graphmlHeader(out);
+                out.a("  <key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n")
+                   .a("  <key id=\"height\" for=\"node\" attr.name=\"height\" attr.type=\"double\"/>\n")
+                   .a("  <graph id=\"dendrogram\" edgedefault=\"directed\">\n");
+                break;
+            case CSV:
+                out.a("id,parent,height,class\n");
+                break;
+            default:
+                break;
+        }
+
+        Deque<HierarchicalClustering.Node> stack = new ArrayDeque<>();
+        Deque<Integer> parents = new ArrayDeque<>();
+        if (root != null) { stack.push(root); parents.push(-1); }
+        int next = 0;
+        while (!stack.isEmpty()) {
+            HierarchicalClustering.Node n = stack.pop();
+            int parent = parents.pop();
+            int id = next++;
+            boolean leaf = n.isLeaf();
+            switch (format) {
+                case DOT:
+                    out.a("  n").a(id);
+                    if (leaf) out.a(" [label=\"").dot(n.label).a("\"];\n");
+                    else out.a(" [shape=point,label=\"").a(n.height).a("\"];\n");
+                    if (parent >= 0) out.a("  n").a(parent).a(" -> n").a(id).a(";\n");
+                    break;
+                case GRAPHML:
+                    out.a("    <node id=\"n").a(id).a("\">");
+                    if (leaf) out.a("<data key=\"label\">").xml(n.label).a("</data>");
+                    else out.a("<data key=\"height\">").a(n.height).a("</data>");
+                    out.a("</node>\n");
+                    // GraphML accepte les arêtes mêlées aux noeuds : on les écrit tout de suite
+                    if (parent >= 0) out.a("    <edge source=\"n").a(parent).a("\" target=\"n").a(id).a("\"/>\n");
+                    break;
+                case JSONL:
+                    out.a("{\"id\":").a(id).a(",\"parent\":");
+                    if (parent >= 0) out.a(parent); else out.a("null");
+                    if (leaf) out.a(",\"class\":").json(n.label);
+                    else out.a(",\"height\":").a(n.height);
+                    out.a("}\n");
+                    break;
+                case CSV:
+                    out.a(id).a(',');
+                    if (parent >= 0) out.a(parent);
+                    out.a(',');
+                    if (!leaf) out.a(n.height);
+                    out.a(',');
+                    if (leaf) out.csv(n.label);
+                    out.a('\n');
+                    break;
+            }
+            if (!leaf) {
+                // droite empilée d'abord : la gauche sort en premier (préordre gauche -> droite)
+                if (n.right != null) { stack.push(n.right); parents.push(id); }
+                if (n.left != null) { stack.push(n.left); parents.push(id); }
+            }
+        }
+
+        if (format == Format.DOT) out.a("}\n");
+        else if (format == Format.GRAPHML) out.a("  </graph>\n</graphml>\n");
+    }
+
+    // -------------------- sortie tamponnée --------------------
+
+    /** Texte -> UTF-8 -> canal, par tampons ; les échappements sont écrits caractère par caractère. */
+    private static final class Out implements Closeable {
+        private final WritableByteChannel channel;
+        private final boolean closeChannel; // false : canal de l'appelant, laissé ouvert
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16);
+
+        private Out(WritableByteChannel channel, boolean closeChannel) {
+            this.channel = channel;
+            this.closeChannel = closeChannel;
+        }
+
+        static Out open(Path file) throws IOException {
+            FileChannel fc = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            boolean gzip = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+            try {
+                return gzip ? new Out(gzipped(Channels.newOutputStream(fc)), true) : new Out(fc, true);
+            } catch (IOException | RuntimeException e) {
+                // l'en-tête gzip est écrit dès la construction : le canal est à nous tant que Out n'existe pas
+                try {
+                    fc.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+
+        /** Le canal reste à l'appelant : close() vide les tampons et termine le flux gzip sans le fermer. */
+        static Out wrap(WritableByteChannel channel, boolean gzip) throws IOException {
+            if (!gzip) return new Out(channel, false);
+            OutputStream out = Channels.newOutputStream(channel);
+            OutputStream keepOpen = new FilterOutputStream(out) {
+                @Override public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); }
+                @Override public void close() throws IOException { flush(); }
+            };
+            return new Out(gzipped(keepOpen), true);
+        }
+
+        private static WritableByteChannel gzipped(OutputStream out) throws IOException {
+            return Channels.newChannel(new GZIPOutputStream(out, 1 << 16));
+        }
+
+        Out a(String s) throws IOException {
+            int i = 0, len = s.length();
+            while (i < len) {
+                int n = Math.min(chars.remaining(), len - i);
+                chars.put(s, i, i + n);
+                i += n;
+                if (!chars.hasRemaining()) encode(false);
+            }
+            return this;
+        }
+
+        Out a(char c) throws IOException {
+            if (!chars.hasRemaining()) encode(false);
+            chars.put(c);
+            return this;
+        }
+
+        Out a(long v) throws IOException { return a(Long.toString(v)); }
+
+        Out a(double v) throws IOException { return a(Double.toString(v)); }
+
+        Out dot(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') a('\\').a(c);
+                else if (c == '\n') a("\\n");
+                else a(c);
+            }
+            return this;
+        }
+
+        Out xml(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '&': a("&amp;"); break;
+                    case '<': a("&lt;"); break;
+                    case '>': a("&gt;"); break;
+                    case '"': a("&quot;"); break;
+                    default: a(c);
+                }
+            }
+            return this;
+        }
+
+        Out json(String s) throws IOException {
+            if (s == null) return a("null");
+            a('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':  a("\\\""); break;
+                    case '\\': a("\\\\"); break;
+                    case '\n': a("\\n"); break;
+                    case '\r': a("\\r"); break;
+                    case '\t': a("\\t"); break;
+                    default:
+                        if (c < 0x20) a(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        else a(c);
+                }
+            }
+            return a('"');
+        }
+
+        Out csv(String s) throws IOException {
+            if (s == null) return this;
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return a(s);
+            a('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') a('"');
+                a(c);
+            }
+            return a('"');
+        }
+
+        // vide le tampon de caractères dans le tampon d'octets (et celui-ci dans le canal quand il est plein)
+        private void encode(boolean endOfInput) throws IOException {
+            chars.flip();
+            while (true) {
+                CoderResult r = encoder.encode(chars, bytes, endOfInput);
+                if (r.isOverflow()) { drain(); continue; }
+                if (r.isError()) r.throwException();
+                break;
+            }
+            chars.compact(); // un demi-couple de substitution éventuel reste pour le tour suivant
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+        }
+
+        @Override public void close() throws IOException {
+            try {
+                encode(true);
+                while (encoder.flush(bytes).isOverflow()) drain();
+                drain();
+            } finally {
+                if (closeChannel) channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package metrics;
+
+import metrics.CallGraphBuilder.DiGraph;
+import model.ClassInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+
+import java.util.*;
+
+/**
+ * Graphe d'appel (méthodes et classes) et matrice de couplage tenus à jour incrémentalement.
+ * Après une modification de quelques classes, seules les arêtes sortantes des méthodes/classes touchées
+ * (et de celles qui les appellent) sont recalculées, au lieu de reconstruire les graphes.
+ *
+ * Donne les mêmes noeuds et arêtes que CallGraphBuilder.buildMethodGraph / buildClassGraph
+ * (l'ordre d'insertion des noeuds ajoutés peut différer).
+ */
+public final class IncrementalGraphs {
+
+    private final List<ClassInfo> classes;
+    private final boolean includeExternal;
+    private final DiGraph<String> methodGraph;
+    private final DiGraph<String> classGraph;
+    private final CouplingMatrix coupling;
+
+    // ordre relatif des classes (sert à savoir quelle méthode "gagne" une clé partagée)
+    private final Map<ClassInfo, Long> order = new IdentityHashMap<>();
+    private long nextOrder;
+    private final Map<String, ClassInfo> classByFqn = new HashMap<>();
+
+    // --- index du graphe de méthodes ---
+    /** clé -> méthodes portant cette clé (comme dans buildMethodGraph, la dernière donne le libellé). */
+    private final Map<String, List<MethodInfo>> methodsByKey = new HashMap<>();
+    private final Map<MethodInfo, ClassInfo> ownerOf = new IdentityHashMap<>();
+    private final Map<String, Set<String>> keysByDisplay = new HashMap<>();
+    /** clé appelée -> (clé appelante -> nb d'appels). */
+    private final Map<String, Map<String, Integer>> callersByCallee = new HashMap<>();
+    private final Map<String, Integer> methodExtRefs = new HashMap<>();
+
+    // --- index du graphe de classes ---
+    /** type ciblé -> (classe appelante -> nb d'appels). */
+    private final Map<String, Map<String, Integer>> classCallersByTarget = new HashMap<>();
+    private final Map<String, Integer> classExtRefs = new HashMap<>();
+    private final Set<String> orphans = new HashSet<>();
+
+    public IncrementalGraphs(List<ClassInfo> classes, boolean includeExternal) {
+        this.classes = new ArrayList<>(classes);
+        this.includeExternal = includeExternal;
+        for (ClassInfo ci : this.classes) index(ci, nextOrder++);
+
+        this.methodGraph = CallGraphBuilder.buildMethodGraph(this.classes, includeExternal);
+        this.classGraph = CallGraphBuilder.buildClassGraph(this.classes, includeExternal);
+        this.coupling = CouplingMatrix.build(methodGraph, this.classes);
+
+        for (Set<String> out : methodGraph.edges().values()) for (String t : out) ref(methodExtRefs, t, 1);
+        for (Set<String> out : classGraph.edges().values()) for (String t : out) ref(classExtRefs, t, 1);
+    }
+
+    public List<ClassInfo> classes() { return classes; }
+    public DiGraph<String> methodGraph() { return methodGraph; }
+    public DiGraph<String> classGraph() { return classGraph; }
+    public CouplingMatrix coupling() { return coupling; }
+
+    /**
+     * Applique un changement de modèle : removedFqns disparaissent, upserted remplacent
+     * (à la même position) ou complètent les classes existantes.
+     */
+    public void update(Collection<String> removedFqns, Collection<ClassInfo> upserted) {
+        Set<String> removed = new LinkedHashSet<>(removedFqns);
+        Map<String, ClassInfo> incoming = new LinkedHashMap<>();
+        for (ClassInfo ci : upserted) {
+            String fqn = CallGraphBuilder.qnOf(ci);
+            incoming.put(fqn, ci);
+            removed.remove(fqn);
+        }
+
+        Set<String> touchedKeys = new HashSet<>();
+        Set<String> touchedDisplays = new LinkedHashSet<>();
+        Set<String> touchedClasses = new LinkedHashSet<>();
+        Set<String> membershipChanged = new HashSet<>();
+
+        // 1) détacher les anciennes versions
+        Map<String, Long> keptOrder = new HashMap<>();
+        for (String fqn : concat(removed, incoming.keySet())) {
+            ClassInfo old = classByFqn.get(fqn);
+            if (old == null) {
+                if (incoming.containsKey(fqn)) membershipChanged.add(fqn);
+                continue;
+            }
+            if (!incoming.containsKey(fqn)) membershipChanged.add(fqn);
+            for (MethodInfo mi : old.methods) {
+                String k = CallGraphBuilder.methodKey(mi, fqn);
+                touchedKeys.add(k);
+                touchedDisplays.add(displayOf(k));
+            }
+            touchedClasses.add(fqn);
+            keptOrder.put(fqn, order.get(old));
+            unindex(old);
+        }
+
+        // 2) mettre à jour la liste des classes et attacher les nouvelles versions
+        classes.removeIf(ci -> {
+            String fqn = CallGraphBuilder.qnOf(ci);
+            return removed.contains(fqn) && !incoming.containsKey(fqn);
+        });
+        for (Map.Entry<String, ClassInfo> e : incoming.entrySet()) {
+            ClassInfo ci = e.getValue();
+            Long pos = keptOrder.get(e.getKey());
+            if (pos != null) {
+                for (int i = 0; i < classes.size(); i++) {
+                    if (CallGraphBuilder.qnOf(classes.get(i)).equals(e.getKey())) { classes.set(i, ci); break; }
+                }
+            } else {
+                classes.add(ci);
+            }
+            index(ci, pos != null ? pos : nextOrder++);
+            touchedClasses.add(e.getKey());
+            for (MethodInfo mi : ci.methods) touchedKeys.add(CallGraphBuilder.methodKey(mi, e.getKey()));
+        }
+
+        // 3) méthodes dont les arêtes sortantes doivent être recalculées
+        for (String k : touchedKeys) {
+            if (methodsByKey.containsKey(k)) touchedDisplays.add(displayOf(k));
+            for (String callerKey : callersByCallee.getOrDefault(k, Map.of()).keySet()) {
+                if (methodsByKey.containsKey(callerKey)) touchedDisplays.add(displayOf(callerKey));
+            }
+        }
+
+        // 4) retirer les anciennes arêtes (matrice résolue avec l'ancien ensemble de classes)
+        for (String d : touchedDisplays) {
+            Set<String> out = methodGraph.edges().get(d);
+            if (out == null) continue;
+            for (String t : out) {
+                coupling.addEdge(d, t, -1);
+                ref(methodExtRefs, t, -1);
+            }
+            methodGraph.clearEdgesFrom(d);
+        }
+        for (String fqn : membershipChanged) {
+            if (incoming.containsKey(fqn)) coupling.addClass(incoming.get(fqn));
+            else coupling.removeClass(fqn);
+        }
+
+        // 5) recalculer les arêtes des méthodes touchées
+        Set<String> liveDisplays = new HashSet<>();
+        for (String d : touchedDisplays) {
+            if (!isDisplay(d)) continue;
+            liveDisplays.add(d);
+            methodGraph.addNode(d);
+            for (String t : targetsOf(d)) {
+                methodGraph.addEdge(d, t);
+                coupling.addEdge(d, t, 1);
+                ref(methodExtRefs, t, 1);
+            }
+        }
+        for (String d : touchedDisplays) if (!liveDisplays.contains(d)) methodGraph.removeNode(d);
+        dropUnreferencedExternal(methodGraph, methodExtRefs);
+        coupling.sync();
+
+        // 6) graphe de classes : classes touchées + appelants des classes apparues/disparues
+        for (String fqn : membershipChanged) {
+            touchedClasses.addAll(classCallersByTarget.getOrDefault(fqn, Map.of()).keySet());
+        }
+        for (String c : touchedClasses) {
+            Set<String> out = classGraph.edges().get(c);
+            if (out == null) continue;
+            for (String t : out) ref(classExtRefs, t, -1);
+            classGraph.clearEdgesFrom(c);
+        }
+        for (String fqn : membershipChanged) if (!incoming.containsKey(fqn)) classGraph.removeNode(fqn);
+        for (String c : touchedClasses) {
+            ClassInfo ci = classByFqn.get(c);
+            if (ci == null) continue;
+            classGraph.addNode(c);
+            for (String t : classTargetsOf(ci)) {
+                classGraph.addEdge(c, t);
+                ref(classExtRefs, t, 1);
+            }
+        }
+        dropUnreferencedExternal(classGraph, classExtRefs);
+    }
+
+    // --- graphe de méthodes ---
+
+    private boolean isDisplay(String d) {
+        Set<String> keys = keysByDisplay.get(d);
+        if (keys == null) return false;
+        for (String k : keys) if (d.equals(displayOf(k))) return true;
+        return false;
+    }
+
+    /** Libellé du noeud d'une clé : celui de la dernière méthode (dans l'ordre des classes) portant la clé. */
+    private String displayOf(String key) {
+        List<MethodInfo> ms = methodsByKey.get(key);
+        if (ms == null || ms.isEmpty()) return null;
+        MethodInfo last = ms.get(ms.size() - 1);
+        return CallGraphBuilder.displaySig(last, CallGraphBuilder.qnOf(ownerOf.get(last)));
+    }
+
+    private Set<String> targetsOf(String display) {
+        List<MethodInfo> sources = new ArrayList<>();
+        for (String k : keysByDisplay.getOrDefault(display, Set.of())) {
+            if (display.equals(displayOf(k))) sources.addAll(methodsByKey.get(k));
+        }
+        sources.sort(Comparator.comparingLong(m -> order.get(ownerOf.get(m))));
+
+        Set<String> out = new LinkedHashSet<>();
+        for (MethodInfo src : sources) {
+            if (src.calls == null) continue;
+            for (MethodCallInfo call : src.calls) {
+                String calleeKey = CallGraphBuilder.calledMethodKey(call);
+                if (calleeKey != null && methodsByKey.containsKey(calleeKey)) {
+                    out.add(displayOf(calleeKey));
+                } else if (includeExternal) {
+                    out.add(CallGraphBuilder.externalLabel(call));
+                }
+            }
+        }
+        return out;
+    }
+
+    // --- graphe de classes ---
+
+    private Set<String> classTargetsOf(ClassInfo ci) {
+        String from = CallGraphBuilder.qnOf(ci);
+        Set<String> out = new LinkedHashSet<>();
+        for (MethodInfo mi : ci.methods) {
+            if (mi.calls == null) continue;
+            for (MethodCallInfo call : mi.calls) {
+                String target = classTarget(call);
+                if (target == null) continue;
+                if (!classByFqn.containsKey(target)) {
+                    if (!includeExternal) continue;
+                    target = "[EXT] " + target;
+                }
+                if (!from.equals(target)) out.add(target);
+            }
+        }
+        return out;
+    }
+
+    private static String classTarget(MethodCallInfo call) {
+        return (call.declaringType != null) ? call.declaringType : call.receiverStaticType;
+    }
+
+    // --- index ---
+
+    private void index(ClassInfo ci, long pos) {
+        String fqn = CallGraphBuilder.qnOf(ci);
+        order.put(ci, pos);
+        classByFqn.put(fqn, ci);
+        for (MethodInfo mi : ci.methods) {
+            String k = CallGraphBuilder.methodKey(mi, fqn);
+            List<MethodInfo> ms = methodsByKey.computeIfAbsent(k, x -> new ArrayList<>());
+            ownerOf.put(mi, ci);
+            ms.add(mi);
+            if (ms.size() > 1) ms.sort(Comparator.comparingLong(m -> order.get(ownerOf.get(m))));
+            keysByDisplay.computeIfAbsent(CallGraphBuilder.displaySig(mi, fqn), x -> new HashSet<>()).add(k);
+            if (mi.calls == null) continue;
+            for (MethodCallInfo call : mi.calls) {
+                String ck = CallGraphBuilder.calledMethodKey(call);
+                if (ck != null) count(callersByCallee, ck, k, 1);
+                String t = classTarget(call);
+                if (t != null) count(classCallersByTarget, t, fqn, 1);
+            }
+        }
+    }
+
+    private void unindex(ClassInfo ci) {
+        String fqn = CallGraphBuilder.qnOf(ci);
+        for (MethodInfo mi : ci.methods) {
+            String k = CallGraphBuilder.methodKey(mi, fqn);
+            List<MethodInfo> ms = methodsByKey.get(k);
+            if (ms != null) {
+                ms.removeIf(m -> m == mi);
+                if (ms.isEmpty()) methodsByKey.remove(k);
+            }
+            ownerOf.remove(mi);
+            Set<String> keys = keysByDisplay.get(CallGraphBuilder.displaySig(mi, fqn));
+            if (keys != null && !methodsByKey.containsKey(k)) {
+                keys.remove(k);
+                if (keys.isEmpty()) keysByDisplay.remove(CallGraphBuilder.displaySig(mi, fqn));
+            }
+            if (mi.calls == null) continue;
+            for (MethodCallInfo call : mi.calls) {
+                String ck = CallGraphBuilder.calledMethodKey(call);
+                if (ck != null) count(callersByCallee, ck, k, -1);
+                String t = classTarget(call);
+                if (t != null) count(classCallersByTarget, t, fqn, -1);
+            }
+        }
+        classByFqn.remove(fqn);
+        order.remove(ci);
+    }
+
+    private static void count(Map<String, Map<String, Integer>> idx, String key, String by, int delta) {
+        Map<String, Integer> m = idx.computeIfAbsent(key, x -> new HashMap<>());
+        int n = m.getOrDefault(by, 0) + delta;
+        if (n <= 0) m.remove(by); else m.put(by, n);
+        if (m.isEmpty()) idx.remove(key);
+    }
+
+    /** Compte les arêtes visant chaque noeud externe (un noeud [EXT] n'existe que s'il est visé). */
+    private void ref(Map<String, Integer> refs, String target, int delta) {
+        if (!target.startsWith("[EXT] ")) return;
+        int n = refs.getOrDefault(target, 0) + delta;
+        if (n <= 0) { refs.remove(target); orphans.add(target); }
+        else refs.put(target, n);
+    }
+
+    private void dropUnreferencedExternal(DiGraph<String> g, Map<String, Integer> refs) {
+        for (String n : orphans) if (!refs.containsKey(n)) g.removeNode(n);
+        orphans.clear();
+    }
+
+    private static List<String> concat(Collection<String> a, Collection<String> b) {
+        List<String> out = new ArrayList<>(a);
+        out.addAll(b);
+        return out;
+    }
+}
@@ -0,0 +1,216 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation légère du pipeline (analyse, graphes, couplage, clustering, modules, disposition).
+ *
+ * Une phase s'ouvre par try (Instrumentation.Phase p = Instrumentation.phase("coupling")) { ... p.count(..) } :
+ * à la fermeture, durée, octets alloués par le thread et comptes d'éléments sont cumulés par nom de phase,
+ * et un événement JFR "hai913.Phase" est émis (quasi gratuit hors enregistrement, cf. -XX:StartFlightRecording).
+ * Les compteurs globaux (count) servent aux chemins chauds, où une phase par appel serait trop coûteuse.
+ * Le tout s'exporte en rapport JSON (writeJson).
+ *
+ * Les allocations sont celles du thread qui ouvre la phase (le travail délégué à un pool n'y figure pas).
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {}
+
+    @Name("hai913.Phase")
+    @Label("Phase du pipeline")
+    @Category({"HAI913", "Pipeline"})
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase") String phase;
+        @Label("Alloué") @DataAmount long allocated;
+        @Label("Comptes") @Description("nom=valeur, séparés par des espaces") String counts;
+    }
+
+    /** Cumul d'une phase (tous les appels de même nom). */
+    private static final class Stat {
+        long calls, nanos, maxNanos, allocated;
+        final Map<String, Long> counts = new LinkedHashMap<>();
+    }
+
+    private static final Map<String, Stat> phases = new LinkedHashMap<>(); // ordre de première apparition
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    /** Ouvre une phase ; à fermer (try-with-resources) sur le même thread. */
+    public static Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /** Incrémente un compteur global (thread-safe, sans verrou). */
+    public static void count(String counter, long delta) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    public static long counter(String counter) {
+        LongAdder a = counters.get(counter);
+        return a == null ? 0 : a.sum();
+    }
+
+    /** Oublie phases et compteurs (début d'une nouvelle exécution). */
+    public static void reset() {
+        synchronized (phases) { phases.clear(); }
+        counters.clear();
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private final long allocStart;
+        private final PhaseEvent event = new PhaseEvent();
+        private Map<String, Long> counts; // créé au premier count
+        private boolean closed;
+
+        private Phase(String name) {
+            this.name = name;
+            this.allocStart = allocatedBytes();
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /** Ajoute n au compte d'éléments name de cette phase (types, arêtes, paires...). */
+        public Phase count(String name, long n) {
+            if (counts == null) counts = new LinkedHashMap<>();
+            counts.merge(name, n, Long::sum);
+            return this;
+        }
+
+        @Override public void close() {
+            if (closed) return;
+            closed = true;
+            long nanos = System.nanoTime() - start;
+            long alloc = allocStart < 0 ? 0 : Math.max(0, allocatedBytes() - allocStart);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.allocated = alloc;
+                event.counts = format(counts);
+                event.commit();
+            }
+            synchronized (phases) {
+                Stat s = phases.computeIfAbsent(name, k -> new Stat());
+                s.calls++;
+                s.nanos += nanos;
+                s.maxNanos = Math.max(s.maxNanos, nanos);
+                s.allocated += alloc;
+                if (counts != null) for (Map.Entry<String, Long> c : counts.entrySet()) s.counts.merge(c.getKey(), c.getValue(), Long::sum);
+            }
+        }
+    }
+
+    // -------------------- rapport --------------------
+
+    /** Rapport JSON : phases (appels, durées, allocations, comptes) puis compteurs globaux. */
+    public static void writeJson(Writer w) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"phases\": [");
+        synchronized (phases) {
+            boolean first = true;
+            for (Map.Entry<String, Stat> e : phases.entrySet()) {
+                Stat s = e.getValue();
+                sb.append(first ? "\n" : ",\n");
+                first = false;
+                sb.append("    {\"name\": ").append(json(e.getKey()))
+                  .append(", \"calls\": ").append(s.calls)
+                  .append(", \"totalMs\": ").append(ms(s.nanos))
+                  .append(", \"maxMs\": ").append(ms(s.maxNanos))
+                  .append(", \"allocatedBytes\": ").append(s.allocated)
+                  .append(", \"counts\": ");
+                appendMap(sb, s.counts);
+                sb.append('}');
+            }
+        }
+        sb.append("\n  ],\n  \"counters\": ");
+        Map<String, Long> c = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) c.put(e.getKey(), e.getValue().sum());
+        appendMap(sb, c);
+        sb.append("\n}\n");
+        w.write(sb.toString());
+    }
+
+    /** Résumé texte, une ligne par phase. */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (phases) {
+            for (Map.Entry<String, Stat> e : phases.entrySet()) {
+                Stat s = e.getValue();
+                sb.append(String.format(Locale.ROOT, "  %-16s %9.1f ms  x%-4d %10.1f Mo  %s%n",
+                        e.getKey(), s.nanos / 1e6, s.calls, s.allocated / (1024.0 * 1024.0), format(s.counts)));
+            }
+        }
+        return sb.toString();
+    }
+
+    // -------------------- helpers --------------------
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+            if (b instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sb = (com.sun.management.ThreadMXBean) b;
+                if (sb.isThreadAllocatedMemorySupported() && sb.isThreadAllocatedMemoryEnabled()) return sb;
+            }
+        } catch (RuntimeException | LinkageError ignored) {
+            // JVM sans com.sun.management : pas de mesure d'allocation
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static String format(Map<String, Long> counts) {
+        if (counts == null || counts.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> c : counts.entrySet()) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(c.getKey()).append('=').append(c.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static void appendMap(StringBuilder sb, Map<String, Long> m) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Long> c : m.entrySet()) {
+            if (!first) sb.append(", ");
+            first = false;
+            sb.append(json(c.getKey())).append(": ").append(c.getValue());
+        }
+        sb.append('}');
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String json(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\');
+            if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
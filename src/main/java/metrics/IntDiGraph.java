@@ -0,0 +1,260 @@
+package metrics;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Graphe orienté compact : les libellés des noeuds sont internés une seule fois dans une table de symboles
+ * et les arêtes sont stockées en tableaux d'int. Une fois figé (freeze), l'adjacence est au format CSR
+ * (offsets[n+1] + targets[m]) et le graphe est en lecture seule.
+ *
+ * Même sémantique que CallGraphBuilder.DiGraph (arêtes sans doublon, ordre d'insertion conservé) ;
+ * nodes()/edges() en donnent une vue sans recopier les libellés.
+ */
+public final class IntDiGraph implements CallGraphBuilder.Graph<String> {
+
+    /** Table de symboles : libellé <-> identifiant dense [0..n). */
+    public static final class SymbolTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        public int intern(String label) {
+            Integer id = ids.get(label);
+            if (id != null) return id;
+            int n = labels.size();
+            ids.put(label, n);
+            labels.add(label);
+            return n;
+        }
+        /** Identifiant du libellé, ou -1 s'il est inconnu. */
+        public int idOf(String label) {
+            Integer id = ids.get(label);
+            return id != null ? id : -1;
+        }
+        public String label(int id) { return labels.get(id); }
+        public int size() { return labels.size(); }
+    }
+
+    public interface EdgeVisitor {
+        void visit(int from, int to);
+    }
+
+    private final SymbolTable symbols = new SymbolTable();
+
+    // phase de construction : liste d'arêtes brute
+    private int[] edgeFrom = new int[16];
+    private int[] edgeTo = new int[16];
+    private int rawEdges;
+
+    // phase figée : CSR
+    private boolean frozen;
+    private int[] offsets;
+    private int[] targets;
+
+    public int addNode(String label) {
+        checkMutable();
+        return symbols.intern(label);
+    }
+
+    public void addEdge(String from, String to) {
+        addEdge(addNode(from), addNode(to));
+    }
+
+    public void addEdge(int from, int to) {
+        checkMutable();
+        if (rawEdges == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, rawEdges * 2);
+            edgeTo = Arrays.copyOf(edgeTo, rawEdges * 2);
+        }
+        edgeFrom[rawEdges] = from;
+        edgeTo[rawEdges] = to;
+        rawEdges++;
+    }
+
+    /** Passe en lecture seule : tri par source (stable), suppression des doublons, format CSR. */
+    public IntDiGraph freeze() {
+        if (frozen) return this;
+        int n = symbols.size();
+        int[] off = new int[n + 1];
+        for (int e = 0; e < rawEdges; e++) off[edgeFrom[e] + 1]++;
+        for (int i = 0; i < n; i++) off[i + 1] += off[i];
+
+        int[] fill = Arrays.copyOf(off, n);
+        int[] tgt = new int[rawEdges];
+        for (int e = 0; e < rawEdges; e++) tgt[fill[edgeFrom[e]]++] = edgeTo[e];
+
+        // doublons (même arête ajoutée plusieurs fois) : on garde la première occurrence
+        int[] seenIn = new int[n];
+        Arrays.fill(seenIn, -1);
+        int w = 0;
+        int[] compactOff = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            compactOff[i] = w;
+            for (int e = off[i]; e < off[i + 1]; e++) {
+                int t = tgt[e];
+                if (seenIn[t] == i) continue;
+                seenIn[t] = i;
+                tgt[w++] = t;
+            }
+        }
+        compactOff[n] = w;
+
+        this.offsets = compactOff;
+        this.targets = Arrays.copyOf(tgt, w);
+        this.edgeFrom = null;
+        this.edgeTo = null;
+        this.frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() { return frozen; }
+
+    public SymbolTable symbols() { return symbols; }
+
+    public int nodeCount() { return symbols.size(); }
+
+    public int edgeCount() {
+        checkFrozen();
+        return targets.length;
+    }
+
+    public String label(int id) { return symbols.label(id); }
+
+    public int outDegree(int node) {
+        checkFrozen();
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /** Indice CSR de la première arête sortant de node (edgeOffset(nodeCount()) == edgeCount()). */
+    public int edgeOffset(int node) {
+        checkFrozen();
+        return offsets[node];
+    }
+
+    /** Source de l'arête d'indice e (ordre CSR, 0 <= e < edgeCount()) : recherche dichotomique dans offsets. */
+    public int edgeSource(int e) {
+        checkFrozen();
+        int lo = 0, hi = offsets.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= e) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** Cible de l'arête d'indice e (ordre CSR). */
+    public int edgeTarget(int e) {
+        checkFrozen();
+        return targets[e];
+    }
+
+    public void forEachSuccessor(int node, IntConsumer action) {
+        checkFrozen();
+        for (int e = offsets[node]; e < offsets[node + 1]; e++) action.accept(targets[e]);
+    }
+
+    public void forEachEdge(EdgeVisitor visitor) {
+        checkFrozen();
+        for (int i = 0; i < offsets.length - 1; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) visitor.visit(i, targets[e]);
+        }
+    }
+
+    /** Convertit un DiGraph existant (graphe figé). */
+    public static IntDiGraph fromDiGraph(CallGraphBuilder.DiGraph<String> g) {
+        IntDiGraph out = new IntDiGraph();
+        for (String n : g.nodes()) out.addNode(n);
+        for (Map.Entry<String, Set<String>> e : g.edges().entrySet()) {
+            int from = out.symbols.idOf(e.getKey());
+            for (String to : e.getValue()) out.addEdge(from, out.symbols.idOf(to));
+        }
+        return out.freeze();
+    }
+
+    /** Recopie en DiGraph (pour le code qui a besoin d'un graphe modifiable). */
+    public CallGraphBuilder.DiGraph<String> toDiGraph() {
+        CallGraphBuilder.DiGraph<String> g = new CallGraphBuilder.DiGraph<>();
+        for (int i = 0; i < nodeCount(); i++) g.addNode(label(i));
+        forEachEdge((a, b) -> g.addEdge(label(a), label(b)));
+        return g;
+    }
+
+    // --- vues Graph<String> (aucune copie des libellés) ---
+
+    @Override
+    public Set<String> nodes() {
+        return new AbstractSet<>() {
+            @Override public int size() { return symbols.size(); }
+            @Override public boolean contains(Object o) { return o instanceof String && symbols.idOf((String) o) >= 0; }
+            @Override public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    int i = 0;
+                    @Override public boolean hasNext() { return i < symbols.size(); }
+                    @Override public String next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return symbols.label(i++);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Set<String>> edges() {
+        checkFrozen();
+        return new AbstractMap<>() {
+            @Override public Set<String> get(Object key) {
+                int id = key instanceof String ? symbols.idOf((String) key) : -1;
+                return id < 0 ? null : successors(id);
+            }
+            @Override public boolean containsKey(Object key) { return get(key) != null; }
+            @Override public Set<Entry<String, Set<String>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override public int size() { return symbols.size(); }
+                    @Override public Iterator<Entry<String, Set<String>>> iterator() {
+                        return new Iterator<>() {
+                            int i = 0;
+                            @Override public boolean hasNext() { return i < symbols.size(); }
+                            @Override public Entry<String, Set<String>> next() {
+                                if (!hasNext()) throw new NoSuchElementException();
+                                int id = i++;
+                                return new AbstractMap.SimpleImmutableEntry<>(symbols.label(id), successors(id));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    private Set<String> successors(int node) {
+        final int from = offsets[node], to = offsets[node + 1];
+        return new AbstractSet<>() {
+            @Override public int size() { return to - from; }
+            @Override public boolean contains(Object o) {
+                int id = o instanceof String ? symbols.idOf((String) o) : -1;
+                if (id < 0) return false;
+                for (int e = from; e < to; e++) if (targets[e] == id) return true;
+                return false;
+            }
+            @Override public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    int e = from;
+                    @Override public boolean hasNext() { return e < to; }
+                    @Override public String next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return symbols.label(targets[e++]);
+                    }
+                };
+            }
+        };
+    }
+
+    private void checkMutable() {
+        if (frozen) throw new IllegalStateException("graphe figé (freeze)");
+    }
+
+    private void checkFrozen() {
+        if (!frozen) throw new IllegalStateException("graphe non figé : appeler freeze() avant de le parcourir");
+    }
+}
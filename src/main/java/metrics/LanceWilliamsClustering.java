@@ -0,0 +1,362 @@
+package metrics;
+
+import metrics.HierarchicalClustering.Coupling;
+import metrics.HierarchicalClustering.Linkage;
+import metrics.HierarchicalClustering.Node;
+import model.ClassInfo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Moteur de clustering agglomératif en O(n²) mémoire / O(n²) temps typique.
+ *
+ * Les similarités inter-clusters sont gardées dans une matrice triangulaire condensée et mises à jour
+ * par les formules de Lance-Williams à chaque fusion (SINGLE : max, COMPLETE : min, AVERAGE : somme des
+ * similarités entre feuilles, divisée par na*nb à la lecture), au lieu d'être recalculées sur toutes
+ * les paires de feuilles.
+ *
+ * Deux stratégies :
+ *  - EXACT_ORDER : chaque cluster mémorise son meilleur voisin ; on fusionne à chaque étape la meilleure
+ *    paire, avec le même départage des égalités que l'algorithme historique (ordre de la liste de clusters,
+ *    le cluster fusionné allant en fin de liste). Donne exactement le même dendrogramme.
+ *  - NN_CHAIN : chaîne des plus proches voisins, O(n²) garanti. Les fusions sont ensuite rejouées par
+ *    similarité décroissante : même dendrogramme qu'EXACT_ORDER tant qu'il n'y a pas d'égalités.
+ *
+ * La matrice est un CondensedStore : sur le tas, ou projetée depuis un fichier temporaire quand elle ne
+ * tient pas dans la JVM (Storage.AUTO choisit selon la taille du tas).
+ */
+public final class LanceWilliamsClustering {
+
+    public enum Strategy { EXACT_ORDER, NN_CHAIN }
+
+    /** Support de la matrice : AUTO = tas si elle y tient (moins de la moitié du tas maximal), fichier projeté sinon. */
+    public enum Storage { AUTO, HEAP, MAPPED }
+
+    private LanceWilliamsClustering() {}
+
+    public static Node cluster(List<ClassInfo> classes, Coupling couplingFn, Linkage linkage) {
+        return cluster(classes, couplingFn, linkage, Strategy.EXACT_ORDER);
+    }
+
+    public static Node cluster(List<ClassInfo> classes, Coupling couplingFn, Linkage linkage, Strategy strategy) {
+        return cluster(classes, couplingFn, linkage, strategy, Storage.AUTO);
+    }
+
+    public static Node cluster(List<ClassInfo> classes, Coupling couplingFn, Linkage linkage, Strategy strategy,
+                               Storage storage) {
+        Objects.requireNonNull(classes); Objects.requireNonNull(couplingFn);
+        Objects.requireNonNull(linkage); Objects.requireNonNull(strategy); Objects.requireNonNull(storage);
+        if (classes.isEmpty()) return null;
+        if (classes.size() == 1) return Node.leaf(classes.get(0));
+
+        try (Instrumentation.Phase p = Instrumentation.phase("clustering")) {
+            p.count("classes", classes.size()).count("pairs", (long) classes.size() * (classes.size() - 1) / 2);
+            try (State st = new State(classes, couplingFn, linkage, storage)) {
+                if (st.mapped) p.count("mapped-bytes", st.mappedBytes);
+                return strategy == Strategy.NN_CHAIN ? nnChain(st) : exactOrder(st);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /** Matrice condensée + état des clusters actifs (un cluster occupe le "slot" de son fils gauche). */
+    private static final class State implements AutoCloseable {
+        final int n;
+        final List<ClassInfo> classes;
+        final Linkage linkage;
+        final CondensedStore sim;      // SINGLE/COMPLETE : similarité ; AVERAGE : somme des similarités feuilles
+        final CondensedStore leafSim;  // AVERAGE seulement : similarités d'origine (hauteur exacte des fusions)
+        final boolean mapped;
+        long mappedBytes;
+        final Map<ClassInfo, Integer> leafIndex = new IdentityHashMap<>();
+        final int[] size;
+        final long[] seq;          // rang dans la liste historique (feuilles 0..n-1, fusions à la suite)
+        final boolean[] active;
+        final Node[] node;
+        long nextSeq;
+
+        State(List<ClassInfo> classes, Coupling fn, Linkage linkage, Storage storage) throws IOException {
+            this.n = classes.size();
+            this.classes = classes;
+            this.linkage = linkage;
+            long cells = CondensedStore.cells(n);
+            this.mapped = storage == Storage.MAPPED || (storage == Storage.AUTO && !fitsOnHeap(cells, linkage));
+            this.size = new int[n];
+            this.seq = new long[n];
+            this.active = new boolean[n];
+            this.node = new Node[n];
+            for (int i = 0; i < n; i++) {
+                node[i] = Node.leaf(classes.get(i));
+                size[i] = 1;
+                seq[i] = i;
+                active[i] = true;
+            }
+            nextSeq = n;
+            for (int i = 0; i < n; i++) leafIndex.putIfAbsent(classes.get(i), i);
+
+            // fichier : float suffit pour max/min ; AVERAGE cumule des sommes, gardées en double
+            CondensedStore s = mapped
+                    ? CondensedStore.mapped(cells, linkage == Linkage.AVERAGE ? CondensedStore.Cell.DOUBLE : CondensedStore.Cell.FLOAT, null)
+                    : CondensedStore.heap(cells);
+            CondensedStore leaves = null;
+            try {
+                long k = 0;
+                for (int i = 0; i < n; i++) for (int j = i + 1; j < n; j++, k++) {
+                    double v = clamp01(fn.between(classes.get(i), classes.get(j)));
+                    if (v != 0) s.set(k, v);  // les zéros restent non écrits (pages creuses du fichier)
+                }
+                if (linkage == Linkage.AVERAGE && mapped) {
+                    leaves = CondensedStore.mapped(cells, CondensedStore.Cell.FLOAT, null);
+                    k = 0;
+                    for (int i = 0; i < n; i++) for (int j = i + 1; j < n; j++, k++) {
+                        double v = s.get(k);
+                        if (v != 0) leaves.set(k, v);
+                    }
+                } else if (linkage == Linkage.AVERAGE) {
+                    leaves = s.copy();
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                // l'objet n'est pas encore construit : try-with-resources ne le fermera pas
+                closeQuietly(s, e);
+                if (leaves != null) closeQuietly(leaves, e);
+                throw e;
+            }
+            this.sim = s;
+            this.leafSim = leaves;
+            if (mapped) mappedBytes = cells * (linkage == Linkage.AVERAGE ? 8 + 4 : 4);
+        }
+
+        long idx(int i, int j) {
+            return CondensedStore.index(n, i, j);
+        }
+
+        @Override public void close() throws IOException {
+            sim.close();
+            if (leafSim != null) leafSim.close();
+        }
+
+        private static void closeQuietly(CondensedStore store, Throwable failure) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        /** Similarité courante entre deux clusters actifs selon la liaison. */
+        double similarity(int i, int j) {
+            double v = sim.get(idx(i, j));
+            return linkage == Linkage.AVERAGE ? clamp01(v / ((double) size[i] * size[j])) : v;
+        }
+
+        /**
+         * Moyenne sommée dans le même ordre que l'ancien algorithme (membres de A x membres de B), pour que
+         * la hauteur soit identique au bit près. Chaque paire de feuilles n'est sommée qu'une fois sur tout
+         * le dendrogramme : O(n²) au total.
+         */
+        double exactAverage(Node A, Node B) {
+            double sum = 0; int cnt = 0;
+            for (ClassInfo a : A.members) for (ClassInfo b : B.members) {
+                int i = leafIndex.get(a), j = leafIndex.get(b);
+                sum += (i == j) ? 0.0 : leafSim.get(idx(i, j));
+                cnt++;
+            }
+            return cnt == 0 ? 0.0 : clamp01(sum / cnt);
+        }
+
+        /**
+         * s1 (paire x1,y1) > s2 (paire x2,y2) ? En AVERAGE, les sommes de Lance-Williams peuvent différer de
+         * quelques ulps de l'ancienne moyenne : en cas de quasi-égalité on tranche sur les moyennes exactes.
+         */
+        boolean greater(double s1, int x1, int y1, double s2, int x2, int y2) {
+            if (linkage != Linkage.AVERAGE || !nearlyEqual(s1, s2)) return s1 > s2;
+            if (s1 == 0 && s2 == 0) return false; // somme nulle = que des zéros : égalité exacte
+            return exactAverage(x1, y1) > exactAverage(x2, y2);
+        }
+
+        private double exactAverage(int x, int y) {
+            return seq[x] < seq[y] ? exactAverage(node[x], node[y]) : exactAverage(node[y], node[x]);
+        }
+
+        double heightOf(Node left, Node right, double sim) {
+            return 1.0 - clamp01(linkage == Linkage.AVERAGE ? exactAverage(left, right) : sim);
+        }
+
+        /** Fusionne b dans a (a garde son slot, prend le rang suivant) ; met à jour la matrice (Lance-Williams). */
+        Node merge(int a, int b, double bestSim) {
+            // fils gauche = celui qui était avant dans la liste
+            int left = seq[a] < seq[b] ? a : b, right = (left == a) ? b : a;
+            Node merged = Node.merge(node[left], node[right], heightOf(node[left], node[right], bestSim));
+
+            for (int x = 0; x < n; x++) {
+                if (!active[x] || x == a || x == b) continue;
+                long ia = idx(x, a), ib = idx(x, b);
+                double va = sim.get(ia), vb = sim.get(ib);
+                switch (linkage) {
+                    case SINGLE:   sim.set(ia, Math.max(va, vb)); break;
+                    case COMPLETE: sim.set(ia, Math.min(va, vb)); break;
+                    default:       sim.set(ia, va + vb);
+                }
+            }
+            active[b] = false;
+            node[b] = null;
+            node[a] = merged;
+            size[a] += size[b];
+            seq[a] = nextSeq++;
+            return merged;
+        }
+    }
+
+    // --- EXACT_ORDER ---
+
+    private static Node exactOrder(State st) {
+        final int n = st.n;
+        // clusters actifs chaînés dans l'ordre de la liste historique
+        int[] next = new int[n], prev = new int[n];
+        for (int i = 0; i < n; i++) { next[i] = i + 1 < n ? i + 1 : -1; prev[i] = i - 1; }
+        int head = 0, tail = n - 1;
+
+        double[] bestSim = new double[n];
+        int[] bestOf = new int[n];
+        for (int x = head; x >= 0; x = next[x]) recomputeBest(st, x, next, bestSim, bestOf);
+
+        int remaining = n;
+        Node last = null;
+        while (remaining > 1) {
+            int bi = -1;
+            double best = -1;
+            for (int x = head; x >= 0; x = next[x]) {
+                if (bestOf[x] >= 0 && (bi < 0 || st.greater(bestSim[x], x, bestOf[x], best, bi, bestOf[bi]))) {
+                    best = bestSim[x]; bi = x;
+                }
+            }
+            int a = bi, b = bestOf[bi];
+
+            last = st.merge(a, b, best);
+            remaining--;
+
+            // a passe en fin de liste, b disparaît
+            for (int r : new int[]{a, b}) {
+                if (prev[r] >= 0) next[prev[r]] = next[r]; else head = next[r];
+                if (next[r] >= 0) prev[next[r]] = prev[r]; else tail = prev[r];
+            }
+            if (tail >= 0) next[tail] = a; else head = a;
+            prev[a] = tail; next[a] = -1; tail = a;
+            bestOf[a] = -1; bestSim[a] = -1;
+
+            for (int x = head; x >= 0 && x != a; x = next[x]) {
+                if (bestOf[x] == a || bestOf[x] == b) {
+                    recomputeBest(st, x, next, bestSim, bestOf);
+                } else {
+                    double s = st.similarity(x, a);
+                    // a est le dernier de la liste : à égalité on garde l'ancien
+                    if (st.greater(s, x, a, bestSim[x], x, bestOf[x])) { bestSim[x] = s; bestOf[x] = a; }
+                }
+            }
+        }
+        return last;
+    }
+
+    /** Meilleur partenaire de x parmi les clusters situés après lui dans la liste (égalité -> le premier). */
+    private static void recomputeBest(State st, int x, int[] next, double[] bestSim, int[] bestOf) {
+        double best = -1;
+        int arg = -1;
+        for (int y = next[x]; y >= 0; y = next[y]) {
+            double s = st.similarity(x, y);
+            if (arg < 0 || st.greater(s, x, y, best, x, arg)) { best = s; arg = y; }
+        }
+        bestSim[x] = best;
+        bestOf[x] = arg;
+    }
+
+    // --- NN_CHAIN ---
+
+    private static Node nnChain(State st) {
+        final int n = st.n;
+        // fusions trouvées : (feuille représentative de chaque côté, similarité)
+        int[] repA = new int[n - 1], repB = new int[n - 1];
+        double[] mergeSim = new double[n - 1];
+        int[] rep = new int[n];
+        for (int i = 0; i < n; i++) rep[i] = i;
+
+        int[] chain = new int[n];
+        int top = 0, merges = 0;
+        while (merges < n - 1) {
+            if (top == 0) {
+                for (int i = 0; i < n; i++) if (st.active[i]) { chain[top++] = i; break; }
+            }
+            int x = chain[top - 1];
+            int prevInChain = top >= 2 ? chain[top - 2] : -1;
+
+            // plus proche voisin ; en cas d'égalité on préfère le précédent de la chaîne (terminaison)
+            int y = -1;
+            double best = -1;
+            if (prevInChain >= 0) { y = prevInChain; best = st.similarity(x, prevInChain); }
+            for (int z = 0; z < n; z++) {
+                if (!st.active[z] || z == x || z == prevInChain) continue;
+                double s = st.similarity(x, z);
+                if (s > best) { best = s; y = z; }
+            }
+
+            if (y == prevInChain) {
+                top -= 2;
+                repA[merges] = rep[x]; repB[merges] = rep[y]; mergeSim[merges] = best;
+                merges++;
+                int keep = Math.min(x, y), gone = Math.max(x, y);
+                st.merge(keep, gone, best);
+                rep[keep] = Math.min(rep[x], rep[y]);
+            } else {
+                chain[top++] = y;
+            }
+        }
+
+        // rejouer les fusions par similarité décroissante (tri stable)
+        Integer[] orderIdx = new Integer[n - 1];
+        for (int i = 0; i < n - 1; i++) orderIdx[i] = i;
+        Arrays.sort(orderIdx, (p, q) -> Double.compare(mergeSim[q], mergeSim[p]));
+
+        int[] parent = new int[n];
+        Node[] nodeOf = new Node[n];
+        long[] seqOf = new long[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            nodeOf[i] = Node.leaf(st.classes.get(i));
+            seqOf[i] = i;
+        }
+        long nextSeq = n;
+        Node root = null;
+        for (int k : orderIdx) {
+            int ra = find(parent, repA[k]), rb = find(parent, repB[k]);
+            int left = seqOf[ra] < seqOf[rb] ? ra : rb, right = (left == ra) ? rb : ra;
+            root = Node.merge(nodeOf[left], nodeOf[right], st.heightOf(nodeOf[left], nodeOf[right], mergeSim[k]));
+            parent[right] = left;
+            nodeOf[left] = root;
+            nodeOf[right] = null;
+            seqOf[left] = nextSeq++;
+        }
+        return root;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) { parent[x] = parent[parent[x]]; x = parent[x]; }
+        return x;
+    }
+
+    // tas : la matrice (et sa copie en AVERAGE) doit laisser au moins la moitié du tas maximal
+    private static boolean fitsOnHeap(long cells, Linkage linkage) {
+        if (cells > Integer.MAX_VALUE - 8) return false;
+        long bytes = cells * 8 * (linkage == Linkage.AVERAGE ? 2 : 1);
+        return bytes <= Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    private static boolean nearlyEqual(double a, double b) {
+        return Math.abs(a - b) <= 1e-9 * Math.max(Math.abs(a), Math.abs(b));
+    }
+
+    private static double clamp01(double v) { return v < 0 ? 0 : (v > 1 ? 1 : v); }
+}
@@ -31,6 +31,9 @@ public class MetricsCalculator {
         return m.name + "(" + (m.parameterTypes == null ? "" : String.join(",", m.parameterTypes)) + ")";
     }
 
+    // Dernière matrice calculée : les appels successifs sur le même graphe deviennent de simples lectures
+    private static CouplingMatrix cachedMatrix;
+
     /**
      * Calcule une métrique de couplage
      * @param methodGraph
@@ -39,73 +42,24 @@ public class MetricsCalculator {
      * @param B
      * @return
      */
-    public static float calculateCoupling(CallGraphBuilder.DiGraph<String> methodGraph,
+    public static float calculateCoupling(CallGraphBuilder.Graph<String> methodGraph,
                                           List<ClassInfo> classes,
                                           ClassInfo A, ClassInfo B) {
         if (methodGraph == null || classes == null || A == null || B == null || A == B) return 0f;
 
-        Map<String,String> simple2fqn = new HashMap<>();
-        Set<String> fqns = new HashSet<>();
-        for (ClassInfo ci : classes) {
-            String fqn = qnOf(ci);
-            fqns.add(fqn);
-            simple2fqn.put(ci.className, fqn);
-        }
-
-        String qnA = qnOf(A);
-        String qnB = qnOf(B);
-
-        long numerator = 0, denominator = 0;
-
-        for (Map.Entry<String, Set<String>> e : methodGraph.edges().entrySet()) {
-            String fromOwner = canonicalOwner(ownerOfMethodNode(e.getKey()), fqns, simple2fqn);
-            if (fromOwner.isEmpty()) continue;
-            for (String toNode : e.getValue()) {
-                String toOwner = canonicalOwner(ownerOfMethodNode(toNode), fqns, simple2fqn);
-                if (toOwner.isEmpty()) continue;
-
-                denominator++;
-
-                if ((fromOwner.equals(qnA) && toOwner.equals(qnB)) ||
-                        (fromOwner.equals(qnB) && toOwner.equals(qnA))) {
-                    numerator++;
-                }
-            }
-        }
-        System.out.println(numerator + "/" + denominator);
-        return denominator == 0 ? 0f : (float) numerator / (float) denominator;
+        Instrumentation.count("coupling.pairs-evaluated", 1);
+        return couplingMatrix(methodGraph, classes).weight(A, B);
     }
 
-// --- helpers ---
-
-    private static String canonicalOwner(String owner,
-                                         Set<String> projectFqns,
-                                         Map<String, String> simple2fqn) {
-        if (owner == null) return "";
-        owner = owner.trim().replace('$','.');
-        if (owner.isEmpty()) return "";
-
-        if (projectFqns.contains(owner)) return owner;
-
-        if (owner.indexOf('.') < 0) {
-            String fqn = simple2fqn.get(owner);
-            return (fqn != null) ? fqn : "";
+    /** Matrice de couplage du graphe (recalculée seulement si le graphe ou la liste de classes a changé). */
+    public static synchronized CouplingMatrix couplingMatrix(CallGraphBuilder.Graph<String> methodGraph,
+                                                            List<ClassInfo> classes) {
+        if (cachedMatrix == null || !cachedMatrix.isFor(methodGraph, classes)) {
+            cachedMatrix = CouplingMatrix.build(methodGraph, classes);
         }
-
-        return projectFqns.contains(owner) ? owner : "";
+        return cachedMatrix;
     }
 
-    private static String ownerOfMethodNode(String nodeLabel) {
-        if (nodeLabel == null) return "";
-        String s = nodeLabel.trim();
-        int paren = s.indexOf('(');
-        if (paren <= 0) return "";
-        int lastDot = s.lastIndexOf('.', paren);
-        if (lastDot <= 0) return "";
-        return s.substring(0, lastDot).replace('$','.');
-    }
-
-
     /** Privilégie la classe déclarant la méthode; fallback sur le type statique du receveur. */
     private static String targetType(MethodCallInfo c) {
         if (c.declaringType != null && !c.declaringType.isEmpty()) return c.declaringType;
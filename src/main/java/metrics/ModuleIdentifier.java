@@ -32,17 +32,42 @@ public final class ModuleIdentifier {
         }
     }
 
-    /** Identifie des modules à partir du dendrogramme et de la fonction de couplage. */
+    /**
+     * Identifie des modules à partir du dendrogramme et de la fonction de couplage.
+     * Chaque paire de classes n'est évaluée qu'une fois (au noeud où elle se rejoint), puis les moyennes
+     * de tous les noeuds se lisent dans des sommes calculées de bas en haut.
+     */
     public static Result identify(Node root, Coupling couplingFn, double CP) {
         Objects.requireNonNull(root, "root");
         Objects.requireNonNull(couplingFn, "couplingFn");
+        return identify(root, r -> Sums.of(r, couplingFn), CP);
+    }
+
+    /**
+     * Variante lue dans la matrice de couplage : seules les cases non nulles sont parcourues,
+     * chacune ajoutée au plus petit ancêtre commun de ses deux feuilles.
+     */
+    public static Result identify(Node root, CouplingMatrix matrix, double CP) {
+        Objects.requireNonNull(root, "root");
+        Objects.requireNonNull(matrix, "matrix");
+        return identify(root, r -> Sums.of(r, matrix), CP);
+    }
 
+    private static Result identify(Node root, java.util.function.Function<Node, Sums> sums, double CP) {
+        try (Instrumentation.Phase p = Instrumentation.phase("modules")) {
+            Result r = split(root, sums.apply(root), CP);
+            p.count("classes", root.members.size()).count("modules", r.modules.size());
+            return r;
+        }
+    }
+
+    private static Result split(Node root, Sums sums, double CP) {
         List<ClassInfo> all = new ArrayList<>(root.members);
         final int M = all.size();
         final int maxModules = Math.max(1, M / 2);
 
         List<ClusterMod> modules = new ArrayList<>();
-        modules.add(new ClusterMod(root, avgPairwise(root.members, couplingFn)));
+        modules.add(new ClusterMod(root, sums.avg(root)));
 
         while (true) {
             int idxWorst = -1;
@@ -64,14 +89,13 @@ public final class ModuleIdentifier {
             ClusterMod victim = modules.remove(idxWorst);
             Node L = victim.node.left;
             Node R = victim.node.right;
-            modules.add(new ClusterMod(L, avgPairwise(L.members, couplingFn)));
-            modules.add(new ClusterMod(R, avgPairwise(R.members, couplingFn)));
+            modules.add(new ClusterMod(L, sums.avg(L)));
+            modules.add(new ClusterMod(R, sums.avg(R)));
         }
 
         return toResult(modules, true);
     }
 
-
     /** Wrapper pour suivre un cluster courant + sa moyenne. */
     private static final class ClusterMod {
         final Node node;
@@ -96,22 +120,133 @@ public final class ModuleIdentifier {
                 feasible);
     }
 
-    /** Couplage moyen de toutes les paires {i<j} au sein d’un ensemble de classes. */
-    private static double avgPairwise(Set<ClassInfo> members, Coupling cpl) {
-        int n = members.size();
-        if (n <= 1) return 1.0; // convention : singleton = parfaitement "cohérent"
-        List<ClassInfo> list = new ArrayList<>(members);
-        double sum = 0.0;
-        int pairs = 0;
-        for (int i = 0; i < n; i++) {
-            ClassInfo a = list.get(i);
-            for (int j = i+1; j < n; j++) {
-                ClassInfo b = list.get(j);
-                sum += clamp01(cpl.between(a, b));
-                pairs++;
+    /**
+     * Somme des couplages intra-cluster de chaque noeud (paires {i<j} de ses classes).
+     * Le nombre de paires découle de la taille : la moyenne d'un noeud est lue en O(1).
+     */
+    private static final class Sums {
+        final Node[] nodes;                        // post-ordre : enfants avant parents, feuilles de gauche à droite
+        final IdentityHashMap<Node, Integer> ids;
+        final double[] sum;
+
+        private Sums(Node root) {
+            List<Node> order = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();   // itératif : un dendrogramme en peigne a la profondeur M
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node n = stack.pop();
+                order.add(n);
+                if (n.left != null) stack.push(n.left);
+                if (n.right != null) stack.push(n.right);
+            }
+            Collections.reverse(order);
+            nodes = order.toArray(new Node[0]);
+            ids = new IdentityHashMap<>(nodes.length * 2);
+            for (int i = 0; i < nodes.length; i++) ids.put(nodes[i], i);
+            sum = new double[nodes.length];
+        }
+
+        /** Couplage moyen du noeud ; convention : singleton = parfaitement "cohérent". */
+        double avg(Node n) {
+            long k = n.members.size();
+            if (k <= 1) return 1.0;
+            return sum[ids.get(n)] / (k * (k - 1) / 2);
+        }
+
+        private int id(Node n) { return ids.get(n); }
+
+        /** sum(n) = sum(gauche) + sum(droite) + paires croisées gauche x droite. */
+        static Sums of(Node root, Coupling cpl) {
+            Sums s = new Sums(root);
+            long evaluated = 0;
+            for (int i = 0; i < s.nodes.length; i++) {
+                Node n = s.nodes[i];
+                if (n.left == null || n.right == null) continue;
+                double cross = 0.0;
+                for (ClassInfo a : n.left.members) {
+                    for (ClassInfo b : n.right.members) cross += clamp01(cpl.between(a, b));
+                }
+                evaluated += (long) n.left.members.size() * n.right.members.size();
+                s.sum[i] = s.sum[s.id(n.left)] + s.sum[s.id(n.right)] + cross;
+            }
+            Instrumentation.count("modules.pairs-evaluated", evaluated);
+            return s;
+        }
+
+        /**
+         * Cases non nulles de la matrice réparties sur les noeuds, puis cumulées de bas en haut.
+         * Le plus petit ancêtre commun des feuilles p < q est le moins profond des noeuds séparant
+         * deux feuilles consécutives entre p et q (table clairsemée, O(1) par paire).
+         */
+        static Sums of(Node root, CouplingMatrix matrix) {
+            Sums s = new Sums(root);
+            int n = s.nodes.length;
+            int[] depth = new int[n];
+            for (int i = n - 1; i >= 0; i--) {              // parents avant enfants
+                Node v = s.nodes[i];
+                if (v.left != null) depth[s.id(v.left)] = depth[i] + 1;
+                if (v.right != null) depth[s.id(v.right)] = depth[i] + 1;
+            }
+
+            // feuilles numérotées de gauche à droite ; split[k] = noeud séparant les feuilles k et k+1
+            int[] lastLeaf = new int[n];
+            int leaves = 0;
+            int[] split = new int[n];
+            // classes de même nom qualifié partagent un identifiant de matrice : liste chaînée des feuilles par id
+            int[] head = new int[matrix.size()];
+            Arrays.fill(head, -1);
+            int[] next = new int[n];
+            for (int i = 0; i < n; i++) {
+                Node v = s.nodes[i];
+                if (v.isLeaf()) {
+                    lastLeaf[i] = leaves;
+                    int id = v.members.isEmpty() ? -1 : matrix.idOf(v.members.iterator().next());
+                    if (id >= 0) { next[leaves] = head[id]; head[id] = leaves; }
+                    leaves++;
+                } else {
+                    int l = s.id(v.left), r = s.id(v.right);
+                    split[lastLeaf[l]] = i;
+                    lastLeaf[i] = lastLeaf[r];
+                }
+            }
+
+            int m = Math.max(0, leaves - 1);
+            int levels = m == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(m);
+            int[][] table = new int[levels][];
+            table[0] = Arrays.copyOf(split, m);
+            for (int j = 1; j < levels; j++) {
+                int half = 1 << (j - 1);
+                int[] prev = table[j - 1], cur = new int[m - (1 << j) + 1];
+                for (int k = 0; k < cur.length; k++) {
+                    int a = prev[k], b = prev[k + half];
+                    cur[k] = depth[a] <= depth[b] ? a : b;
+                }
+                table[j] = cur;
+            }
+
+            double[] own = new double[n];
+            long[] evaluated = {0};
+            matrix.forEachNonZero((a, b, w) -> {
+                for (int p = head[a]; p >= 0; p = next[p]) {
+                    for (int q = head[b]; q >= 0; q = next[q]) {
+                        int lo = Math.min(p, q), len = Math.abs(p - q);
+                        int j = 31 - Integer.numberOfLeadingZeros(len);
+                        int x = table[j][lo], y = table[j][lo + len - (1 << j)];
+                        own[depth[x] <= depth[y] ? x : y] += clamp01(w);
+                        evaluated[0]++;
+                    }
+                }
+            });
+            Instrumentation.count("modules.pairs-evaluated", evaluated[0]);
+
+            for (int i = 0; i < n; i++) {
+                Node v = s.nodes[i];
+                s.sum[i] = own[i];
+                if (v.left != null) s.sum[i] += s.sum[s.id(v.left)];
+                if (v.right != null) s.sum[i] += s.sum[s.id(v.right)];
             }
+            return s;
         }
-        return (pairs == 0) ? 1.0 : (sum / pairs);
     }
 
     private static double clamp01(double v) { return (v < 0) ? 0 : (v > 1 ? 1 : v); }
@@ -0,0 +1,316 @@
+package metrics;
+
+import metrics.HierarchicalClustering.Linkage;
+import metrics.HierarchicalClustering.Node;
+import model.ClassInfo;
+
+import java.util.*;
+
+/**
+ * Clustering agglomératif approché pour les très grands projets (au-delà de quelques dizaines de milliers
+ * de classes, les n²/2 similarités du moteur exact ne sont plus praticables).
+ *
+ * On ne regarde que les cases non nulles de la matrice de couplage, réduites au graphe des k plus proches
+ * voisins (une paire est gardée si elle est parmi les k plus fortes de l'une de ses deux classes ; k <= 0 :
+ * toutes). Les fusions suivent ensuite Lance-Williams sur ce graphe creux : chaque cluster garde ses
+ * voisins (somme, min, max et nombre de paires de feuilles reliées), une file de priorité donne la paire
+ * la plus similaire. Une paire absente vaut 0, comme dans le moteur exact : avec k <= 0 les similarités
+ * sont exactes, seuls les départages d'égalités peuvent différer. Les clusters restés sans voisin sont
+ * réunis à la fin (hauteur 1), dans l'ordre de la liste.
+ *
+ * Renvoie le même type de dendrogramme (Node) que HierarchicalClustering.cluster.
+ */
+public final class SparseClustering {
+
+    public static final int DEFAULT_K = 32;
+
+    private SparseClustering() {}
+
+    /**
+     * Mesures d'une exécution. Les octets sont des estimations (taille type des structures), pas des mesures :
+     * pour une comparaison mesurée avec le moteur exact, cf. ClusteringBenchmark (benchmarks/, profil gc).
+     */
+    public static final class Stats {
+        public int classes;
+        public long nonZeroPairs;   // cases non nulles entre classes de la liste
+        public long keptPairs;      // paires du graphe des k plus proches voisins
+        public long exactPairs;     // n(n-1)/2 : couplages évalués et stockés par le moteur exact
+        public long approxBytes;    // estimation : voisinages + file de priorité
+        public long exactBytes;     // estimation : matrice condensée du moteur exact sur le tas (double, x2 en AVERAGE)
+        public long nanos;
+
+        public String report() {
+            return String.format(Locale.ROOT,
+                    "approché : %d classes, %d paires gardées sur %d non nulles (%.4f%% des %d paires), "
+                            + "mémoire estimée ~%.1f Mo (moteur exact : ~%.1f Mo estimés), %.0f ms",
+                    classes, keptPairs, nonZeroPairs, exactPairs == 0 ? 0.0 : 100.0 * keptPairs / exactPairs, exactPairs,
+                    approxBytes / (1024.0 * 1024.0), exactBytes / (1024.0 * 1024.0), nanos / 1e6);
+        }
+    }
+
+    public static Node cluster(List<ClassInfo> classes, CouplingMatrix matrix, Linkage linkage, int k) {
+        return cluster(classes, matrix, linkage, k, null);
+    }
+
+    /** stats (peut être null) reçoit les mesures de l'exécution. */
+    public static Node cluster(List<ClassInfo> classes, CouplingMatrix matrix, Linkage linkage, int k, Stats stats) {
+        Objects.requireNonNull(classes); Objects.requireNonNull(matrix); Objects.requireNonNull(linkage);
+        if (classes.isEmpty()) return null;
+        if (classes.size() == 1) return Node.leaf(classes.get(0));
+
+        try (Instrumentation.Phase p = Instrumentation.phase("clustering-approx")) {
+            long t0 = System.nanoTime();
+            final int n = classes.size();
+
+            // feuille de chaque identifiant de matrice (une classe en double ne reçoit pas d'arête)
+            int[] leafOfId = new int[matrix.size()];
+            Arrays.fill(leafOfId, -1);
+            int[] idOfLeaf = new int[n];
+            for (int i = 0; i < n; i++) {
+                int id = matrix.idOf(classes.get(i));
+                idOfLeaf[i] = -1;
+                if (id >= 0 && leafOfId[id] < 0) { leafOfId[id] = i; idOfLeaf[i] = id; }
+            }
+
+            long[] nonZeroOut = new long[1];
+            long[] kept = nearestNeighbors(matrix, leafOfId, n, k, nonZeroOut);
+            long nonZero = nonZeroOut[0];
+
+            Engine e = new Engine(classes, linkage);
+            for (long key : kept) {
+                int i = (int) (key >>> 32), j = (int) key;
+                e.link(i, j, matrix.weight(idOfLeaf[i], idOfLeaf[j]));
+            }
+            Node root = e.run();
+
+            p.count("classes", n).count("non-zero", nonZero).count("kept", kept.length);
+            if (stats != null) {
+                stats.classes = n;
+                stats.nonZeroPairs = nonZero;
+                stats.keptPairs = kept.length;
+                stats.exactPairs = (long) n * (n - 1) / 2;
+                stats.exactBytes = stats.exactPairs * 8 * (linkage == Linkage.AVERAGE ? 2 : 1);
+                // par paire : deux entrées de HashMap (~48 o) + une cellule partagée (~48 o) + candidats (~40 o) ;
+                // par cluster : HashMap et tableaux d'état (~100 o)
+                stats.approxBytes = (long) kept.length * (2 * 48 + 48 + 40) + (long) n * 100;
+                stats.nanos = System.nanoTime() - t0;
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Paires (i < j) empaquetées (i << 32 | j), triées : pour chaque classe, ses k voisins de plus fort
+     * couplage (à égalité, le plus petit indice). nonZero[0] reçoit le nombre de cases non nulles vues.
+     */
+    private static long[] nearestNeighbors(CouplingMatrix matrix, int[] leafOfId, int n, int k, long[] nonZero) {
+        // voisinages en CSR
+        int[] deg = new int[n];
+        matrix.forEachNonZero((a, b, w) -> {
+            int i = leafOfId[a], j = leafOfId[b];
+            if (i < 0 || j < 0 || i == j || !(w > 0)) return;
+            deg[i]++; deg[j]++; nonZero[0]++;
+        });
+        int[] off = new int[n + 1];
+        for (int i = 0; i < n; i++) off[i + 1] = off[i] + deg[i];
+        int[] fill = Arrays.copyOf(off, n);
+        int[] nbr = new int[off[n]];
+        float[] wt = new float[off[n]];
+        matrix.forEachNonZero((a, b, w) -> {
+            int i = leafOfId[a], j = leafOfId[b];
+            if (i < 0 || j < 0 || i == j || !(w > 0)) return;
+            nbr[fill[i]] = j; wt[fill[i]++] = w;
+            nbr[fill[j]] = i; wt[fill[j]++] = w;
+        });
+
+        long[] out = new long[16];
+        int size = 0;
+        long[] row = new long[16];
+        for (int i = 0; i < n; i++) {
+            int d = off[i + 1] - off[i];
+            if (d == 0) continue;
+            if (row.length < d) row = new long[Math.max(d, row.length * 2)];
+            // poids positifs : l'ordre des bits de float est celui des valeurs ; clé croissante = poids décroissant
+            for (int s = 0; s < d; s++) {
+                row[s] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(wt[off[i] + s])) << 32) | nbr[off[i] + s];
+            }
+            int take = d;
+            if (k > 0 && d > k) {
+                Arrays.sort(row, 0, d);
+                take = k;
+            }
+            if (out.length < size + take) out = Arrays.copyOf(out, Math.max(size + take, out.length * 2));
+            for (int s = 0; s < take; s++) {
+                int j = (int) row[s];
+                out[size++] = pairKey(i, j);
+            }
+        }
+        Arrays.sort(out, 0, size);
+        int w = 0;
+        for (int s = 0; s < size; s++) if (w == 0 || out[s] != out[w - 1]) out[w++] = out[s];
+        return Arrays.copyOf(out, w);
+    }
+
+    private static long pairKey(int i, int j) {
+        if (i > j) { int t = i; i = j; j = t; }
+        return ((long) i << 32) | (j & 0xFFFFFFFFL);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /** Paires de feuilles reliées entre deux clusters (partagée par les deux voisinages). */
+    private static final class Cell {
+        double sum, min = Double.MAX_VALUE, max;
+        long count;
+        double queued = Double.NaN;   // similarité de la dernière entrée mise en file pour cette paire
+
+        void add(double w) {
+            sum += w; count++;
+            if (w < min) min = w;
+            if (w > max) max = w;
+        }
+
+        void absorb(Cell c) {
+            sum += c.sum; count += c.count;
+            if (c.min < min) min = c.min;
+            if (c.max > max) max = c.max;
+        }
+    }
+
+    private static final class Candidate {
+        final double sim;
+        final int a, b;   // a < b
+        Candidate(double sim, int x, int y) { this.sim = sim; this.a = Math.min(x, y); this.b = Math.max(x, y); }
+    }
+
+    /** Lance-Williams creux : les clusters occupent le slot d'une de leurs feuilles. */
+    private static final class Engine {
+        final int n;
+        final Linkage linkage;
+        final List<HashMap<Integer, Cell>> adj;
+        final int[] size;
+        final long[] seq;          // rang dans la liste (feuilles 0..n-1, fusions à la suite) : fils gauche = le plus ancien
+        final boolean[] active;
+        final Node[] node;
+        long nextSeq;
+        final PriorityQueue<Candidate> queue = new PriorityQueue<>((p, q) -> {
+            int c = Double.compare(q.sim, p.sim);
+            if (c != 0) return c;
+            c = Integer.compare(p.a, q.a);
+            return c != 0 ? c : Integer.compare(p.b, q.b);
+        });
+
+        Engine(List<ClassInfo> classes, Linkage linkage) {
+            this.n = classes.size();
+            this.linkage = linkage;
+            this.adj = new ArrayList<>(n);
+            this.size = new int[n];
+            this.seq = new long[n];
+            this.active = new boolean[n];
+            this.node = new Node[n];
+            for (int i = 0; i < n; i++) {
+                adj.add(new HashMap<>());
+                node[i] = Node.leaf(classes.get(i));
+                size[i] = 1;
+                seq[i] = i;
+                active[i] = true;
+            }
+            nextSeq = n;
+        }
+
+        void link(int i, int j, double w) {
+            w = w < 0 ? 0 : (w > 1 ? 1 : w);
+            Cell c = new Cell();
+            c.add(w);
+            adj.get(i).put(j, c);
+            adj.get(j).put(i, c);
+        }
+
+        /** Similarité courante selon la liaison (paires non reliées = 0). */
+        double similarity(int x, int y, Cell c) {
+            switch (linkage) {
+                case SINGLE:   return c.max;
+                case COMPLETE: return c.count == (long) size[x] * size[y] ? c.min : 0.0;
+                default:       return c.sum / ((double) size[x] * size[y]);
+            }
+        }
+
+        Node run() {
+            for (int i = 0; i < n; i++) {
+                for (Map.Entry<Integer, Cell> en : adj.get(i).entrySet()) {
+                    int j = en.getKey();
+                    if (i < j) offer(i, j, en.getValue());
+                }
+            }
+            // Les similarités ne font que baisser, sauf pour les voisins fusionnés (remis dans la file) :
+            // une entrée supplantée par une plus récente de la même paire est jetée ; la dernière, si elle est
+            // périmée, est recalculée et remise ; celle qui est à jour est bien la plus forte.
+            while (!queue.isEmpty()) {
+                Candidate c = queue.poll();
+                if (!active[c.a] || !active[c.b]) continue;
+                Cell cell = adj.get(c.a).get(c.b);
+                if (cell == null || c.sim != cell.queued) continue;
+                double s = similarity(c.a, c.b, cell);
+                if (s != c.sim) {
+                    offer(c.a, c.b, cell);
+                    continue;
+                }
+                merge(c.a, c.b, s);
+            }
+
+            // clusters sans voisin : réunis deux à deux dans l'ordre de la liste, le résultat passant en fin
+            ArrayDeque<Integer> rest = new ArrayDeque<>();
+            Integer[] order = new Integer[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) if (active[i]) order[m++] = i;
+            Arrays.sort(order, 0, m, Comparator.comparingLong(i -> seq[i]));
+            for (int i = 0; i < m; i++) rest.add(order[i]);
+            while (rest.size() > 1) {
+                int a = rest.poll(), b = rest.poll();
+                node[a] = Node.merge(node[a], node[b], 1.0);
+                node[b] = null;
+                rest.add(a);
+            }
+            return node[rest.poll()];
+        }
+
+        private void offer(int x, int y, Cell c) {
+            double s = similarity(x, y, c);
+            c.queued = s;
+            if (s > 0) queue.add(new Candidate(s, x, y));
+        }
+
+        /** Fusion : le cluster au plus grand voisinage garde son slot, l'autre y verse ses voisins. */
+        private void merge(int a, int b, double sim) {
+            int left = seq[a] < seq[b] ? a : b, right = (left == a) ? b : a;
+            Node merged = Node.merge(node[left], node[right], 1.0 - (sim < 0 ? 0 : (sim > 1 ? 1 : sim)));
+
+            int keep = adj.get(a).size() >= adj.get(b).size() ? a : b, gone = (keep == a) ? b : a;
+            HashMap<Integer, Cell> big = adj.get(keep), small = adj.get(gone);
+            big.remove(gone);
+            small.remove(keep);
+            size[keep] += size[gone];
+            List<Integer> touched = new ArrayList<>(small.size());
+            for (Map.Entry<Integer, Cell> en : small.entrySet()) {
+                int x = en.getKey();
+                HashMap<Integer, Cell> ax = adj.get(x);
+                ax.remove(gone);
+                Cell d = big.get(x);
+                if (d == null) {
+                    big.put(x, en.getValue());
+                    ax.put(keep, en.getValue());
+                } else {
+                    d.absorb(en.getValue());
+                }
+                touched.add(x);
+            }
+            adj.set(gone, null);
+            active[gone] = false;
+            node[gone] = null;
+            node[keep] = merged;
+            seq[keep] = nextSeq++;
+            // seuls les voisins venus de gone peuvent avoir gagné en similarité
+            for (int x : touched) offer(keep, x, big.get(x));
+        }
+    }
+}
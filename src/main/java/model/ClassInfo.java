@@ -1,15 +1,19 @@
 package model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ClassInfo {
+public class ClassInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String packageName;
     public String className;
     public String qualifiedName;      // si binding résolu
     public String typeKey;            // ITypeBinding#getKey(), pivot de la classe
     public boolean isInterface;
     public boolean isEnum;
+    public boolean isAbstract;
 
     public String superClass;               // FQN directe
     public List<String> superClassesChain = new ArrayList<>(); // jusqu’à Object
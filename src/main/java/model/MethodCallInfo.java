@@ -1,11 +1,16 @@
 package model;
 
-public class MethodCallInfo {
+import java.io.Serializable;
+
+public class MethodCallInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String name;                 // nom simple ou "<init>"
     public String declaringType;        // FQN du type déclarant la méthode appelée
     public String qualifiedSignature;   // Owner.m(T1,T2)->R (vide R pour ctor)
     public String receiverStaticType;   // *** demandé : type statique du récepteur ***
     public String methodKey;
+    public boolean nonVirtual;          // super.m(), méthode private ou final : pas de dispatch
 
     @Override
     public String toString() {
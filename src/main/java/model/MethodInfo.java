@@ -1,9 +1,12 @@
 package model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MethodInfo {
+public class MethodInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String name;
     public String visibility;
     public String returnType;
@@ -15,6 +18,8 @@ public class MethodInfo {
 
     public List<MethodCallInfo> calls = new ArrayList<>();
 
+    public boolean isAbstract;          // sans corps (abstraite ou méthode d'interface non default)
+
     public int loc;
     public int parametersCount;
 
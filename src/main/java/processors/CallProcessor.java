@@ -1,11 +1,13 @@
 package processors;
 
 import model.MethodCallInfo;
-import model.MethodInfo;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.CtConstructorCall;
 import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtSuperAccess;
 import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 
@@ -14,27 +16,43 @@ public class CallProcessor extends AbstractProcessor<CtInvocation<?>> {
     public CallProcessor(ModelRepo repo) { this.repo = repo; }
 
     @Override public void process(CtInvocation<?> inv) {
+        MethodCallInfo call = build(repo, inv);
+
+        CtExecutable<?> parent = inv.getParent(CtExecutable.class);
+        if (parent != null && parent.getReference() != null) {
+            repo.attachCall(parent.getReference().toString(), call);
+        }
+    }
+
+    /** Appel décrit par une invocation ; partagé avec ModelScanner. */
+    static MethodCallInfo build(ModelRepo repo, CtInvocation<?> inv) {
         CtExecutableReference<?> ref = inv.getExecutable();
 
         MethodCallInfo call = new MethodCallInfo();
-        call.name = (ref != null) ? ref.getSimpleName() : null;
+        call.name = (ref != null) ? repo.intern(ref.getSimpleName()) : null;
 
         CtTypeReference<?> decl = (ref != null) ? ref.getDeclaringType() : null;
-        call.declaringType = decl != null ? decl.getQualifiedName() : null;
+        call.declaringType = decl != null ? repo.intern(decl.getQualifiedName()) : null;
 
         call.receiverStaticType =
                 (inv.getTarget() != null && inv.getTarget().getType() != null)
-                        ? inv.getTarget().getType().getQualifiedName()
+                        ? repo.intern(inv.getTarget().getType().getQualifiedName())
                         : call.declaringType;
 
-        call.methodKey = (ref != null) ? ref.toString() : null;
+        call.methodKey = (ref != null) ? repo.intern(ref.toString()) : null;
         call.qualifiedSignature = call.methodKey;
+        call.nonVirtual = isNonVirtual(inv, ref);
+        return call;
+    }
 
-        CtExecutable<?> parent = inv.getParent(CtExecutable.class);
-        if (parent != null && parent.getReference() != null) {
-            MethodInfo where = repo.methodsByKey.get(parent.getReference().toString());
-            if (where != null) where.calls.add(call);
-        }
+    /** super.m(), ou méthode private / final du projet : la cible est la déclaration elle-même. */
+    static boolean isNonVirtual(CtInvocation<?> inv, CtExecutableReference<?> ref) {
+        if (inv.getTarget() instanceof CtSuperAccess) return true;
+        if (ref == null || ref.isStatic() || ref.isConstructor()) return false;
+        CtExecutable<?> decl = ref.getDeclaration(); // null hors des sources analysées
+        if (!(decl instanceof CtModifiable)) return false;
+        CtModifiable m = (CtModifiable) decl;
+        return m.hasModifier(ModifierKind.PRIVATE) || m.hasModifier(ModifierKind.FINAL);
     }
 
     @Override public void processingDone() {
@@ -45,23 +63,28 @@ public class CallProcessor extends AbstractProcessor<CtInvocation<?>> {
         public CtorCallProcessor(ModelRepo repo) { this.repo = repo; }
 
         @Override public void process(CtConstructorCall<?> cc) {
+            MethodCallInfo call = build(repo, cc);
+
+            CtExecutable<?> parent = cc.getParent(CtExecutable.class);
+            if (parent != null && parent.getReference() != null) {
+                repo.attachCtorCall(parent.getReference().toString(), call);
+            }
+        }
+
+        /** Appel de constructeur (new X(..)) ; partagé avec ModelScanner. */
+        static MethodCallInfo build(ModelRepo repo, CtConstructorCall<?> cc) {
             MethodCallInfo call = new MethodCallInfo();
             call.name = "<init>";
 
             CtExecutableReference<?> ref = cc.getExecutable();
             CtTypeReference<?> decl = (ref != null ? ref.getDeclaringType() : cc.getType());
 
-            call.declaringType = decl != null ? decl.getQualifiedName() : null;
+            call.declaringType = decl != null ? repo.intern(decl.getQualifiedName()) : null;
             call.receiverStaticType = call.declaringType;
-            call.methodKey = (ref != null) ? ref.toString() : null;
-            call.qualifiedSignature = (ref != null) ? ref.toString()
-                    : (decl != null ? decl.getQualifiedName() + ".<init>(?)" : "<init>(?)");
-
-            CtExecutable<?> parent = cc.getParent(CtExecutable.class);
-            if (parent != null && parent.getReference() != null) {
-                MethodInfo where = repo.methodsByKey.get(parent.getReference().toString());
-                if (where != null) where.calls.add(call);
-            }
+            call.methodKey = (ref != null) ? repo.intern(ref.toString()) : null;
+            call.qualifiedSignature = (ref != null) ? call.methodKey
+                    : repo.intern(decl != null ? call.declaringType + ".<init>(?)" : "<init>(?)");
+            return call;
         }
     }
 }
@@ -1,5 +1,6 @@
 package processors;
 
+import model.ClassInfo;
 import model.MethodInfo;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.declaration.CtConstructor;
@@ -16,10 +17,15 @@ public class CtorProcessor extends AbstractProcessor<CtConstructor<?>> {
     @Override public void process(CtConstructor<?> k) {
         var type = k.getDeclaringType();
         if (type == null || !SpoonUtil.isTopLevel(type)) return;
-        var ci = repo.ensureClass(type.getQualifiedName(),
-                type.getPackage() != null ? type.getPackage().getQualifiedName() : "",
-                type.getSimpleName());
+        var ci = SpoonUtil.ensureClass(repo, type);
 
+        MethodInfo mi = build(repo, ci, k);
+        ci.methods.add(mi);
+        repo.registerMethod(mi);
+    }
+
+    /** MethodInfo "<init>" d'un constructeur de ci (sans l'ajouter ni l'enregistrer) ; partagé avec ModelScanner. */
+    static MethodInfo build(ModelRepo repo, ClassInfo ci, CtConstructor<?> k) {
         MethodInfo mi = new MethodInfo();
         mi.name = "<init>";
         mi.declaringType = ci.qualifiedName;
@@ -29,18 +35,16 @@ public class CtorProcessor extends AbstractProcessor<CtConstructor<?>> {
         mi.parameterTypes = new ArrayList<>();
         for (CtParameter<?> p : k.getParameters()) {
             CtTypeReference<?> tr = p.getType();
-            mi.parameterTypes.add(tr != null ? tr.getQualifiedName() : "?");
+            mi.parameterTypes.add(tr != null ? repo.intern(tr.getQualifiedName()) : "?");
         }
         mi.parametersCount = mi.parameterTypes.size();
         mi.loc = SpoonUtil.safeLOC(k);
         mi.calls = new ArrayList<>();
 
         CtExecutableReference<?> ref = k.getReference();
-        mi.methodKey = (ref != null) ? ref.toString()
-                : ci.qualifiedName + "#<init>(" + String.join(",", mi.parameterTypes) + ")";
+        mi.methodKey = repo.intern((ref != null) ? ref.toString()
+                : ci.qualifiedName + "#<init>(" + String.join(",", mi.parameterTypes) + ")");
         mi.qualifiedSignature = mi.methodKey;
-
-        ci.methods.add(mi);
-        repo.methodsByKey.put(mi.methodKey, mi);
+        return mi;
     }
 }
@@ -11,14 +11,14 @@ public class FieldProcessor extends AbstractProcessor<CtField<?>> {
     @Override public void process(CtField<?> f) {
         var type = f.getDeclaringType();
         if (type == null || !SpoonUtil.isTopLevel(type)) return;
-        var ci = repo.ensureClass(type.getQualifiedName(),
-                type.getPackage() != null ? type.getPackage().getQualifiedName() : "",
-                type.getSimpleName());
+        var ci = SpoonUtil.ensureClass(repo, type);
+        ci.fields.add(build(repo, f));
+    }
 
+    static FieldInfo build(ModelRepo repo, CtField<?> f) {
         FieldInfo fi = new FieldInfo();
-        fi.name = f.getSimpleName();
+        fi.name = repo.intern(f.getSimpleName());
         fi.visibility = SpoonUtil.visibilityOf(f.getVisibility());
-
-        ci.fields.add(fi);
+        return fi;
     }
 }
@@ -1,5 +1,6 @@
 package processors;
 
+import model.ClassInfo;
 import model.MethodInfo;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.declaration.CtMethod;
@@ -16,31 +17,35 @@ public class MethodProcessor extends AbstractProcessor<CtMethod<?>> {
     @Override public void process(CtMethod<?> m) {
         var type = m.getDeclaringType();
         if (type == null || !SpoonUtil.isTopLevel(type)) return;
-        var ci = repo.ensureClass(type.getQualifiedName(),
-                type.getPackage() != null ? type.getPackage().getQualifiedName() : "",
-                type.getSimpleName());
+        var ci = SpoonUtil.ensureClass(repo, type);
 
+        MethodInfo mi = build(repo, ci, m);
+        ci.methods.add(mi);
+        repo.registerMethod(mi);
+    }
+
+    /** MethodInfo d'une méthode de ci (sans l'ajouter ni l'enregistrer) ; partagé avec ModelScanner. */
+    static MethodInfo build(ModelRepo repo, ClassInfo ci, CtMethod<?> m) {
         MethodInfo mi = new MethodInfo();
-        mi.name = m.getSimpleName();
+        mi.name = repo.intern(m.getSimpleName());
         mi.declaringType = ci.qualifiedName;
-        mi.returnType = m.getType() != null ? m.getType().getQualifiedName() : "void";
+        mi.returnType = m.getType() != null ? repo.intern(m.getType().getQualifiedName()) : "void";
         mi.visibility = SpoonUtil.visibilityOf(m.getVisibility());
 
         mi.parameterTypes = new ArrayList<>();
         for (CtParameter<?> p : m.getParameters()) {
             CtTypeReference<?> tr = p.getType();
-            mi.parameterTypes.add(tr != null ? tr.getQualifiedName() : "?");
+            mi.parameterTypes.add(tr != null ? repo.intern(tr.getQualifiedName()) : "?");
         }
         mi.parametersCount = mi.parameterTypes.size();
         mi.loc = SpoonUtil.safeLOC(m);
+        mi.isAbstract = m.getBody() == null && !m.isNative();
         mi.calls = new ArrayList<>();
 
         CtExecutableReference<?> ref = m.getReference();
-        mi.methodKey = (ref != null) ? ref.toString()
-                : ci.qualifiedName + "#" + mi.name + "(" + String.join(",", mi.parameterTypes) + ")";
+        mi.methodKey = repo.intern((ref != null) ? ref.toString()
+                : ci.qualifiedName + "#" + mi.name + "(" + String.join(",", mi.parameterTypes) + ")");
         mi.qualifiedSignature = mi.methodKey;
-
-        ci.methods.add(mi);
-        repo.methodsByKey.put(mi.methodKey, mi);
+        return mi;
     }
 }
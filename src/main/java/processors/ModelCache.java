@@ -0,0 +1,305 @@
+package processors;
+
+import model.ClassInfo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache disque du modèle extrait, une entrée par fichier source.
+ * Clé = SHA-256(contenu du fichier + niveau de conformité + version du format).
+ *
+ * L'extraction d'un fichier dépend aussi des autres (types déclarants et récepteurs résolus par Spoon) :
+ * chaque entrée retient les fichiers du projet dont elle dépend, transitivement, avec leur clé, ainsi que
+ * les types que le fichier référence et les fichiers qui pouvaient les déclarer (cf. SourceIndex) : un
+ * fichier ajouté peut résoudre un type jusque-là inconnu. Une entrée n'est servie que si tout cela est
+ * inchangé (cf. Project).
+ *
+ * Les entrées sont évincées par ordre LRU dès que la taille totale dépasse maxBytes,
+ * et l'ancienne entrée d'un fichier est supprimée dès qu'une nouvelle version est enregistrée.
+ */
+public final class ModelCache {
+
+    /** À incrémenter si le contenu de ClassInfo/MethodInfo/... change (invalide tout le cache). */
+    private static final int FORMAT_VERSION = 5;
+    private static final String INDEX = "index.tsv";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final int complianceLevel;
+
+    // clé -> entrée, en ordre d'accès (la plus ancienne en tête)
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> keyByPath = new HashMap<>();
+    // dépendances des entrées lues pendant cette analyse, même invalidées (cf. recordedDependencies)
+    private final Map<String, Set<File>> depsByPath = new HashMap<>();
+    private long totalBytes;
+
+    private int hits, misses, evictions, invalidations;
+
+    private static final class Entry {
+        final String key;
+        final String path;
+        final long size;
+        long lastAccess;
+        Entry(String key, String path, long size, long lastAccess) {
+            this.key = key; this.path = path; this.size = size; this.lastAccess = lastAccess;
+        }
+    }
+
+    public ModelCache(Path dir, long maxBytes, int complianceLevel) throws IOException {
+        this.dir = Objects.requireNonNull(dir, "dir");
+        this.maxBytes = maxBytes;
+        this.complianceLevel = complianceLevel;
+        Files.createDirectories(dir);
+        loadIndex();
+    }
+
+    /** État courant des sources d'un projet : clé de chaque fichier et index des types déclarés. */
+    public static final class Project {
+        private final Map<String, String> keyByPath = new HashMap<>();
+        private final SourceIndex index;
+
+        private Project(SourceIndex index) { this.index = index; }
+
+        /** Clé courante du fichier (null s'il ne fait pas partie du projet). */
+        public String keyOf(File source) { return keyByPath.get(source.getAbsolutePath()); }
+
+        public SourceIndex index() { return index; }
+
+        /** Fichiers du projet pouvant déclarer les types désignés par refs, en chemins absolus triés. */
+        private ArrayList<String> candidates(Collection<String> refs) {
+            ArrayList<String> out = new ArrayList<>();
+            for (File f : index.filesFor(refs)) if (index.contains(f)) out.add(f.getAbsolutePath());
+            Collections.sort(out);
+            return out;
+        }
+    }
+
+    /** Contenu d'un fichier d'entrée : classes extraites et dépendances au moment de l'extraction. */
+    private static final class Stored implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final LinkedHashMap<String, String> deps;   // chemin absolu -> clé
+        final HashSet<String> refs;                 // clés de SourceIndex.references
+        final ArrayList<String> candidates;         // Project.candidates(refs) à l'extraction
+        final ArrayList<ClassInfo> classes;
+        Stored(LinkedHashMap<String, String> deps, HashSet<String> refs, ArrayList<String> candidates,
+               ArrayList<ClassInfo> classes) {
+            this.deps = deps; this.refs = refs; this.candidates = candidates; this.classes = classes;
+        }
+    }
+
+    /** Hache et indexe chaque fichier source du projet (à faire une fois par analyse, avant get/put). */
+    public Project project(Collection<File> sources) throws IOException {
+        Project p = new Project(new SourceIndex(sources));
+        for (File f : sources) p.keyByPath.put(f.getAbsolutePath(), keyOf(f));
+        return p;
+    }
+
+    /** Clé de cache d'un fichier source (contenu + niveau de conformité). */
+    public String keyOf(File source) throws IOException {
+        MessageDigest md = sha256();
+        md.update(Files.readAllBytes(source.toPath()));
+        md.update(("|" + complianceLevel + "|" + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * Classes extraites de ce fichier lors d'une analyse précédente, ou null (miss) : fichier modifié,
+     * ou l'un des fichiers dont il dépend modifié / supprimé, ou fichier ajouté / retiré pouvant déclarer
+     * un type qu'il référence.
+     */
+    public List<ClassInfo> get(Project project, File source) {
+        String key = project.keyOf(source);
+        Entry e = key == null ? null : index.get(key);
+        if (e == null) { misses++; return null; }
+        try {
+            Stored stored = read(key);
+            depsByPath.put(e.path, files(stored.deps));
+            if (!depsUnchanged(stored.deps, project) || !stored.candidates.equals(project.candidates(stored.refs))) {
+                remove(e);            // une dépendance a changé : réextraction
+                invalidations++;
+                misses++;
+                return null;
+            }
+            e.lastAccess = System.currentTimeMillis();
+            hits++;
+            return stored.classes;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            // entrée illisible (format changé, fichier tronqué...) : on la jette
+            remove(e);
+            invalidations++;
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Fichiers dont dépendait la dernière extraction enregistrée de source (vide si inconnue), même si
+     * l'entrée vient d'être invalidée ou si source a changé depuis : point de départ de ce qu'il faut
+     * reparser avec lui.
+     */
+    public Set<File> recordedDependencies(File source) {
+        String path = source.getAbsolutePath();
+        Set<File> seen = depsByPath.get(path);
+        if (seen != null) return seen;
+        String key = keyByPath.get(path);
+        if (key == null || !index.containsKey(key)) return Set.of();
+        try {
+            return files(read(key).deps);
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            return Set.of();
+        }
+    }
+
+    /**
+     * Enregistre les classes extraites d'un fichier, les fichiers du projet dont l'extraction dépend et les
+     * types qu'il référence (SourceIndex.references) ; remplace l'éventuelle version précédente du fichier.
+     */
+    public void put(Project project, File source, List<ClassInfo> classes, Collection<File> deps,
+                    Collection<String> refs) throws IOException {
+        String path = source.getAbsolutePath();
+        String key = project.keyOf(source);
+        if (key == null) throw new IllegalArgumentException("Fichier hors du projet : " + source);
+        LinkedHashMap<String, String> depKeys = new LinkedHashMap<>();
+        for (File d : deps) {
+            String k = project.keyOf(d);
+            if (k != null) depKeys.put(d.getAbsolutePath(), k);
+        }
+        String oldKey = keyByPath.get(path);
+        if (oldKey != null && !oldKey.equals(key) && index.containsKey(oldKey)) {
+            remove(index.get(oldKey));
+            invalidations++;
+        }
+
+        Path f = entryFile(key);
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(f)))) {
+            out.writeObject(new Stored(depKeys, new HashSet<>(refs), project.candidates(refs), new ArrayList<>(classes)));
+        }
+        Entry prev = index.remove(key);
+        if (prev != null) totalBytes -= prev.size;
+        Entry e = new Entry(key, path, Files.size(f), System.currentTimeMillis());
+        index.put(key, e);
+        keyByPath.put(path, key);
+        totalBytes += e.size;
+        evictOverflow();
+    }
+
+    /** Supprime toutes les entrées. */
+    public void clear() throws IOException {
+        for (Entry e : new ArrayList<>(index.values())) remove(e);
+        saveIndex();
+    }
+
+    /** Persiste l'index (à appeler en fin d'analyse). */
+    public void flush() throws IOException {
+        evictOverflow();
+        saveIndex();
+    }
+
+    public int hits() { return hits; }
+    public int misses() { return misses; }
+    public int evictions() { return evictions; }
+    public int invalidations() { return invalidations; }
+    public long sizeBytes() { return totalBytes; }
+    public int entryCount() { return index.size(); }
+
+    /** Rapport succinct hits/misses pour la dernière analyse. */
+    public String report() {
+        int total = hits + misses;
+        double rate = total == 0 ? 0.0 : 100.0 * hits / total;
+        return String.format(Locale.ROOT,
+                "cache: %d hits, %d misses (%.1f%%), %d evictions, %d invalidations, %d entries, %d/%d bytes",
+                hits, misses, rate, evictions, invalidations, index.size(), totalBytes, maxBytes);
+    }
+
+    // --- helpers ---
+
+    private Path entryFile(String key) { return dir.resolve(key + ".bin"); }
+
+    private Stored read(String key) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(entryFile(key))))) {
+            return (Stored) in.readObject();
+        }
+    }
+
+    private static Set<File> files(Map<String, String> deps) {
+        Set<File> out = new LinkedHashSet<>();
+        for (String path : deps.keySet()) out.add(new File(path));
+        return out;
+    }
+
+    private static boolean depsUnchanged(Map<String, String> deps, Project project) {
+        for (Map.Entry<String, String> d : deps.entrySet()) {
+            if (!d.getValue().equals(project.keyByPath.get(d.getKey()))) return false;
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = index.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry e = it.next();
+            it.remove();
+            keyByPath.remove(e.path, e.key);
+            totalBytes -= e.size;
+            deleteQuietly(entryFile(e.key));
+            evictions++;
+        }
+    }
+
+    private void remove(Entry e) {
+        if (index.remove(e.key) != null) totalBytes -= e.size;
+        keyByPath.remove(e.path, e.key);
+        deleteQuietly(entryFile(e.key));
+    }
+
+    private static void deleteQuietly(Path p) {
+        try { Files.deleteIfExists(p); } catch (IOException ignored) {}
+    }
+
+    private void loadIndex() throws IOException {
+        Path f = dir.resolve(INDEX);
+        if (!Files.exists(f)) return;
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length < 4) continue;
+            try {
+                Entry e = new Entry(parts[0], parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                if (Files.exists(entryFile(e.key))) entries.add(e);
+            } catch (NumberFormatException ignored) {}
+        }
+        entries.sort(Comparator.comparingLong(e -> e.lastAccess));
+        for (Entry e : entries) {
+            index.put(e.key, e);
+            keyByPath.put(e.path, e.key);
+            totalBytes += e.size;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Path tmp = dir.resolve(INDEX + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Entry e : index.values()) {
+                w.write(e.key + "\t" + e.size + "\t" + e.lastAccess + "\t" + e.path);
+                w.newLine();
+            }
+        }
+        Files.move(tmp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -1,28 +1,196 @@
 package processors;
 
 import model.ClassInfo;
+import model.MethodCallInfo;
 import model.MethodInfo;
 
+import java.io.File;
 import java.util.*;
 
 public class ModelRepo {
     public final Map<String, ClassInfo> classesByFqn = new LinkedHashMap<>();
     public final Map<String, MethodInfo> methodsByKey = new HashMap<>();
+    public final Map<String, File> sourceFileByFqn = new HashMap<>();
+    /** Types référencés par chaque fichier source (clés de SourceIndex.references) : cf. SpoonAnalyzer.reanalyze. */
+    public final Map<File, Set<String>> referencesByFile = new HashMap<>();
+    /** Chaînes du modèle (types, clés, signatures), partagées ; cf. intern. */
+    public final StringPool strings;
+
+    // Mode différé (analyse par fragments) : les méthodes et appels sont journalisés
+    // puis rejoués dans l'ordre global au moment de la fusion (cf. merge).
+    private final boolean deferred;
+    private final List<MethodInfo> registered = new ArrayList<>();
+    private final List<PendingCall> pendingCalls = new ArrayList<>();
+    private final List<PendingCall> pendingCtorCalls = new ArrayList<>();
+
+    public ModelRepo() { this(false); }
+
+    public ModelRepo(boolean deferred) { this(deferred, new StringPool()); }
+
+    /** strings peut être partagée entre plusieurs dépôts (fragments, ré-analyse incrémentale). */
+    public ModelRepo(boolean deferred, StringPool strings) {
+        this.deferred = deferred;
+        this.strings = Objects.requireNonNull(strings, "strings");
+    }
+
+    /** Exemplaire partagé de s : à utiliser pour toute chaîne retenue dans le modèle. */
+    public String intern(String s) { return strings.intern(s); }
 
     public List<ClassInfo> asList() {
         return new ArrayList<>(classesByFqn.values());
     }
 
     public ClassInfo ensureClass(String fqn, String pkg, String simpleName) {
-        return classesByFqn.computeIfAbsent(fqn, q -> {
+        ClassInfo known = classesByFqn.get(fqn);
+        if (known != null) return known;
+        return classesByFqn.computeIfAbsent(intern(fqn), q -> {
             ClassInfo ci = new ClassInfo();
             ci.qualifiedName = q;
-            ci.packageName   = pkg != null ? pkg : "";
-            ci.className     = simpleName != null ? simpleName : q;
+            ci.packageName   = pkg != null ? intern(pkg) : "";
+            ci.className     = simpleName != null ? intern(simpleName) : q;
             ci.superClassesChain = new ArrayList<>();
             ci.fields  = new ArrayList<>();
             ci.methods = new ArrayList<>();
             return ci;
         });
     }
+
+    public void registerMethod(MethodInfo mi) {
+        methodsByKey.put(mi.methodKey, mi);
+        if (deferred) registered.add(mi);
+    }
+
+    /** Rattache un appel de méthode à la méthode englobante (clé de l'exécutable parent). */
+    public void attachCall(String parentKey, MethodCallInfo call) {
+        if (deferred) { pendingCalls.add(new PendingCall(intern(parentKey), call)); return; }
+        attach(parentKey, call);
+    }
+
+    /** Rattache un appel de constructeur (new X(..)) à la méthode englobante. */
+    public void attachCtorCall(String parentKey, MethodCallInfo call) {
+        if (deferred) { pendingCtorCalls.add(new PendingCall(intern(parentKey), call)); return; }
+        attach(parentKey, call);
+    }
+
+    private void attach(String parentKey, MethodCallInfo call) {
+        MethodInfo where = methodsByKey.get(parentKey);
+        if (where != null) where.calls.add(call);
+    }
+
+    /** Résultat d'une ré-analyse incrémentale : classes disparues et classes (ré)extraites. */
+    public static final class Delta {
+        public final List<String> removedFqns;
+        public final List<ClassInfo> upserted;
+
+        public Delta(List<String> removedFqns, List<ClassInfo> upserted) {
+            this.removedFqns = removedFqns;
+            this.upserted = upserted;
+        }
+    }
+
+    /**
+     * Remplace le contenu des fichiers changedFiles (ajoutés, modifiés, supprimés ou à réextraire) par les
+     * classes de fresh, extraites de ceux qui existent encore. Une classe ré-extraite garde sa position.
+     */
+    public Delta patch(Set<File> changedFiles, ModelRepo fresh) {
+        Set<File> changed = new HashSet<>();
+        for (File f : changedFiles) changed.add(normalize(f));
+
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, File> e : sourceFileByFqn.entrySet()) {
+            if (changed.contains(normalize(e.getValue()))) stale.add(e.getKey());
+        }
+
+        for (String fqn : stale) unregisterMethods(classesByFqn.get(fqn));
+        referencesByFile.keySet().removeIf(f -> changed.contains(normalize(f)));
+        referencesByFile.putAll(fresh.referencesByFile);
+        List<ClassInfo> upserted = new ArrayList<>();
+        for (ClassInfo ci : fresh.classesByFqn.values()) {
+            unregisterMethods(classesByFqn.get(ci.qualifiedName));
+            classesByFqn.put(ci.qualifiedName, ci);
+            for (MethodInfo mi : ci.methods) registerMethod(mi);
+            File src = fresh.sourceFileByFqn.get(ci.qualifiedName);
+            if (src != null) sourceFileByFqn.put(ci.qualifiedName, src);
+            upserted.add(ci);
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String fqn : stale) {
+            if (fresh.classesByFqn.containsKey(fqn)) continue;
+            classesByFqn.remove(fqn);
+            sourceFileByFqn.remove(fqn);
+            removed.add(fqn);
+        }
+        return new Delta(removed, upserted);
+    }
+
+    private void unregisterMethods(ClassInfo ci) {
+        if (ci == null) return;
+        for (MethodInfo mi : ci.methods) methodsByKey.remove(mi.methodKey, mi);
+    }
+
+    private static File normalize(File f) {
+        return f.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    /**
+     * Fusionne des dépôts construits en mode différé, dans l'ordre des fragments.
+     * Rejoue les enregistrements comme le ferait un unique Launcher (méthodes puis constructeurs,
+     * invocations puis instanciations) et range les classes dans l'ordre de parcours du modèle Spoon
+     * (cf. SPOON_ORDER ; dans un paquetage, ordre des fragments puis de leurs fichiers).
+     * Le dépôt fusionné reprend la table de chaînes du premier fragment (normalement commune à tous).
+     */
+    public static ModelRepo merge(List<ModelRepo> shards) {
+        ModelRepo out = shards.isEmpty() ? new ModelRepo() : new ModelRepo(false, shards.get(0).strings);
+
+        List<ClassInfo> all = new ArrayList<>();
+        Map<String, ClassInfo> byFqn = new HashMap<>();
+        for (ModelRepo shard : shards) {
+            for (ClassInfo ci : shard.classesByFqn.values()) {
+                ClassInfo prev = byFqn.putIfAbsent(ci.qualifiedName, ci);
+                File src = shard.sourceFileByFqn.get(ci.qualifiedName);
+                if (src != null) out.sourceFileByFqn.putIfAbsent(ci.qualifiedName, src);
+                if (prev == null) { all.add(ci); continue; }
+                // même type déclaré dans deux fragments : on cumule comme un seul Launcher
+                prev.superClassesChain.addAll(ci.superClassesChain);
+                prev.fields.addAll(ci.fields);
+                prev.methods.addAll(ci.methods);
+            }
+        }
+        all.sort(SPOON_ORDER);
+        for (ClassInfo ci : all) out.classesByFqn.put(ci.qualifiedName, ci);
+
+        for (ModelRepo shard : shards)
+            for (MethodInfo mi : shard.registered) if (!"<init>".equals(mi.name)) out.registerMethod(mi);
+        for (ModelRepo shard : shards)
+            for (MethodInfo mi : shard.registered) if ("<init>".equals(mi.name)) out.registerMethod(mi);
+
+        for (ModelRepo shard : shards)
+            for (PendingCall pc : shard.pendingCalls) out.attach(pc.parentKey, pc.call);
+        for (ModelRepo shard : shards)
+            for (PendingCall pc : shard.pendingCtorCalls) out.attach(pc.parentKey, pc.call);
+
+        return out;
+    }
+
+    /**
+     * Ordre de parcours d'un CtModel entre paquetages : sous-paquetages d'abord. Dans un paquetage, Spoon suit
+     * l'ordre des fichiers puis des déclarations (pas celui des noms) : le tri, stable, garde l'ordre d'arrivée.
+     */
+    public static final Comparator<ClassInfo> SPOON_ORDER = (a, b) -> {
+        String[] pa = a.packageName.isEmpty() ? new String[0] : a.packageName.split("\\.");
+        String[] pb = b.packageName.isEmpty() ? new String[0] : b.packageName.split("\\.");
+        int n = Math.min(pa.length, pb.length);
+        for (int i = 0; i < n; i++) {
+            int c = pa[i].compareTo(pb[i]);
+            if (c != 0) return c;
+        }
+        return Integer.compare(pb.length, pa.length); // descendant avant ancêtre
+    };
+
+    private static final class PendingCall {
+        final String parentKey;
+        final MethodCallInfo call;
+        PendingCall(String parentKey, MethodCallInfo call) { this.parentKey = parentKey; this.call = call; }
+    }
 }
@@ -0,0 +1,177 @@
+package processors;
+
+import model.ClassInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtConstructorCall;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.*;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.*;
+
+/**
+ * Extraction en un seul parcours du modèle Spoon, à la place des six processeurs (un parcours chacun).
+ * Une pile des exécutables englobants suit la descente : un appel est rattaché directement à la MethodInfo
+ * de la méthode (ou du constructeur) de premier niveau qui le contient, sans remonter les parents ni
+ * chercher la clé dans methodsByKey. Les clés Spoon ne contenant pas le propriétaire ("m()"), cette
+ * recherche rattachait les appels de deux méthodes homonymes à la même MethodInfo.
+ *
+ * Le contenu produit suit l'ordre des processeurs (méthodes avant constructeurs, invocations avant
+ * instanciations, types annotation créés après les autres) : constructeurs et instanciations sont
+ * mis de côté pendant le parcours puis ajoutés par finish().
+ */
+public final class ModelScanner extends CtScanner {
+
+    private final ModelRepo repo;
+    private final IdentityHashMap<CtType<?>, ClassInfo> classes = new IdentityHashMap<>();
+
+    // pile des exécutables englobants ; null = exécutable hors modèle (lambda, bloc static, type imbriqué)
+    private MethodInfo[] stack = new MethodInfo[16];
+    private int depth;
+
+    // types de premier niveau hors TypeProcessor (annotations) : créés dans le dépôt à la fin
+    private final List<Late> late = new ArrayList<>();
+    private final Map<CtType<?>, Late> lateByType = new IdentityHashMap<>();
+
+    private final List<ClassInfo> ctorOwners = new ArrayList<>();
+    private final List<MethodInfo> ctors = new ArrayList<>();
+    private final List<MethodInfo> ctorCallers = new ArrayList<>();
+    private final List<MethodCallInfo> ctorCalls = new ArrayList<>();
+
+    private static final int FIELD_PHASE = 0, METHOD_PHASE = 1, CTOR_PHASE = 2;
+
+    private static final class Late {
+        final CtType<?> type;
+        final ClassInfo detached = new ClassInfo();
+        int phase;
+        Late(CtType<?> type, int phase) { this.type = type; this.phase = phase; }
+    }
+
+    public ModelScanner(ModelRepo repo) { this.repo = repo; }
+
+    /** Parcourt tout le modèle (à partir du paquetage racine, comme Launcher.process) et remplit repo. */
+    public static void extract(CtModel model, ModelRepo repo) {
+        ModelScanner s = new ModelScanner(repo);
+        s.scan(model.getRootPackage());
+        s.finish();
+    }
+
+    /** N'extrait que les types donnés (types de premier niveau d'un modèle construit sur tout le projet). */
+    public static void extract(Collection<? extends CtType<?>> types, ModelRepo repo) {
+        ModelScanner s = new ModelScanner(repo);
+        for (CtType<?> t : types) s.scan(t);
+        s.finish();
+    }
+
+    @Override
+    public void scan(CtElement e) {
+        if (e == null) return;
+        boolean executable = e instanceof CtExecutable;
+        MethodInfo current = null;
+
+        if (e instanceof CtInvocation || e instanceof CtConstructorCall) {
+            // post-ordre, comme les processeurs : les appels en argument avant l'appel qui les contient
+            super.scan(e);
+            MethodInfo where = top();
+            if (where == null) return;
+            if (e instanceof CtInvocation) {
+                where.calls.add(CallProcessor.build(repo, (CtInvocation<?>) e));
+            } else {
+                ctorCallers.add(where);
+                ctorCalls.add(CallProcessor.CtorCallProcessor.build(repo, (CtConstructorCall<?>) e));
+            }
+            return;
+        } else if (e instanceof CtMethod) {
+            CtMethod<?> m = (CtMethod<?>) e;
+            ClassInfo ci = classOf(m.getDeclaringType(), METHOD_PHASE);
+            if (ci != null) {
+                current = MethodProcessor.build(repo, ci, m);
+                ci.methods.add(current);
+                repo.registerMethod(current);
+            }
+        } else if (e instanceof CtConstructor) {
+            CtConstructor<?> k = (CtConstructor<?>) e;
+            ClassInfo ci = classOf(k.getDeclaringType(), CTOR_PHASE);
+            if (ci != null) {
+                current = CtorProcessor.build(repo, ci, k);
+                ctorOwners.add(ci);
+                ctors.add(current);
+            }
+        } else if (e instanceof CtField) {
+            CtField<?> f = (CtField<?>) e;
+            ClassInfo ci = classOf(f.getDeclaringType(), FIELD_PHASE);
+            if (ci != null) ci.fields.add(FieldProcessor.build(repo, f));
+        } else if (e instanceof CtType) {
+            CtType<?> t = (CtType<?>) e;
+            if (TypeProcessor.isModelType(t)) {
+                ClassInfo ci = SpoonUtil.ensureClass(repo, t);
+                classes.put(t, ci);
+                TypeProcessor.fill(repo, ci, t);
+            }
+        }
+
+        if (!executable) {
+            super.scan(e);
+            return;
+        }
+        push(current);
+        try {
+            super.scan(e);
+        } finally {
+            depth--;
+        }
+    }
+
+    /** Ajoute ce qui a été mis de côté, dans l'ordre où les processeurs l'auraient produit. */
+    public void finish() {
+        late.sort(Comparator.comparingInt(l -> l.phase)); // tri stable : ordre de parcours par phase
+        Map<ClassInfo, ClassInfo> real = new IdentityHashMap<>();
+        for (Late l : late) {
+            ClassInfo ci = SpoonUtil.ensureClass(repo, l.type);
+            ci.fields.addAll(l.detached.fields);
+            ci.methods.addAll(l.detached.methods);
+            real.put(l.detached, ci);
+        }
+        for (int i = 0; i < ctors.size(); i++) {
+            MethodInfo mi = ctors.get(i);
+            real.getOrDefault(ctorOwners.get(i), ctorOwners.get(i)).methods.add(mi);
+            repo.registerMethod(mi);
+        }
+        for (int i = 0; i < ctorCalls.size(); i++) ctorCallers.get(i).calls.add(ctorCalls.get(i));
+        late.clear();
+        lateByType.clear();
+        ctorOwners.clear();
+        ctors.clear();
+        ctorCallers.clear();
+        ctorCalls.clear();
+    }
+
+    // ClassInfo du type de premier niveau déclarant, ou null si le membre est ignoré (type imbriqué, anonyme...)
+    private ClassInfo classOf(CtType<?> type, int phase) {
+        if (type == null) return null;
+        ClassInfo ci = classes.get(type);
+        if (ci != null) return ci;
+        if (!SpoonUtil.isTopLevel(type)) return null;
+        // type de premier niveau non visité par TypeProcessor (annotation) : créé en fin de parcours
+        Late l = lateByType.get(type);
+        if (l == null) {
+            l = new Late(type, phase);
+            // mêmes noms que ceux que donnera ensureClass (MethodProcessor.build lit qualifiedName)
+            l.detached.qualifiedName = repo.intern(type.getQualifiedName());
+            late.add(l);
+            lateByType.put(type, l);
+        } else if (phase < l.phase) {
+            l.phase = phase;
+        }
+        return l.detached;
+    }
+
+    private MethodInfo top() { return depth == 0 ? null : stack[depth - 1]; }
+
+    private void push(MethodInfo mi) {
+        if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = mi;
+    }
+}
@@ -0,0 +1,427 @@
+package processors;
+
+import model.ClassInfo;
+import model.FieldInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Instantané binaire du modèle extrait (ClassInfo / MethodInfo / MethodCallInfo / FieldInfo) :
+ * analyser une fois avec Spoon, puis relancer métriques, graphes et clustering depuis le fichier.
+ *
+ * Format (gros-boutiste) :
+ *   en-tête   : magic, version, nb classes, nb chaînes, offsets (chaînes, enregistrements, index)
+ *   chaînes   : table d'offsets int[nb+1] puis octets UTF-8 ; chaque chaîne distincte n'apparaît qu'une fois
+ *   classes   : un enregistrement par classe ; chaînes = identifiants varint (0 = null), listes = taille+1 (0 = null)
+ *   index     : par classe, offset de l'enregistrement + identifiant du nom qualifié
+ *
+ * Le lecteur projette le fichier en mémoire (FileChannel.map) : ouvrir ne lit que l'en-tête et l'index,
+ * une classe (et ses chaînes) n'est décodée qu'à la première demande.
+ */
+public final class ModelSnapshot {
+
+    private static final int MAGIC = 0x4D4F444C; // "MODL"
+    /** À incrémenter si le format ou le contenu du modèle change. */
+    public static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 8 + 8;
+
+    private ModelSnapshot() {}
+
+    // -------------------- écriture --------------------
+
+    /** Écrit les classes dans file (fichier temporaire puis renommage : jamais d'instantané à moitié écrit). */
+    public static void write(List<ClassInfo> classes, Path file) throws IOException {
+        Strings strings = new Strings();
+        Sink records = new Sink(1 << 16);
+        long[] recordOffset = new long[classes.size()];
+        int[] qnId = new int[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            ClassInfo ci = classes.get(i);
+            recordOffset[i] = records.size;
+            qnId[i] = strings.id(qnOf(ci));
+            writeClass(ci, records, strings);
+        }
+
+        int n = strings.list.size();
+        Sink table = new Sink(4 * (n + 1) + 16 * n);
+        byte[][] utf8 = new byte[n][];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            utf8[i] = strings.list.get(i).getBytes(StandardCharsets.UTF_8);
+            table.int32(pos);
+            pos += utf8[i].length;
+        }
+        table.int32(pos);
+        for (byte[] b : utf8) table.bytes(b);
+
+        long stringsOffset = HEADER_BYTES;
+        long recordsOffset = stringsOffset + table.size;
+        long indexOffset = recordsOffset + records.size;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(classes.size()).putInt(n)
+              .putLong(stringsOffset).putLong(recordsOffset).putLong(indexOffset).flip();
+        ByteBuffer index = ByteBuffer.allocate(12 * classes.size());
+        for (int i = 0; i < classes.size(); i++) index.putLong(recordOffset[i]).putInt(qnId[i]);
+        index.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] parts = {header, table.buffer(), records.buffer(), index};
+                long total = 0;
+                for (ByteBuffer b : parts) total += b.remaining();
+                while (total > 0) total -= ch.write(parts);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeClass(ClassInfo ci, Sink out, Strings s) {
+        out.str(s, ci.packageName);
+        out.str(s, ci.className);
+        out.str(s, ci.qualifiedName);
+        out.str(s, ci.typeKey);
+        out.str(s, ci.superClass);
+        out.flags(ci.isInterface, ci.isEnum, ci.isAbstract);
+        out.strings(s, ci.superClassesChain);
+        out.strings(s, ci.interfaces);
+
+        out.size(ci.fields);
+        if (ci.fields != null) {
+            for (FieldInfo f : ci.fields) {
+                out.str(s, f.name);
+                out.str(s, f.visibility);
+                out.str(s, f.type);
+            }
+        }
+
+        out.size(ci.methods);
+        if (ci.methods != null) {
+            for (MethodInfo mi : ci.methods) {
+                out.str(s, mi.name);
+                out.str(s, mi.visibility);
+                out.str(s, mi.returnType);
+                out.strings(s, mi.parameterTypes);
+                out.str(s, mi.declaringType);
+                out.str(s, mi.methodKey);
+                out.str(s, mi.qualifiedSignature);
+                out.flags(mi.isAbstract, false, false);
+                out.varint(mi.loc);
+                out.varint(mi.parametersCount);
+                out.size(mi.calls);
+                if (mi.calls == null) continue;
+                for (MethodCallInfo c : mi.calls) {
+                    out.str(s, c.name);
+                    out.str(s, c.declaringType);
+                    out.str(s, c.qualifiedSignature);
+                    out.str(s, c.receiverStaticType);
+                    out.str(s, c.methodKey);
+                    out.flags(c.nonVirtual, false, false);
+                }
+            }
+        }
+    }
+
+    static String qnOf(ClassInfo ci) {
+        if (ci.qualifiedName != null && !ci.qualifiedName.isEmpty()) return ci.qualifiedName;
+        if (ci.packageName != null && !ci.packageName.isEmpty()) return ci.packageName + "." + ci.className;
+        return ci.className;
+    }
+
+    /** Table des chaînes en cours d'écriture : identifiant = rang d'apparition + 1 (0 réservé à null). */
+    private static final class Strings {
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> list = new ArrayList<>();
+
+        int id(String v) {
+            if (v == null) return 0;
+            Integer id = ids.get(v);
+            if (id == null) {
+                list.add(v);
+                id = list.size();
+                ids.put(v, id);
+            }
+            return id;
+        }
+    }
+
+    /** Tampon d'octets extensible (varints, int, octets bruts). */
+    private static final class Sink {
+        byte[] buf;
+        int size;
+
+        Sink(int capacity) { buf = new byte[Math.max(16, capacity)]; }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void int32(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void bytes(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+
+        void str(Strings s, String v) { varint(s.id(v)); }
+
+        void flags(boolean a, boolean b, boolean c) {
+            ensure(1);
+            buf[size++] = (byte) ((a ? 1 : 0) | (b ? 2 : 0) | (c ? 4 : 0));
+        }
+
+        void size(List<?> l) { varint(l == null ? 0 : l.size() + 1); }
+
+        void strings(Strings s, List<String> l) {
+            size(l);
+            if (l != null) for (String v : l) str(s, v);
+        }
+
+        ByteBuffer buffer() { return ByteBuffer.wrap(buf, 0, size); }
+    }
+
+    // -------------------- lecture --------------------
+
+    /** Ouvre un instantané (en-tête et index validés ; rien d'autre n'est décodé). */
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Lecteur paresseux. Les méthodes sont synchronisées : le décodage d'une classe n'a lieu qu'une fois,
+     * et une ClassInfo décodée est publiée sûrement entre threads.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private final int classCount, stringCount;
+        private final int stringsOffset, stringDataOffset, recordsOffset, indexOffset;
+        private final String[] strings;     // mémo, décodées à la demande
+        private final ClassInfo[] decoded;  // mémo, décodées à la demande
+        private Map<String, Integer> byName;
+
+        private Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new IOException("instantané trop volumineux (> 2 Go) : " + file);
+                if (size < HEADER_BYTES) throw new IOException("instantané tronqué : " + file);
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (map.getInt(0) != MAGIC) throw new IOException("pas un instantané de modèle : " + file);
+                int version = map.getInt(4);
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("version d'instantané " + version + " non supportée (attendu " + FORMAT_VERSION + ")");
+                }
+                classCount = map.getInt(8);
+                stringCount = map.getInt(12);
+                long so = map.getLong(16), ro = map.getLong(24), io = map.getLong(32);
+                if (classCount < 0 || stringCount < 0 || so != HEADER_BYTES
+                        || ro < so + 4L * (stringCount + 1) || io < ro || io + 12L * classCount != size) {
+                    throw new IOException("instantané corrompu (en-tête incohérent) : " + file);
+                }
+                stringsOffset = (int) so;
+                stringDataOffset = stringsOffset + 4 * (stringCount + 1);
+                recordsOffset = (int) ro;
+                indexOffset = (int) io;
+                if (stringDataOffset + (long) map.getInt(stringsOffset + 4 * stringCount) != recordsOffset) {
+                    throw new IOException("instantané corrompu (table des chaînes) : " + file);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            strings = new String[stringCount + 1];
+            decoded = new ClassInfo[classCount];
+        }
+
+        public int size() { return classCount; }
+
+        /** Nom qualifié de la i-ème classe (sans décoder la classe). */
+        public synchronized String qualifiedName(int i) {
+            Objects.checkIndex(i, classCount);
+            return string(map.getInt(indexOffset + 12 * i + 8));
+        }
+
+        /** i-ème classe, décodée à la première demande. */
+        public synchronized ClassInfo get(int i) {
+            Objects.checkIndex(i, classCount);
+            ClassInfo ci = decoded[i];
+            if (ci == null) {
+                long off = map.getLong(indexOffset + 12 * i);
+                if (off < 0 || recordsOffset + off >= indexOffset) throw corrupt(null);
+                ByteBuffer in = map.duplicate();
+                in.position((int) (recordsOffset + off)).limit(indexOffset);
+                try {
+                    ci = readClass(in);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    throw corrupt(e);
+                }
+                decoded[i] = ci;
+            }
+            return ci;
+        }
+
+        /** Classe de ce nom qualifié, ou null ; l'index des noms est construit au premier appel. */
+        public synchronized ClassInfo find(String qualifiedName) {
+            if (byName == null) {
+                byName = new HashMap<>(classCount * 2);
+                for (int i = 0; i < classCount; i++) byName.putIfAbsent(qualifiedName(i), i);
+            }
+            Integer i = byName.get(qualifiedName);
+            return i == null ? null : get(i);
+        }
+
+        /** Vue liste (accès direct) : chaque élément est décodé au premier get. */
+        public List<ClassInfo> classes() {
+            return new ReaderList();
+        }
+
+        /** Toutes les classes décodées, dans une liste modifiable (pour les traitements qui parcourent tout). */
+        public List<ClassInfo> readAll() {
+            List<ClassInfo> out = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) out.add(get(i));
+            return out;
+        }
+
+        @Override public void close() throws IOException {
+            // la projection reste valide jusqu'au GC, mais le descripteur est rendu tout de suite
+            channel.close();
+        }
+
+        private final class ReaderList extends AbstractList<ClassInfo> implements RandomAccess {
+            @Override public ClassInfo get(int i) { return Reader.this.get(i); }
+            @Override public int size() { return classCount; }
+        }
+
+        private IllegalStateException corrupt(Exception cause) {
+            return new IllegalStateException("instantané corrompu (enregistrement de classe illisible)", cause);
+        }
+
+        private String string(int id) {
+            if (id == 0) return null;
+            if (id < 0 || id > stringCount) throw new IllegalArgumentException("chaîne inconnue : " + id);
+            String s = strings[id];
+            if (s == null) {
+                int from = map.getInt(stringsOffset + 4 * (id - 1));
+                int to = map.getInt(stringsOffset + 4 * id);
+                if (from < 0 || to < from || stringDataOffset + to > recordsOffset) {
+                    throw new IllegalArgumentException("chaîne hors table : " + id);
+                }
+                byte[] b = new byte[to - from];
+                map.get(stringDataOffset + from, b);
+                s = new String(b, StandardCharsets.UTF_8);
+                strings[id] = s;
+            }
+            return s;
+        }
+
+        private ClassInfo readClass(ByteBuffer in) {
+            ClassInfo ci = new ClassInfo();
+            ci.packageName = str(in);
+            ci.className = str(in);
+            ci.qualifiedName = str(in);
+            ci.typeKey = str(in);
+            ci.superClass = str(in);
+            int flags = in.get();
+            ci.isInterface = (flags & 1) != 0;
+            ci.isEnum = (flags & 2) != 0;
+            ci.isAbstract = (flags & 4) != 0;
+            ci.superClassesChain = strings(in);
+            ci.interfaces = strings(in);
+
+            int nf = varint(in) - 1;
+            ci.fields = nf < 0 ? null : new ArrayList<>(Math.min(nf, in.remaining()));
+            for (int i = 0; i < nf; i++) {
+                FieldInfo f = new FieldInfo();
+                f.name = str(in);
+                f.visibility = str(in);
+                f.type = str(in);
+                ci.fields.add(f);
+            }
+
+            int nm = varint(in) - 1;
+            ci.methods = nm < 0 ? null : new ArrayList<>(Math.min(nm, in.remaining()));
+            for (int i = 0; i < nm; i++) {
+                MethodInfo mi = new MethodInfo();
+                mi.name = str(in);
+                mi.visibility = str(in);
+                mi.returnType = str(in);
+                mi.parameterTypes = strings(in);
+                mi.declaringType = str(in);
+                mi.methodKey = str(in);
+                mi.qualifiedSignature = str(in);
+                mi.isAbstract = (in.get() & 1) != 0;
+                mi.loc = varint(in);
+                mi.parametersCount = varint(in);
+                int nc = varint(in) - 1;
+                mi.calls = nc < 0 ? null : new ArrayList<>(Math.min(nc, in.remaining()));
+                for (int j = 0; j < nc; j++) {
+                    MethodCallInfo c = new MethodCallInfo();
+                    c.name = str(in);
+                    c.declaringType = str(in);
+                    c.qualifiedSignature = str(in);
+                    c.receiverStaticType = str(in);
+                    c.methodKey = str(in);
+                    c.nonVirtual = (in.get() & 1) != 0;
+                    mi.calls.add(c);
+                }
+                ci.methods.add(mi);
+            }
+            return ci;
+        }
+
+        private String str(ByteBuffer in) { return string(varint(in)); }
+
+        private List<String> strings(ByteBuffer in) {
+            int n = varint(in) - 1;
+            if (n < 0) return null;
+            List<String> out = new ArrayList<>(Math.min(n, in.remaining()));
+            for (int i = 0; i < n; i++) out.add(str(in));
+            return out;
+        }
+
+        private static int varint(ByteBuffer in) {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.get();
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IllegalArgumentException("varint invalide");
+        }
+    }
+}
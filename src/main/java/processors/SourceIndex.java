@@ -0,0 +1,136 @@
+package processors;
+
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtImportKind;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fichiers sources d'un projet, indexés par les types qu'ils déclarent : le paquetage est lu dans le fichier,
+ * le type public porte le nom du fichier, les autres types sont ajoutés par declare quand on les connaît.
+ *
+ * En no-classpath, Spoon ne résout un appel (surcharge, méthode héritée) que si le type visé et ses
+ * super-types sont dans le modèle. Plutôt que de tout parser, on part de quelques fichiers et on ajoute
+ * ceux des types qu'ils référencent jusqu'à stabilité (cf. references / filesFor).
+ *
+ * Clés de référence : nom qualifié du type de premier niveau ; pour un type que Spoon n'a pas trouvé,
+ * aussi "simple:" + nom simple et "package:" + chaque paquetage où il peut se trouver (paquetage supposé
+ * par Spoon, imports à la demande), le nom qualifié deviné pouvant être faux. Avec des imports à la
+ * demande, un type trouvé garde aussi son nom simple : un fichier ajouté du même nom peut le masquer.
+ */
+public final class SourceIndex {
+
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final String SIMPLE = "simple:", PACKAGE_KEY = "package:";
+
+    private final List<File> files = new ArrayList<>();
+    private final Set<File> known = new HashSet<>();
+    private final Map<String, Set<File>> byQualifiedName = new HashMap<>();
+    private final Map<String, Set<File>> bySimpleName = new HashMap<>();
+    private final Map<String, Set<File>> byPackage = new HashMap<>();
+
+    /** sources : fichiers .java du projet, dans l'ordre où les donner à Spoon. */
+    public SourceIndex(Collection<File> sources) {
+        for (File f : sources) {
+            File file = f.getAbsoluteFile();
+            if (!known.add(file)) continue;
+            files.add(file);
+            String name = file.getName();
+            String simple = name.endsWith(".java") ? name.substring(0, name.length() - 5) : name;
+            String pkg = packageOf(file);
+            declare(file, pkg, List.of(pkg.isEmpty() ? simple : pkg + "." + simple));
+        }
+    }
+
+    /** Fichiers du projet, dans l'ordre donné au constructeur. */
+    public List<File> files() { return Collections.unmodifiableList(files); }
+
+    public boolean contains(File f) { return known.contains(f.getAbsoluteFile()); }
+
+    /**
+     * Note que file déclare les types de premier niveau qualifiedNames dans le paquetage pkg. file peut ne
+     * plus faire partie du projet (fichier supprimé) : filesFor le renvoie encore pour ses anciens types.
+     */
+    public void declare(File file, String pkg, Collection<String> qualifiedNames) {
+        File f = file.getAbsoluteFile();
+        String p = pkg == null ? "" : pkg;
+        byPackage.computeIfAbsent(p, k -> new LinkedHashSet<>()).add(f);
+        for (String qn : qualifiedNames) {
+            byQualifiedName.computeIfAbsent(qn, k -> new LinkedHashSet<>()).add(f);
+            String simple = qn.substring(qn.lastIndexOf('.') + 1);
+            bySimpleName.computeIfAbsent(simple, k -> new LinkedHashSet<>()).add(f);
+        }
+    }
+
+    /** Fichiers indexés pouvant déclarer l'un des types désignés par keys (fichiers supprimés compris). */
+    public Set<File> filesFor(Collection<String> keys) {
+        Set<File> out = new LinkedHashSet<>();
+        for (String k : keys) {
+            Set<File> hit;
+            if (k.startsWith(SIMPLE)) hit = bySimpleName.get(k.substring(SIMPLE.length()));
+            else if (k.startsWith(PACKAGE_KEY)) hit = byPackage.get(k.substring(PACKAGE_KEY.length()));
+            else hit = byQualifiedName.get(k);
+            if (hit != null) out.addAll(hit);
+        }
+        return out;
+    }
+
+    /** Clés des types référencés par t (corps compris) et par les imports de son unité de compilation. */
+    public static Set<String> references(CtType<?> t) {
+        Set<String> out = new LinkedHashSet<>();
+        List<String> onDemand = new ArrayList<>();
+        CtCompilationUnit cu = t.getPosition().isValidPosition() ? t.getPosition().getCompilationUnit() : null;
+        List<CtImport> imports = cu != null ? cu.getImports() : List.of();
+        for (CtImport imp : imports) {
+            if (imp.getImportKind() == CtImportKind.ALL_TYPES && imp.getReference() instanceof CtPackageReference) {
+                onDemand.add(((CtPackageReference) imp.getReference()).getQualifiedName());
+            }
+        }
+        for (CtImport imp : imports) {
+            CtReference ref = imp.getReference();
+            if (ref instanceof CtTypeReference) {
+                add(out, (CtTypeReference<?>) ref, onDemand);
+            } else if (ref instanceof CtExecutableReference) {
+                add(out, ((CtExecutableReference<?>) ref).getDeclaringType(), onDemand);
+            } else if (ref instanceof CtFieldReference) {
+                add(out, ((CtFieldReference<?>) ref).getDeclaringType(), onDemand);
+            }
+        }
+        for (CtTypeReference<?> ref : t.getReferencedTypes()) add(out, ref, onDemand);
+        return out;
+    }
+
+    private static void add(Set<String> out, CtTypeReference<?> ref, List<String> onDemand) {
+        if (ref == null || ref.isPrimitive()) return;
+        CtTypeReference<?> top = ref.getTopLevelType();
+        if (top == null) top = ref;
+        out.add(top.getQualifiedName());
+        if (top.getDeclaration() != null) {
+            if (!onDemand.isEmpty()) out.add(SIMPLE + top.getSimpleName());
+            return;
+        }
+        out.add(SIMPLE + top.getSimpleName());
+        CtPackageReference pkg = top.getPackage();
+        if (pkg != null && !pkg.getQualifiedName().isEmpty()) out.add(PACKAGE_KEY + pkg.getQualifiedName());
+        for (String p : onDemand) out.add(PACKAGE_KEY + p);
+    }
+
+    private static String packageOf(File f) {
+        try {
+            Matcher m = PACKAGE.matcher(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+            return m.find() ? m.group(1) : "";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
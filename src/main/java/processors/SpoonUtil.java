@@ -1,6 +1,8 @@
 package processors;
 
 
+import model.ClassInfo;
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeInformation;
@@ -22,6 +24,19 @@ public class SpoonUtil {
         return Math.max(0, e.getPosition().getEndLine() - e.getPosition().getLine() + 1);
     }
 
+    /** ClassInfo du type (créé au besoin), en notant son fichier source. */
+    public static ClassInfo ensureClass(ModelRepo repo, CtType<?> type) {
+        String fqn = type.getQualifiedName();
+        var ci = repo.ensureClass(fqn,
+                type.getPackage() != null ? type.getPackage().getQualifiedName() : "",
+                type.getSimpleName());
+        SourcePosition pos = type.getPosition();
+        if (pos != null && pos.isValidPosition() && pos.getFile() != null) {
+            repo.sourceFileByFqn.putIfAbsent(ci.qualifiedName, pos.getFile());
+        }
+        return ci;
+    }
+
     public static boolean isTopLevel(CtTypeInformation ti) {
         if (ti == null) return false;
         if (ti.isAnonymous() || ti.isLocalType()) return false;
@@ -0,0 +1,104 @@
+package processors;
+
+import model.ClassInfo;
+import model.FieldInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Table de chaînes partagée pendant l'extraction : noms de types, clés et signatures de méthodes
+ * n'existent qu'en un exemplaire, toutes les ClassInfo/MethodInfo/MethodCallInfo pointent sur le même objet.
+ * Les copies renvoyées par Spoon (getQualifiedName, ref.toString) meurent aussitôt au lieu d'être retenues.
+ *
+ * Thread-safe : une même table est partagée par les fragments de l'analyse parallèle.
+ */
+public final class StringPool {
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /** Exemplaire partagé de s (null reste null). */
+    public String intern(String s) {
+        if (s == null) return null;
+        lookups.increment();
+        String prev = pool.putIfAbsent(s, s);
+        if (prev == null) return s;
+        if (prev != s) {
+            hits.increment();
+            savedBytes.add(footprint(s));
+        }
+        return prev;
+    }
+
+    /** Remplace en place les éléments de la liste par leurs exemplaires partagés. */
+    public void internAll(List<String> values) {
+        if (values == null) return;
+        for (int i = 0; i < values.size(); i++) values.set(i, intern(values.get(i)));
+    }
+
+    /** Passe toutes les chaînes d'une classe (et de ses membres) dans la table, ex. classe relue du cache disque. */
+    public void internAll(ClassInfo ci) {
+        ci.packageName = intern(ci.packageName);
+        ci.className = intern(ci.className);
+        ci.qualifiedName = intern(ci.qualifiedName);
+        ci.typeKey = intern(ci.typeKey);
+        ci.superClass = intern(ci.superClass);
+        internAll(ci.superClassesChain);
+        internAll(ci.interfaces);
+        if (ci.fields != null) {
+            for (FieldInfo f : ci.fields) {
+                f.name = intern(f.name);
+                f.visibility = intern(f.visibility);
+                f.type = intern(f.type);
+            }
+        }
+        if (ci.methods == null) return;
+        for (MethodInfo mi : ci.methods) {
+            mi.name = intern(mi.name);
+            mi.visibility = intern(mi.visibility);
+            mi.returnType = intern(mi.returnType);
+            internAll(mi.parameterTypes);
+            mi.declaringType = intern(mi.declaringType);
+            mi.methodKey = intern(mi.methodKey);
+            mi.qualifiedSignature = intern(mi.qualifiedSignature);
+            if (mi.calls == null) continue;
+            for (MethodCallInfo c : mi.calls) {
+                c.name = intern(c.name);
+                c.declaringType = intern(c.declaringType);
+                c.qualifiedSignature = intern(c.qualifiedSignature);
+                c.receiverStaticType = intern(c.receiverStaticType);
+                c.methodKey = intern(c.methodKey);
+            }
+        }
+    }
+
+    public int distinct() { return pool.size(); }
+    public long lookups() { return lookups.sum(); }
+    public long hits() { return hits.sum(); }
+
+    /** Estimation des octets de tas évités (copies partagées au lieu d'être retenues). */
+    public long savedBytes() { return savedBytes.sum(); }
+
+    /** Rapport succinct : chaînes distinctes, références partagées, mémoire évitée. */
+    public String report() {
+        long l = lookups(), h = hits();
+        double rate = l == 0 ? 0.0 : 100.0 * h / l;
+        return String.format(Locale.ROOT, "chaînes: %d distinctes, %d références, %d partagées (%.1f%%), ~%.1f Mo évités",
+                distinct(), l, h, rate, savedBytes() / (1024.0 * 1024.0));
+    }
+
+    // taille d'une String sur une JVM 64 bits à oops compressés : objet 24 o + byte[] (16 o d'en-tête), arrondis à 8
+    private static long footprint(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) latin1 = s.charAt(i) < 256;
+        long array = 16 + (long) s.length() * (latin1 ? 1 : 2);
+        return 24 + ((array + 7) & ~7L);
+    }
+}
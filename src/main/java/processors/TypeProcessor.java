@@ -1,5 +1,6 @@
 package processors;
 
+import model.ClassInfo;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.declaration.*;
 import spoon.reflect.reference.CtTypeReference;
@@ -9,26 +10,32 @@ public class TypeProcessor extends AbstractProcessor<CtType<?>> {
     public TypeProcessor(ModelRepo repo) { this.repo = repo; }
 
     @Override public boolean isToBeProcessed(CtType<?> t) {
+        return isModelType(t);
+    }
+
+    /** Types extraits : classes, interfaces et énumérations de premier niveau. */
+    static boolean isModelType(CtType<?> t) {
         if (!(t instanceof CtClass || t instanceof CtInterface || t instanceof CtEnum)) return false;
         return SpoonUtil.isTopLevel(t);
     }
 
 
     @Override public void process(CtType<?> t) {
-        String fqn = t.getQualifiedName();
-        String pkg = t.getPackage() != null ? t.getPackage().getQualifiedName() : "";
-        String sn  = t.getSimpleName();
+        fill(repo, SpoonUtil.ensureClass(repo, t), t);
+    }
 
-        var ci = repo.ensureClass(fqn, pkg, sn);
+    /** Drapeaux et super-types de ci ; partagé avec ModelScanner. */
+    static void fill(ModelRepo repo, ClassInfo ci, CtType<?> t) {
+        ci.isAbstract = t instanceof CtClass && t.isAbstract();
 
         // super classes / interfaces (chaîne simplifiée)
         if (t instanceof CtClass) {
             CtClass<?> c = (CtClass<?>) t;
-            if (c.getSuperclass() != null) ci.superClassesChain.add(c.getSuperclass().getQualifiedName());
-            for (CtTypeReference<?> s : c.getSuperInterfaces()) ci.superClassesChain.add(s.getQualifiedName());
+            if (c.getSuperclass() != null) ci.superClassesChain.add(repo.intern(c.getSuperclass().getQualifiedName()));
+            for (CtTypeReference<?> s : c.getSuperInterfaces()) ci.superClassesChain.add(repo.intern(s.getQualifiedName()));
         } else if (t instanceof CtInterface) {
             for (CtTypeReference<?> s : ((CtInterface<?>) t).getSuperInterfaces())
-                ci.superClassesChain.add(s.getQualifiedName());
+                ci.superClassesChain.add(repo.intern(s.getQualifiedName()));
         }
     }
 }
@@ -0,0 +1,303 @@
+package synthetic;
+
+import model.ClassInfo;
+import model.MethodCallInfo;
+import model.MethodInfo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Générateur de gros modèles synthétiques (List<ClassInfo>) pour les tests de montée en charge,
+ * avec des modules "plantés" (communautés de classes très couplées entre elles) servant de vérité terrain.
+ *
+ * Le modèle produit est celui qu'extrairait SpoonAnalyzer des sources écrites par writeSources :
+ * méthodes statiques sans paramètre, appels qualifiés "pkg.Cls.m()" (clé de méthode "m()"), un appel par ligne,
+ * plus le constructeur implicite de chaque classe. Mêmes graphes d'appel ; seul receiverStaticType peut différer
+ * (Spoon en no-classpath donne parfois "void" pour un accès statique).
+ * Les noms de méthodes sont uniques dans tout le modèle (pas de collision de clés entre classes).
+ */
+public final class ModelGenerator {
+
+    /** Loi du nombre d'appels par méthode (de moyenne Config.meanFanOut). */
+    public enum FanOut { FIXED, UNIFORM, GEOMETRIC, ZIPF }
+
+    /** Paramètres (valeurs par défaut raisonnables ; champs publics comme dans model/). */
+    public static final class Config {
+        public int classes = 1000;
+        public int minMethodsPerClass = 2;
+        public int maxMethodsPerClass = 10;
+        public FanOut fanOut = FanOut.GEOMETRIC;
+        public double meanFanOut = 3.0;
+        /** Arborescence de paquetages : breadth^depth paquetages feuilles, sous rootPackage. */
+        public String rootPackage = "gen";
+        public int packageDepth = 2;
+        public int packageBreadth = 4;
+        /** Nombre de modules plantés (blocs de classes contigus) ; <= 1 : pas de structure. */
+        public int modules = 20;
+        /** Probabilité qu'un appel (interne au projet) vise une classe du même module. */
+        public double intraModule = 0.9;
+        /** Probabilité qu'un appel vise une API externe (System.nanoTime()). */
+        public double external = 0.05;
+        public long seed = 42L;
+    }
+
+    /** Résultat : modèle + modules plantés (FQN des classes), dans l'ordre des classes. */
+    public static final class Generated {
+        public final Config config;
+        public final List<ClassInfo> classes;
+        public final List<Set<String>> plantedModules;
+        /** Indice du module planté de chaque classe (même ordre que classes). */
+        public final int[] moduleOf;
+
+        Generated(Config config, List<ClassInfo> classes, List<Set<String>> plantedModules, int[] moduleOf) {
+            this.config = config;
+            this.classes = classes;
+            this.plantedModules = plantedModules;
+            this.moduleOf = moduleOf;
+        }
+    }
+
+    private ModelGenerator() {}
+
+    public static Generated generate(Config cfg) {
+        Objects.requireNonNull(cfg, "cfg");
+        if (cfg.classes <= 0) throw new IllegalArgumentException("classes doit être > 0");
+        if (cfg.minMethodsPerClass < 1 || cfg.maxMethodsPerClass < cfg.minMethodsPerClass) {
+            throw new IllegalArgumentException("méthodes par classe : 1 <= min <= max");
+        }
+        Random rnd = new Random(cfg.seed);
+        final int n = cfg.classes;
+
+        // paquetages feuilles (ordre lexicographique des indices)
+        List<String> packages = new ArrayList<>();
+        buildPackages(cfg.rootPackage, Math.max(0, cfg.packageDepth), Math.max(1, cfg.packageBreadth), packages);
+
+        // modules plantés : blocs contigus de classes
+        int moduleCount = Math.max(1, Math.min(cfg.modules, n));
+        int[] moduleOf = new int[n];
+        int[] moduleStart = new int[moduleCount + 1];
+        for (int m = 0; m <= moduleCount; m++) moduleStart[m] = (int) ((long) m * n / moduleCount);
+        for (int m = 0; m < moduleCount; m++) {
+            for (int c = moduleStart[m]; c < moduleStart[m + 1]; c++) moduleOf[c] = m;
+        }
+
+        List<ClassInfo> classes = new ArrayList<>(n);
+        for (int c = 0; c < n; c++) {
+            ClassInfo ci = new ClassInfo();
+            ci.packageName = packages.get((int) ((long) c * packages.size() / n));
+            ci.className = "C" + c;
+            ci.qualifiedName = ci.packageName + "." + ci.className;
+            int methods = cfg.minMethodsPerClass + rnd.nextInt(cfg.maxMethodsPerClass - cfg.minMethodsPerClass + 1);
+            for (int m = 0; m < methods; m++) {
+                MethodInfo mi = new MethodInfo();
+                mi.name = methodName(c, m);
+                mi.visibility = "public";
+                mi.returnType = "void";
+                mi.declaringType = ci.qualifiedName;
+                mi.methodKey = mi.name + "()";
+                mi.qualifiedSignature = mi.methodKey;
+                ci.methods.add(mi);
+            }
+            classes.add(ci);
+        }
+
+        for (int c = 0; c < n; c++) {
+            for (MethodInfo mi : classes.get(c).methods) {
+                int calls = sampleFanOut(cfg, rnd);
+                for (int k = 0; k < calls; k++) {
+                    if (rnd.nextDouble() < cfg.external) {
+                        mi.calls.add(externalCall());
+                        continue;
+                    }
+                    int target;
+                    if (moduleCount > 1 && rnd.nextDouble() >= cfg.intraModule) {
+                        target = rnd.nextInt(n); // bruit : n'importe quelle classe
+                    } else {
+                        int m = moduleOf[c];
+                        target = moduleStart[m] + rnd.nextInt(moduleStart[m + 1] - moduleStart[m]);
+                    }
+                    ClassInfo tc = classes.get(target);
+                    mi.calls.add(callTo(tc, tc.methods.get(rnd.nextInt(tc.methods.size()))));
+                }
+                mi.loc = mi.calls.size() + 2; // signature + un appel par ligne + accolade fermante
+            }
+        }
+        // après le tirage des appels : le constructeur n'est jamais une cible
+        for (ClassInfo ci : classes) ci.methods.add(implicitConstructor(ci));
+
+        List<Set<String>> planted = new ArrayList<>(moduleCount);
+        for (int m = 0; m < moduleCount; m++) {
+            Set<String> members = new LinkedHashSet<>();
+            for (int c = moduleStart[m]; c < moduleStart[m + 1]; c++) members.add(classes.get(c).qualifiedName);
+            planted.add(Collections.unmodifiableSet(members));
+        }
+        return new Generated(cfg, classes, Collections.unmodifiableList(planted), moduleOf);
+    }
+
+    /** Raccourci : modèle seul. */
+    public static List<ClassInfo> generateClasses(Config cfg) {
+        return generate(cfg).classes;
+    }
+
+    // -------------------- sources Java (chemin Spoon) --------------------
+
+    /** Écrit une arborescence de sources dont l'analyse Spoon redonne le modèle généré. */
+    public static void writeSources(Generated g, File root) throws IOException {
+        for (ClassInfo ci : g.classes) {
+            File dir = new File(root, ci.packageName.replace('.', File.separatorChar));
+            Files.createDirectories(dir.toPath());
+            try (PrintWriter w = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(new File(dir, ci.className + ".java")), StandardCharsets.UTF_8)))) {
+                w.println("package " + ci.packageName + ";");
+                w.println();
+                w.println("public class " + ci.className + " {");
+                for (MethodInfo mi : ci.methods) {
+                    w.println();
+                    w.println("    public static void " + mi.name + "() {");
+                    for (MethodCallInfo call : mi.calls) {
+                        w.println("        " + call.declaringType + "." + call.name + "();");
+                    }
+                    w.println("    }");
+                }
+                w.println("}");
+            }
+        }
+    }
+
+    // -------------------- vérité terrain --------------------
+
+    /**
+     * Indice de Rand ajusté entre des modules trouvés (ex. ModuleIdentifier.Result.modules) et les modules
+     * plantés : 1 = même partition, ~0 = pas mieux que le hasard. Les classes absentes des modules trouvés
+     * sont comptées comme des singletons.
+     */
+    public static double adjustedRandIndex(Generated g, List<? extends Collection<ClassInfo>> found) {
+        Map<String, Integer> foundOf = new HashMap<>();
+        for (int i = 0; i < found.size(); i++) {
+            for (ClassInfo ci : found.get(i)) foundOf.put(ci.qualifiedName, i);
+        }
+        int n = g.classes.size();
+        int next = found.size();
+        Map<Long, Integer> contingency = new HashMap<>();
+        Map<Integer, Integer> rowSums = new HashMap<>(), colSums = new HashMap<>();
+        for (int c = 0; c < n; c++) {
+            Integer f = foundOf.get(g.classes.get(c).qualifiedName);
+            int col = (f != null) ? f : next++;
+            int row = g.moduleOf[c];
+            contingency.merge(((long) row << 32) | (col & 0xFFFFFFFFL), 1, Integer::sum);
+            rowSums.merge(row, 1, Integer::sum);
+            colSums.merge(col, 1, Integer::sum);
+        }
+        double index = 0, a = 0, b = 0;
+        for (int v : contingency.values()) index += pairs(v);
+        for (int v : rowSums.values()) a += pairs(v);
+        for (int v : colSums.values()) b += pairs(v);
+        double total = pairs(n);
+        if (total == 0) return 1.0;
+        double expected = a * b / total;
+        double max = (a + b) / 2;
+        return (max == expected) ? 1.0 : (index - expected) / (max - expected);
+    }
+
+    // -------------------- helpers --------------------
+
+    private static void buildPackages(String prefix, int depth, int breadth, List<String> out) {
+        if (depth == 0) { out.add(prefix); return; }
+        for (int i = 0; i < breadth; i++) buildPackages(prefix + ".p" + i, depth - 1, breadth, out);
+    }
+
+    private static double pairs(long v) { return v * (v - 1) / 2.0; }
+
+    private static int sampleFanOut(Config cfg, Random rnd) {
+        double mean = Math.max(0, cfg.meanFanOut);
+        switch (cfg.fanOut) {
+            case FIXED:
+                return (int) Math.round(mean);
+            case UNIFORM:
+                return rnd.nextInt((int) Math.round(2 * mean) + 1);
+            case ZIPF: {
+                // loi de Zipf (s = 2) sur [0..max], mise à l'échelle pour viser la moyenne
+                int max = (int) Math.max(1, Math.round(mean * 10));
+                double h = 0;
+                for (int k = 1; k <= max + 1; k++) h += 1.0 / ((double) k * k);
+                double u = rnd.nextDouble() * h, acc = 0;
+                int k = 1;
+                for (; k <= max + 1; k++) {
+                    acc += 1.0 / ((double) k * k);
+                    if (acc >= u) break;
+                }
+                double zipfMean = 0;
+                for (int j = 1; j <= max + 1; j++) zipfMean += (j - 1) / ((double) j * j) / h;
+                return (int) Math.round((k - 1) * (zipfMean == 0 ? 0 : mean / zipfMean));
+            }
+            case GEOMETRIC:
+            default: {
+                if (mean == 0) return 0;
+                double p = 1.0 / (1.0 + mean); // support {0,1,2,...}, moyenne (1-p)/p
+                return (int) Math.floor(Math.log(1 - rnd.nextDouble()) / Math.log(1 - p));
+            }
+        }
+    }
+
+    /** Constructeur par défaut implicite, tel que le voit CtorProcessor (appel implicite à super()). */
+    private static MethodInfo implicitConstructor(ClassInfo ci) {
+        MethodInfo mi = new MethodInfo();
+        mi.name = "<init>";
+        mi.visibility = "public";
+        mi.returnType = "void";
+        mi.declaringType = ci.qualifiedName;
+        mi.methodKey = ci.qualifiedName + "()";
+        mi.qualifiedSignature = mi.methodKey;
+        mi.loc = 0;
+
+        MethodCallInfo sup = new MethodCallInfo();
+        sup.name = "<init>";
+        sup.declaringType = "java.lang.Object";
+        sup.receiverStaticType = "java.lang.Object";
+        sup.methodKey = "java.lang.Object()";
+        sup.qualifiedSignature = sup.methodKey;
+        mi.calls.add(sup);
+        return mi;
+    }
+
+    private static MethodCallInfo callTo(ClassInfo target, MethodInfo m) {
+        MethodCallInfo call = new MethodCallInfo();
+        call.name = m.name;
+        call.declaringType = target.qualifiedName;
+        call.receiverStaticType = target.qualifiedName;
+        call.methodKey = m.name + "()";
+        call.qualifiedSignature = call.methodKey;
+        return call;
+    }
+
+    private static MethodCallInfo externalCall() {
+        MethodCallInfo call = new MethodCallInfo();
+        call.name = "nanoTime";
+        call.declaringType = "java.lang.System";
+        call.receiverStaticType = "java.lang.System";
+        call.methodKey = "nanoTime()";
+        call.qualifiedSignature = call.methodKey;
+        return call;
+    }
+
+    private static String methodName(int cls, int m) {
+        return "c" + cls + "m" + m;
+    }
+
+    /** java synthetic.ModelGenerator <classes> <dossierSources> [graine] : écrit des sources générées. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : java synthetic.ModelGenerator <classes> <dossierSources> [graine]");
+            System.exit(2);
+        }
+        Config cfg = new Config();
+        cfg.classes = Integer.parseInt(args[0]);
+        if (args.length > 2) cfg.seed = Long.parseLong(args[2]);
+        Generated g = generate(cfg);
+        writeSources(g, new File(args[1]));
+        System.out.println(g.classes.size() + " classes, " + g.plantedModules.size() + " modules -> " + args[1]);
+    }
+}
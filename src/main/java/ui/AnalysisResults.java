@@ -0,0 +1,122 @@
+package ui;
+
+import metrics.CallGraphBuilder;
+import metrics.CouplingGraphBuilder;
+import metrics.CouplingMatrix;
+import metrics.HierarchicalClustering;
+import metrics.IntDiGraph;
+import metrics.MetricsCalculator;
+import metrics.ModuleIdentifier;
+import model.ClassInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Résultats des étapes du pipeline partagés entre les onglets : chaque étape est calculée une seule fois,
+ * à la première demande (depuis un thread de fond), puis relue telle quelle.
+ * Chaque résultat a sa propre tâche (FutureTask, une par clé) : deux onglets qui demandent la même étape
+ * attendent le même calcul, mais un long clustering ne bloque pas la lecture d'un graphe d'appel.
+ *
+ * Les étapes paramétrées (graphes d'appel selon externes/résolution, modules selon liaison et CP) sont
+ * gardées par configuration : revenir à un réglage déjà vu relit le résultat au lieu de le recalculer.
+ * Les graphes renvoyés sont figés et partagés : ne pas les modifier.
+ */
+public final class AnalysisResults {
+
+    private final List<ClassInfo> classes;
+
+    // clé -> calcul (lancé par le premier demandeur) ; une tâche en échec est retirée pour être retentée
+    private final ConcurrentHashMap<List<Object>, FutureTask<Object>> results = new ConcurrentHashMap<>();
+
+    public AnalysisResults(List<ClassInfo> classes) {
+        this.classes = Objects.requireNonNull(classes, "classes");
+    }
+
+    public List<ClassInfo> classes() { return classes; }
+
+    /** Graphe d'appel méthode->méthode (compact, sans externes : ils ne comptent pas dans le couplage). */
+    public IntDiGraph methodGraph() {
+        return methodGraph(false, CallGraphBuilder.Resolution.EXACT);
+    }
+
+    public IntDiGraph methodGraph(boolean includeExternal, CallGraphBuilder.Resolution resolution) {
+        return get(List.of("method-graph", includeExternal, resolution),
+                () -> CallGraphBuilder.buildMethodGraphCompact(classes, includeExternal, resolution));
+    }
+
+    /** Graphe d'appel classe->classe (compact). */
+    public IntDiGraph classGraph(boolean includeExternal) {
+        return get(List.of("class-graph", includeExternal),
+                () -> CallGraphBuilder.buildClassGraphCompact(classes, includeExternal));
+    }
+
+    public CouplingMatrix couplingMatrix() {
+        return get(List.of("coupling-matrix"), () -> MetricsCalculator.couplingMatrix(methodGraph(), classes));
+    }
+
+    public CouplingGraphBuilder.WeightedGraph<String> couplingGraph() {
+        return get(List.of("coupling-graph"), () -> CouplingGraphBuilder.buildFromMatrix(couplingMatrix(), classes));
+    }
+
+    /** Fonction de couplage lue dans la matrice (la calcule au besoin). */
+    public HierarchicalClustering.Coupling couplingFn() {
+        CouplingMatrix m = couplingMatrix();
+        return m::weight;
+    }
+
+    public HierarchicalClustering.Node dendrogram(HierarchicalClustering.Linkage linkage) {
+        return get(List.of("dendrogram", linkage), () -> HierarchicalClustering.cluster(classes, couplingFn(), linkage));
+    }
+
+    /** Modules du dendrogramme de cette liaison pour ce seuil CP (null si aucune classe). */
+    public ModuleIdentifier.Result modules(HierarchicalClustering.Linkage linkage, double CP) {
+        return get(List.of("modules", linkage, CP), () -> {
+            HierarchicalClustering.Node root = dendrogram(linkage);
+            return root == null ? null : ModuleIdentifier.identify(root, couplingMatrix(), CP);
+        });
+    }
+
+    /** Première classe de ce nom simple (ordre de la liste), ou null. */
+    public ClassInfo classBySimpleName(String name) {
+        Map<String, ClassInfo> bySimpleName = get(List.of("by-simple-name"), () -> {
+            Map<String, ClassInfo> m = new HashMap<>();
+            for (ClassInfo ci : classes) m.putIfAbsent(ci.className, ci);
+            return m;
+        });
+        return bySimpleName.get(name);
+    }
+
+    /** true si le dendrogramme est déjà calculé (lecture sans déclencher de calcul). */
+    public boolean hasDendrogram(HierarchicalClustering.Linkage linkage) {
+        FutureTask<Object> task = results.get(List.of("dendrogram", linkage));
+        return task != null && task.isDone();
+    }
+
+    // Le calcul tourne hors de computeIfAbsent (qui ne crée que la tâche) : il peut demander d'autres
+    // résultats, et les demandes concurrentes d'autres clés ne l'attendent pas.
+    @SuppressWarnings("unchecked")
+    private <T> T get(List<Object> key, Callable<T> build) {
+        FutureTask<Object> task = results.computeIfAbsent(key, k -> new FutureTask<>((Callable<Object>) build));
+        task.run(); // sans effet si la tâche est déjà lancée (par un autre thread) ou terminée
+        try {
+            return (T) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Attente de " + key + " interrompue");
+        } catch (ExecutionException e) {
+            results.remove(key, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -2,16 +2,15 @@ package ui;
 
 import metrics.CallGraphBuilder;
 import metrics.CallGraphBuilder.DiGraph;
+import metrics.CallGraphBuilder.Graph;
+import metrics.GraphExporter;
+import metrics.IntDiGraph;
 import model.ClassInfo;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Line2D;
 import java.io.File;
-import java.io.PrintWriter;
 import java.util.List;
 import java.util.*;
 import java.util.function.Function;
@@ -20,23 +19,51 @@ public class CallGraphPanel extends JPanel {
 
     public enum Mode { CLASSES, METHODES }
 
-    private final List<ClassInfo> classes;
+    /** Fournit le graphe d'un réglage de la barre d'outils (construit ou relu en cache). */
+    private interface GraphSource {
+        Graph<String> graph(Mode mode, boolean includeExternal, CallGraphBuilder.Resolution resolution);
+    }
+
+    private final GraphSource source;
 
     // UI
     private final JComboBox<Mode> modeCombo = new JComboBox<>(Mode.values());
     private final JCheckBox includeExternal = new JCheckBox("Inclure externes", true);
+    private final JComboBox<CallGraphBuilder.Resolution> resolutionCombo =
+            new JComboBox<>(CallGraphBuilder.Resolution.values());
     private final JButton buildBtn = new JButton("Construire");
+    private final JButton exportBtn = new JButton("Exporter…");
     private final JLabel status = new JLabel(" ");
+    private final JTextField filterField = new JTextField(16);
 
     private final JTable edgesTable = new JTable();
+    private EdgeTableModel edgesModel;
+    private int sortColumn = -1;
+    private boolean sortDescending;
+    private SwingWorker<EdgeTableModel.View, Void> viewWorker;
+    private final javax.swing.Timer filterDelay = new javax.swing.Timer(200, e -> refreshView());
     private final GraphCanvas canvas = new GraphCanvas();
 
     // Données courantes
-    private DiGraph<String> graph = new DiGraph<String>();
+    private Graph<String> graph = new DiGraph<String>();
+    private SwingWorker<Graph<String>, Void> worker;
 
     public CallGraphPanel(List<ClassInfo> classes) {
+        this((mode, ext, resolution) -> (mode == Mode.METHODES)
+                ? CallGraphBuilder.buildMethodGraphCompact(classes, ext, resolution)
+                : CallGraphBuilder.buildClassGraphCompact(classes, ext));
+    }
+
+    /** Variante partagée : chaque réglage n'est construit qu'une fois, puis relu dans results. */
+    public CallGraphPanel(AnalysisResults results) {
+        this((mode, ext, resolution) -> (mode == Mode.METHODES)
+                ? results.methodGraph(ext, resolution)
+                : results.classGraph(ext));
+    }
+
+    private CallGraphPanel(GraphSource source) {
         super(new BorderLayout(8,8));
-        this.classes = classes;
+        this.source = source;
         setBorder(BorderFactory.createEmptyBorder(8,8,8,8));
 
         // Toolbar
@@ -47,7 +74,14 @@ public class CallGraphPanel extends JPanel {
         tb.add(Box.createHorizontalStrut(8));
         tb.add(includeExternal);
         tb.add(Box.createHorizontalStrut(8));
+        tb.add(new JLabel("Résolution : "));
+        tb.add(resolutionCombo);
+        tb.add(Box.createHorizontalStrut(8));
         tb.add(buildBtn);
+        tb.add(exportBtn);
+        tb.add(Box.createHorizontalStrut(16));
+        tb.add(new JLabel("Filtre : "));
+        tb.add(filterField);
         tb.add(Box.createHorizontalStrut(16));
         tb.add(status);
 
@@ -63,54 +97,148 @@ public class CallGraphPanel extends JPanel {
         buildBtn.addActionListener(new ActionListener() {
             @Override public void actionPerformed(ActionEvent e) { rebuildGraph(); }
         });
+        exportBtn.addActionListener(e -> exportGraph());
+        filterDelay.setRepeats(false);
+        filterField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+            @Override public void removeUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+        });
+        // tri au clic sur l'en-tête : croissant, décroissant, puis ordre du graphe
+        edgesTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                int col = edgesTable.convertColumnIndexToModel(edgesTable.columnAtPoint(e.getPoint()));
+                if (col < 0) return;
+                if (col != sortColumn) { sortColumn = col; sortDescending = false; }
+                else if (!sortDescending) sortDescending = true;
+                else sortColumn = -1;
+                refreshView();
+            }
+        });
 
         // Construction initiale
         rebuildGraph();
     }
 
+    /** Construit le graphe en tâche de fond, puis met à jour la table et le canvas sur l'EDT. */
     private void rebuildGraph() {
         Mode mode = (Mode) modeCombo.getSelectedItem();
         boolean ext = includeExternal.isSelected();
-        if (mode == Mode.METHODES) {
-            this.graph = CallGraphBuilder.buildMethodGraph(classes, ext);
-        } else {
-            this.graph = CallGraphBuilder.buildClassGraph(classes, ext);
-        }
-        fillTable();
-        canvas.setGraph(graph);
-        status.setText("Noeuds: " + graph.nodes().size() + "  |  Arêtes: " + countEdges(graph));
+        CallGraphBuilder.Resolution resolution = (CallGraphBuilder.Resolution) resolutionCombo.getSelectedItem();
+        if (worker != null) worker.cancel(true);
+        buildBtn.setEnabled(false);
+        status.setText("Construction du graphe…");
+        worker = new SwingWorker<Graph<String>, Void>() {
+            @Override protected Graph<String> doInBackground() {
+                return source.graph(mode, ext, resolution);
+            }
+            @Override protected void done() {
+                if (isCancelled()) return;
+                buildBtn.setEnabled(true);
+                try {
+                    graph = get();
+                } catch (Exception ex) {
+                    status.setText("Erreur : " + ex.getMessage());
+                    return;
+                }
+                fillTable();
+                canvas.setGraph(graph);
+                status.setText("Noeuds: " + graph.nodes().size() + "  |  Arêtes: " + countEdges(graph));
+            }
+        };
+        worker.execute();
     }
 
+    /** La table lit les arêtes dans le graphe lui-même (rien n'est recopié). */
     private void fillTable() {
-        DefaultTableModel m = new DefaultTableModel(new Object[]{"From", "To"}, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
-        for (Map.Entry<String, Set<String>> e : graph.edges().entrySet()) {
-            String from = e.getKey();
-            for (String to : e.getValue()) m.addRow(new Object[]{from, to});
-        }
-        edgesTable.setModel(m);
-        edgesTable.setAutoCreateRowSorter(true);
+        edgesModel = new EdgeTableModel(graph);
+        edgesTable.setRowSorter(null);
+        edgesTable.setModel(edgesModel);
         edgesTable.setRowHeight(22);
         prefWidth(edgesTable, 0, 420);
         prefWidth(edgesTable, 1, 420);
+        refreshView();
+    }
+
+    /** Recalcule hors EDT l'ordre et le filtre de la table, puis les installe. */
+    private void refreshView() {
+        filterDelay.stop();
+        if (edgesModel == null) return;
+        if (viewWorker != null) viewWorker.cancel(true);
+        final EdgeTableModel model = edgesModel;
+        final EdgeTableModel.Query q = new EdgeTableModel.Query(sortColumn, sortDescending, filterField.getText());
+        updateHeaders();
+        if (q.isIdentity()) {
+            if (model.query() != null) model.setView(null);
+            return;
+        }
+        viewWorker = new SwingWorker<EdgeTableModel.View, Void>() {
+            @Override protected EdgeTableModel.View doInBackground() {
+                return model.computeView(q, this::isCancelled);
+            }
+            @Override protected void done() {
+                if (isCancelled() || model != edgesModel) return;
+                try {
+                    EdgeTableModel.View v = get();
+                    if (v != null) model.setView(v);
+                } catch (Exception ex) {
+                    status.setText("Erreur : " + ex.getMessage());
+                }
+            }
+        };
+        viewWorker.execute();
     }
 
-    private int countEdges(DiGraph<String> g) {
+    private void updateHeaders() {
+        for (int c = 0; c < edgesTable.getColumnModel().getColumnCount(); c++) {
+            javax.swing.table.TableColumn col = edgesTable.getColumnModel().getColumn(c);
+            int m = col.getModelIndex();
+            String name = edgesTable.getModel().getColumnName(m);
+            col.setHeaderValue(m == sortColumn ? name + (sortDescending ? " \u25BC" : " \u25B2") : name);
+        }
+        edgesTable.getTableHeader().repaint();
+    }
+
+    private int countEdges(Graph<String> g) {
+        if (g instanceof IntDiGraph) return ((IntDiGraph) g).edgeCount();
         int c = 0;
         for (Set<String> s : g.edges().values()) c += s.size();
         return c;
     }
 
-    private void writeText(File f, String text) {
-        try (PrintWriter out = new PrintWriter(f, "UTF-8")) {
-            out.print(text);
-            JOptionPane.showMessageDialog(this, "Fichier écrit : " + f.getAbsolutePath(),
-                    "Export", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Erreur export : " + ex.getMessage(),
+    /** Export du graphe courant ; format d'après l'extension choisie (".gz" : compressé), écriture hors EDT. */
+    private void exportGraph() {
+        JFileChooser fc = new JFileChooser();
+        fc.setSelectedFile(new File("callgraph.dot"));
+        fc.setDialogTitle("Exporter (.dot, .graphml, .jsonl, .csv, suffixe .gz possible)");
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File f = fc.getSelectedFile();
+        GraphExporter.Format format = GraphExporter.Format.fromFileName(f.getName());
+        if (format == null) {
+            JOptionPane.showMessageDialog(this, "Extension inconnue : .dot, .graphml, .jsonl ou .csv (+ .gz)",
                     "Erreur", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        Graph<String> g = graph;
+        exportBtn.setEnabled(false);
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() throws Exception {
+                GraphExporter.export(g, format, f.toPath());
+                return null;
+            }
+            @Override protected void done() {
+                exportBtn.setEnabled(true);
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(CallGraphPanel.this, "Fichier écrit : " + f.getAbsolutePath(),
+                            "Export", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable c = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(CallGraphPanel.this, "Erreur export : " + c.getMessage(),
+                            "Erreur", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     private static void prefWidth(JTable t, int col, int w) {
@@ -125,17 +253,50 @@ public class CallGraphPanel extends JPanel {
 
     // -------------------------- Canvas de dessin --------------------------
 
+    /**
+     * Canvas du graphe, pensé pour les gros graphes de méthodes :
+     * - noeuds et arêtes en tableaux primitifs, noeuds indexés par une grille uniforme ;
+     * - seuls les noeuds et les arêtes qui touchent la zone dessinée sont tracés ;
+     * - niveaux de détail : boîtes + libellés de près, simples points en dessous de LABEL_ZOOM,
+     *   et au-delà de BUNDLE_MIN_EDGES arêtes, faisceaux par couple de cases quand une case fait
+     *   moins de BUNDLE_CELL_PX pixels ;
+     * - la scène est rendue dans une image hors écran un peu plus grande que la vue : un
+     *   déplacement ne fait que recopier l'image, un zoom l'étire le temps que la molette s'arrête.
+     */
     private static class GraphCanvas extends JComponent {
-        private DiGraph<String> graph = new DiGraph<String>();
-        // layout
-        private final Map<String, Point2D> pos = new LinkedHashMap<String, Point2D>();
+        private static final double LABEL_ZOOM = 0.4;
+        private static final int BUNDLE_MIN_EDGES = 20_000;
+        private static final double BUNDLE_CELL_PX = 6.0;
+        private static final int BUNDLE_GRID = 128;
+        private static final int ANTIALIAS_MAX_EDGES = 20_000;
+        private static final double MARGIN = 0.25; // marge de l'image hors écran, en fraction de la vue
+        private static final int PAD = 6;
+
+        // graphe, indexé par identifiant de noeud
+        private String[] labels = new String[0];
+        private double[] nx = new double[0], ny = new double[0];
+        private int[] edgeFrom = new int[0], edgeTo = new int[0];
+        private NodeGrid grid = NodeGrid.build(nx, ny);
+        private Bundles bundles;
+
+        // métriques des libellés, mesurées une fois par police
+        private Font metricsFont;
+        private int[] labelWidth;
+        private int maxLabelWidth;
+
         private double zoom = 1.0;
         private double tx = 0.0, ty = 0.0; // pan
         private Point lastDrag = null;
 
+        // image hors écran : couvre le rectangle monde (layerX, layerY) à l'échelle layerZoom
+        private java.awt.image.BufferedImage layer;
+        private double layerX, layerY, layerZoom;
+        private final javax.swing.Timer refine = new javax.swing.Timer(150, e -> { layer = null; repaint(); });
+
         public GraphCanvas() {
             setBackground(Color.WHITE);
             setOpaque(true);
+            refine.setRepeats(false);
 
             addMouseWheelListener(new MouseWheelListener() {
                 @Override public void mouseWheelMoved(MouseWheelEvent e) {
@@ -143,6 +304,7 @@ public class CallGraphPanel extends JPanel {
                     double factor = (rot > 0) ? 0.9 : 1.1;
                     zoom *= factor;
                     zoom = Math.max(0.1, Math.min(zoom, 5.0));
+                    refine.restart(); // rendu net quand la molette s'arrête
                     repaint();
                 }
             });
@@ -167,86 +329,321 @@ public class CallGraphPanel extends JPanel {
             });
         }
 
-        public void setGraph(DiGraph<String> g) {
-            this.graph = g != null ? g : new DiGraph<String>();
+        public void setGraph(Graph<String> g) {
+            if (g == null) g = new DiGraph<String>();
+            int n = g.nodes().size();
+            labels = new String[n];
+            if (g instanceof IntDiGraph) {
+                IntDiGraph ig = (IntDiGraph) g;
+                for (int i = 0; i < n; i++) labels[i] = ig.label(i);
+                int[] from = new int[ig.edgeCount()], to = new int[from.length];
+                int[] k = {0};
+                ig.forEachEdge((a, b) -> { from[k[0]] = a; to[k[0]] = b; k[0]++; });
+                edgeFrom = from; edgeTo = to;
+            } else {
+                Map<String, Integer> id = new HashMap<>(n * 2);
+                int i = 0;
+                for (String node : g.nodes()) { labels[i] = node; id.put(node, i++); }
+                int m = 0;
+                for (Set<String> s : g.edges().values()) m += s.size();
+                edgeFrom = new int[m]; edgeTo = new int[m];
+                m = 0;
+                for (Map.Entry<String, Set<String>> e : g.edges().entrySet()) {
+                    Integer a = id.get(e.getKey());
+                    if (a == null) continue;
+                    for (String to : e.getValue()) {
+                        Integer b = id.get(to);
+                        if (b == null) continue;
+                        edgeFrom[m] = a; edgeTo[m] = b; m++;
+                    }
+                }
+                edgeFrom = Arrays.copyOf(edgeFrom, m); edgeTo = Arrays.copyOf(edgeTo, m);
+            }
             computeCircularLayout();
+            grid = NodeGrid.build(nx, ny);
+            bundles = edgeFrom.length > BUNDLE_MIN_EDGES ? Bundles.build(nx, ny, edgeFrom, edgeTo) : null;
+            metricsFont = null; labelWidth = null;
             zoom = 1.0; tx = ty = 0.0;
+            layer = null;
             repaint();
         }
 
         private void computeCircularLayout() {
-            pos.clear();
-            int n = graph.nodes().size();
+            int n = labels.length;
+            nx = new double[n]; ny = new double[n];
             if (n == 0) return;
             // calc rayon en fonction du nbre de noeuds
             double radius = 80 + 18 * Math.sqrt(n);
             double angleStep = (2 * Math.PI) / n;
-            int i = 0;
-            for (String node : graph.nodes()) {
+            for (int i = 0; i < n; i++) {
                 double a = i * angleStep;
-                double x = Math.cos(a) * radius;
-                double y = Math.sin(a) * radius;
-                pos.put(node, new Point2D(x, y));
-                i++;
+                nx[i] = Math.cos(a) * radius;
+                ny[i] = Math.sin(a) * radius;
+            }
+        }
+
+        private void ensureLabelMetrics(FontMetrics fm) {
+            if (labelWidth != null && fm.getFont().equals(metricsFont)) return;
+            metricsFont = fm.getFont();
+            labelWidth = new int[labels.length];
+            maxLabelWidth = 0;
+            for (int i = 0; i < labels.length; i++) {
+                labelWidth[i] = fm.stringWidth(labels[i]);
+                maxLabelWidth = Math.max(maxLabelWidth, labelWidth[i]);
             }
         }
 
         @Override
         protected void paintComponent(Graphics g0) {
-            super.paintComponent(g0);
+            int w = getWidth(), h = getHeight();
+            g0.setColor(getBackground());
+            g0.fillRect(0, 0, w, h);
+            if (w <= 0 || h <= 0) return;
+
+            // vue courante, en coordonnées monde
+            double vx = -w / 2.0 / zoom - tx, vy = -h / 2.0 / zoom - ty;
+            double vw = w / zoom, vh = h / zoom;
+
+            boolean covers = layer != null
+                    && vx >= layerX && vy >= layerY
+                    && vx + vw <= layerX + layer.getWidth() / layerZoom
+                    && vy + vh <= layerY + layer.getHeight() / layerZoom;
+            if (layer == null || (layerZoom == zoom && !covers) || (layerZoom != zoom && !refine.isRunning())) {
+                renderLayer(vx, vy, vw, vh, w, h);
+            }
+
+            // recopie (étirée si le zoom a changé depuis le rendu)
+            double s = zoom / layerZoom;
+            double sx = (layerX - vx) * zoom, sy = (layerY - vy) * zoom;
             Graphics2D g = (Graphics2D) g0.create();
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (s == 1.0) {
+                g.drawImage(layer, (int) Math.round(sx), (int) Math.round(sy), null);
+            } else {
+                g.drawImage(layer, (int) Math.round(sx), (int) Math.round(sy),
+                        (int) Math.round(layer.getWidth() * s), (int) Math.round(layer.getHeight() * s), null);
+            }
+            g.dispose();
+        }
 
-            int w = getWidth(), h = getHeight();
-            // Transform (zoom + pan) centré
-            AffineTransform at = new AffineTransform();
-            at.translate(w / 2.0, h / 2.0);
-            at.scale(zoom, zoom);
-            at.translate(tx, ty);
-            g.transform(at);
+        private void renderLayer(double vx, double vy, double vw, double vh, int w, int h) {
+            int lw = (int) Math.ceil(w * (1 + 2 * MARGIN)), lh = (int) Math.ceil(h * (1 + 2 * MARGIN));
+            if (layer == null || layer.getWidth() != lw || layer.getHeight() != lh) {
+                layer = new java.awt.image.BufferedImage(lw, lh, java.awt.image.BufferedImage.TYPE_INT_RGB);
+            }
+            layerZoom = zoom;
+            layerX = vx - vw * MARGIN;
+            layerY = vy - vh * MARGIN;
+            double x1 = layerX + lw / zoom, y1 = layerY + lh / zoom;
+
+            Graphics2D g = layer.createGraphics();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, lw, lh);
+            g.setFont(getFont() != null ? getFont() : new Font(Font.DIALOG, Font.PLAIN, 12));
+            FontMetrics fm = g.getFontMetrics();
+            boolean detail = zoom >= LABEL_ZOOM;
 
             // Edges
-            g.setStroke(new BasicStroke(1f));
             g.setColor(new Color(0x888888));
-            for (Map.Entry<String, Set<String>> e : graph.edges().entrySet()) {
-                Point2D p1 = pos.get(e.getKey());
-                if (p1 == null) continue;
-                for (String to : e.getValue()) {
-                    Point2D p2 = pos.get(to);
-                    if (p2 == null) continue;
-                    g.draw(new Line2D.Double(p1.x, p1.y, p2.x, p2.y));
+            double cellPx = bundles != null ? bundles.cell * zoom : Double.MAX_VALUE;
+            if (cellPx < BUNDLE_CELL_PX) {
+                drawBundles(g, x1, y1);
+            } else {
+                // culling par codes de région (Cohen-Sutherland) : une arête dont les deux bouts sont
+                // du même côté de la zone est ignorée, le clip de Java2D s'occupe du reste
+                int m = edgeFrom.length;
+                boolean aa = m <= ANTIALIAS_MAX_EDGES;
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                        aa ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+                g.setStroke(new BasicStroke((float) Math.max(1.0, zoom)));
+                for (int e = 0; e < m; e++) {
+                    int a = edgeFrom[e], b = edgeTo[e];
+                    int ca = outcode(nx[a], ny[a], x1, y1), cb = outcode(nx[b], ny[b], x1, y1);
+                    if ((ca & cb) != 0) continue;
+                    g.drawLine(px(nx[a]), py(ny[a]), px(nx[b]), py(ny[b]));
                 }
             }
 
             // Nodes
-            FontMetrics fm = g.getFontMetrics();
-            for (String n : graph.nodes()) {
-                Point2D p = pos.get(n);
-                if (p == null) continue;
-                String label = n;
-                int pad = 6;
-                int tw = fm.stringWidth(label) + pad * 2;
-                int th = fm.getHeight() + pad * 2;
-                int x = (int) Math.round(p.x - tw / 2.0);
-                int y = (int) Math.round(p.y - th / 2.0);
-
-                // box
-                g.setColor(new Color(0xF2F6FF));
-                g.fillRoundRect(x, y, tw, th, 14, 14);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (detail) {
+                ensureLabelMetrics(fm);
+                double rx = maxLabelWidth / 2.0 + PAD, ry = fm.getHeight() / 2.0 + PAD;
+                Graphics2D gw = (Graphics2D) g.create();
+                gw.scale(zoom, zoom);
+                gw.translate(-layerX, -layerY);
+                Color fill = new Color(0xF2F6FF), border = new Color(0x2F5DA8);
+                int th = fm.getHeight() + PAD * 2;
+                // dans l'ordre des noeuds, comme avant : les boîtes se recouvrent toujours de la même façon
+                int[] visible = grid.collect(layerX - rx, layerY - ry, x1 + rx, y1 + ry);
+                Arrays.sort(visible);
+                for (int i : visible) {
+                    int tw = labelWidth[i] + PAD * 2;
+                    int x = (int) Math.round(nx[i] - tw / 2.0);
+                    int y = (int) Math.round(ny[i] - th / 2.0);
+
+                    // box
+                    gw.setColor(fill);
+                    gw.fillRoundRect(x, y, tw, th, 14, 14);
+                    gw.setColor(border);
+                    gw.drawRoundRect(x, y, tw, th, 14, 14);
+
+                    // text
+                    gw.setColor(Color.DARK_GRAY);
+                    gw.drawString(labels[i], x + PAD, y + PAD + fm.getAscent());
+                }
+                gw.dispose();
+            } else {
                 g.setColor(new Color(0x2F5DA8));
-                g.drawRoundRect(x, y, tw, th, 14, 14);
+                grid.query(layerX, layerY, x1, y1, i -> g.fillRect(px(nx[i]) - 1, py(ny[i]) - 1, 3, 3));
+            }
+            g.dispose();
+        }
 
-                // text
-                g.setColor(Color.DARK_GRAY);
-                g.drawString(label, x + pad, y + pad + fm.getAscent());
+        // faisceaux : une ligne par couple de cases, épaisseur selon le nombre d'arêtes regroupées
+        private void drawBundles(Graphics2D g, double x1, double y1) {
+            Bundles b = bundles;
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            // un passage par classe d'épaisseur : setStroke une fois par classe, pas par faisceau
+            for (int c = 0; c < Bundles.WIDTH_CLASSES; c++) {
+                g.setStroke(new BasicStroke(1f + c));
+                for (int k = 0; k < b.count.length; k++) {
+                    if (b.widthClass[k] != c) continue;
+                    double ax = b.cx(b.cellA[k]), ay = b.cy(b.cellA[k]);
+                    double bx = b.cx(b.cellB[k]), by = b.cy(b.cellB[k]);
+                    if ((outcode(ax, ay, x1, y1) & outcode(bx, by, x1, y1)) != 0) continue;
+                    g.drawLine(px(ax), py(ay), px(bx), py(by));
+                }
             }
+        }
 
-            g.dispose();
+        private int outcode(double x, double y, double x1, double y1) {
+            int c = 0;
+            if (x < layerX) c |= 1; else if (x > x1) c |= 2;
+            if (y < layerY) c |= 4; else if (y > y1) c |= 8;
+            return c;
+        }
+
+        private int px(double x) { return (int) Math.round((x - layerX) * layerZoom); }
+        private int py(double y) { return (int) Math.round((y - layerY) * layerZoom); }
+
+        /** Grille uniforme sur les noeuds (tri par comptage : start[c]..start[c+1] dans items). */
+        private static final class NodeGrid {
+            double x0, y0, cell;
+            int cols, rows;
+            int[] start, items;
+
+            static NodeGrid build(double[] xs, double[] ys) {
+                NodeGrid gr = new NodeGrid();
+                int n = xs.length;
+                double minX = 0, minY = 0, maxX = 0, maxY = 0;
+                for (int i = 0; i < n; i++) {
+                    if (i == 0 || xs[i] < minX) minX = xs[i];
+                    if (i == 0 || xs[i] > maxX) maxX = xs[i];
+                    if (i == 0 || ys[i] < minY) minY = ys[i];
+                    if (i == 0 || ys[i] > maxY) maxY = ys[i];
+                }
+                int side = Math.max(1, (int) Math.sqrt(n));
+                gr.x0 = minX; gr.y0 = minY;
+                gr.cell = Math.max(1e-9, Math.max(maxX - minX, maxY - minY) / side);
+                gr.cols = (int) ((maxX - minX) / gr.cell) + 1;
+                gr.rows = (int) ((maxY - minY) / gr.cell) + 1;
+                gr.start = new int[gr.cols * gr.rows + 1];
+                int[] cellOf = new int[n];
+                for (int i = 0; i < n; i++) {
+                    cellOf[i] = gr.cellIndex(xs[i], ys[i]);
+                    gr.start[cellOf[i] + 1]++;
+                }
+                for (int c = 0; c < gr.cols * gr.rows; c++) gr.start[c + 1] += gr.start[c];
+                gr.items = new int[n];
+                int[] fill = Arrays.copyOf(gr.start, gr.start.length - 1);
+                for (int i = 0; i < n; i++) gr.items[fill[cellOf[i]]++] = i;
+                return gr;
+            }
+
+            private int cellIndex(double x, double y) {
+                int cx = Math.min(cols - 1, (int) ((x - x0) / cell));
+                int cy = Math.min(rows - 1, (int) ((y - y0) / cell));
+                return cy * cols + cx;
+            }
+
+            /** Noeuds des cases qui touchent le rectangle (peut en donner un peu plus, jamais moins). */
+            void query(double qx0, double qy0, double qx1, double qy1, java.util.function.IntConsumer action) {
+                int c0 = Math.max(0, (int) Math.floor((qx0 - x0) / cell));
+                int c1 = Math.min(cols - 1, (int) Math.floor((qx1 - x0) / cell));
+                int r0 = Math.max(0, (int) Math.floor((qy0 - y0) / cell));
+                int r1 = Math.min(rows - 1, (int) Math.floor((qy1 - y0) / cell));
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        int cellId = r * cols + c;
+                        for (int k = start[cellId]; k < start[cellId + 1]; k++) action.accept(items[k]);
+                    }
+                }
+            }
+
+            int[] collect(double qx0, double qy0, double qx1, double qy1) {
+                int[] n = {0};
+                query(qx0, qy0, qx1, qy1, i -> n[0]++);
+                int[] out = new int[n[0]];
+                n[0] = 0;
+                query(qx0, qy0, qx1, qy1, i -> out[n[0]++] = i);
+                return out;
+            }
         }
 
-        // petit Point2D interne
-        private static class Point2D {
-            final double x, y; Point2D(double x, double y) { this.x = x; this.y = y; }
+        /** Arêtes regroupées par couple (non ordonné) de cases d'une grille BUNDLE_GRID x BUNDLE_GRID. */
+        private static final class Bundles {
+            static final int WIDTH_CLASSES = 4;
+            double x0, y0, cell;
+            int[] cellA, cellB, count;
+            byte[] widthClass; // log4(count), borné
+
+            static Bundles build(double[] xs, double[] ys, int[] from, int[] to) {
+                Bundles b = new Bundles();
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < xs.length; i++) {
+                    minX = Math.min(minX, xs[i]); maxX = Math.max(maxX, xs[i]);
+                    minY = Math.min(minY, ys[i]); maxY = Math.max(maxY, ys[i]);
+                }
+                b.x0 = minX; b.y0 = minY;
+                b.cell = Math.max(1e-9, Math.max(maxX - minX, maxY - minY) / BUNDLE_GRID);
+
+                long[] keys = new long[from.length];
+                int m = 0;
+                for (int e = 0; e < from.length; e++) {
+                    int ca = b.cellOf(xs[from[e]], ys[from[e]]), cb = b.cellOf(xs[to[e]], ys[to[e]]);
+                    if (ca == cb) continue; // arête interne à une case : invisible à cette échelle
+                    keys[m++] = ((long) Math.min(ca, cb) << 32) | Math.max(ca, cb);
+                }
+                Arrays.sort(keys, 0, m);
+                int groups = 0;
+                for (int k = 0; k < m; k++) if (k == 0 || keys[k] != keys[k - 1]) groups++;
+                b.cellA = new int[groups]; b.cellB = new int[groups]; b.count = new int[groups];
+                int gi = -1;
+                for (int k = 0; k < m; k++) {
+                    if (k == 0 || keys[k] != keys[k - 1]) {
+                        gi++;
+                        b.cellA[gi] = (int) (keys[k] >>> 32);
+                        b.cellB[gi] = (int) keys[k];
+                    }
+                    b.count[gi]++;
+                }
+                b.widthClass = new byte[groups];
+                for (int k = 0; k < groups; k++) {
+                    int log2 = 31 - Integer.numberOfLeadingZeros(b.count[k]);
+                    b.widthClass[k] = (byte) Math.min(WIDTH_CLASSES - 1, log2 / 2);
+                }
+                return b;
+            }
+
+            private int cellOf(double x, double y) {
+                int cx = Math.min(BUNDLE_GRID - 1, (int) ((x - x0) / cell));
+                int cy = Math.min(BUNDLE_GRID - 1, (int) ((y - y0) / cell));
+                return cy * BUNDLE_GRID + cx;
+            }
+
+            double cx(int c) { return x0 + (c % BUNDLE_GRID + 0.5) * cell; }
+            double cy(int c) { return y0 + (c / BUNDLE_GRID + 0.5) * cell; }
         }
     }
 }
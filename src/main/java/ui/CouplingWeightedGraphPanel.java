@@ -7,6 +7,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 
 public class CouplingWeightedGraphPanel extends JPanel {
     private WeightedGraph<String> graph;
@@ -23,6 +24,8 @@ public class CouplingWeightedGraphPanel extends JPanel {
     private final JCheckBox cbLabels = new JCheckBox("Labels", true);
     private final JCheckBox cbWeights = new JCheckBox("Poids", true); // <-- nouveau
     private final JSlider zoomSlider = new JSlider(25, 300, 100);
+    private final JLabel layoutStatus = new JLabel(" ");
+    private SwingWorker<Frame, Frame> layoutWorker;
 
     public CouplingWeightedGraphPanel() {
         setLayout(new BorderLayout());
@@ -36,12 +39,13 @@ public class CouplingWeightedGraphPanel extends JPanel {
         toolbar.add(cbWeights); // <-- ajouté
         toolbar.add(new JLabel("Zoom:"));
         toolbar.add(zoomSlider);
+        toolbar.add(layoutStatus);
         add(toolbar, BorderLayout.NORTH);
 
         minSpinner.addChangeListener(e -> { minWeight = ((Number)minSpinner.getValue()).doubleValue(); repaint(); });
         cbLabels.addActionListener(e -> { showLabels = cbLabels.isSelected(); repaint(); });
         cbWeights.addActionListener(e -> { showWeights = cbWeights.isSelected(); repaint(); }); // <-- nouveau
-        btnLayout.addActionListener(e -> { if (graph!=null){ initPositions(); runLayout(600); repaint(); } });
+        btnLayout.addActionListener(e -> relayout());
         zoomSlider.addChangeListener(e -> { zoom = zoomSlider.getValue()/100.0; repaint(); });
 
         MouseAdapter ma = new MouseAdapter() {
@@ -60,82 +64,89 @@ public class CouplingWeightedGraphPanel extends JPanel {
         addMouseMotionListener(ma);
     }
 
+    /** Affiche le graphe ; la disposition (600 itérations au plus) est calculée en tâche de fond. */
     public void setGraph(WeightedGraph<String> g) {
         this.graph = g;
-        initPositions();
-        runLayout(600);
-        repaint();
+        pos.clear();
+        relayout();
     }
 
-    private void initPositions() {
-        pos.clear();
-        if (graph == null) return;
-        int n = Math.max(1, graph.nodes().size());
-        double R = 220 + 10*Math.sqrt(n);
-        int i=0;
-        for (String v : graph.nodes()) {
-            double ang = 2*Math.PI * (i++)/n;
-            pos.put(v, new Point2D.Double(R*Math.cos(ang), R*Math.sin(ang)));
+    /** Image intermédiaire de la disposition, publiée vers l'EDT. */
+    private static final class Frame {
+        final String[] labels; final double[] x, y; final int iteration;
+        Frame(String[] labels, double[] x, double[] y, int iteration) {
+            this.labels = labels; this.x = x; this.y = y; this.iteration = iteration;
         }
     }
 
-    private void runLayout(int iterations) {
-        if (graph == null) return;
-        double area = 900*600;
-        int n = Math.max(1, graph.nodes().size());
-        double k = Math.sqrt(area / n);
-        Map<String, Point2D.Double> disp = new HashMap<>();
-
-        for (int it=0; it<iterations; it++) {
-            for (String v : graph.nodes()) disp.put(v, new Point2D.Double(0,0));
-
-            for (String v : graph.nodes()) {
-                Point2D.Double pv = pos.get(v);
-                for (String u : graph.nodes()) if (!u.equals(v)) {
-                    Point2D.Double pu = pos.get(u);
-                    double dx = pv.x - pu.x, dy = pv.y - pu.y;
-                    double dist = Math.hypot(dx, dy) + 0.01;
-                    double force = (k*k)/dist;
-                    disp.get(v).x += (dx/dist)*force;
-                    disp.get(v).y += (dy/dist)*force;
-                }
+    /**
+     * Relance la disposition hors EDT (annule la précédente). Les positions intermédiaires sont affichées
+     * au fil du calcul (au plus ~10 images/s), la dernière quand il se termine.
+     */
+    private void relayout() {
+        if (layoutWorker != null) layoutWorker.cancel(true);
+        if (graph == null) { repaint(); return; }
+        final WeightedGraph<String> g = graph;
+        final double minW = minWeight;
+        btnLayout.setEnabled(false);
+        layoutStatus.setText("Disposition en cours…");
+        layoutWorker = new SwingWorker<Frame, Frame>() {
+            private boolean finished; // lu et écrit sur l'EDT seulement
+            @Override protected Frame doInBackground() {
+                ForceLayout layout = ForceLayout.of(g, minW);
+                long[] lastFrame = {System.nanoTime()};
+                int it = layout.run(600, this::isCancelled, 1, (i, x, y) -> {
+                    long now = System.nanoTime();
+                    if (now - lastFrame[0] < 100_000_000L) return;
+                    lastFrame[0] = now;
+                    publish(new Frame(layout.labels, x.clone(), y.clone(), i));
+                });
+                return new Frame(layout.labels, layout.x, layout.y, it);
             }
-
-            for (var a : graph.edges().entrySet()) {
-                String v = a.getKey();
-                Point2D.Double pv = pos.get(v);
-                for (var b : a.getValue().entrySet()) {
-                    String u = b.getKey();
-                    if (v.compareTo(u) >= 0) continue;
-                    double w = b.getValue();
-                    if (w < minWeight) continue;
-                    Point2D.Double pu = pos.get(u);
-                    double dx = pv.x - pu.x, dy = pv.y - pu.y;
-                    double dist = Math.hypot(dx, dy) + 0.01;
-                    double force = (dist*dist)/k;
-                    double gain = 0.5 + Math.sqrt(Math.max(0,w));
-                    double fx = (dx/dist)*force*gain;
-                    double fy = (dy/dist)*force*gain;
-                    disp.get(v).x -= fx; disp.get(v).y -= fy;
-                    disp.get(u).x += fx; disp.get(u).y += fy;
-                }
+            @Override protected void process(java.util.List<Frame> frames) {
+                // une image en retard ne doit pas écraser la disposition finale
+                if (finished || isCancelled() || graph != g) return;
+                Frame f = frames.get(frames.size() - 1);
+                apply(f.labels, f.x, f.y);
+                layoutStatus.setText("Disposition en cours… (itération " + f.iteration + ")");
+                repaint();
             }
-
-            double t = (1.0 - (double)it/iterations) * 10.0;
-            for (String v : graph.nodes()) {
-                Point2D.Double p = pos.get(v), d = disp.get(v);
-                double len = Math.hypot(d.x, d.y);
-                if (len > 0) {
-                    p.x += (d.x/len) * Math.min(len, t);
-                    p.y += (d.y/len) * Math.min(len, t);
+            @Override protected void done() {
+                finished = true;
+                if (isCancelled() || graph != g) return;
+                try {
+                    Frame f = get();
+                    apply(f.labels, f.x, f.y);
+                    layoutStatus.setText(" ");
+                } catch (Exception ex) {
+                    layoutStatus.setText("Erreur de disposition : " + ex.getMessage());
                 }
+                btnLayout.setEnabled(true);
+                repaint();
             }
+        };
+        layoutWorker.execute();
+    }
+
+    private void apply(String[] labels, double[] x, double[] y) {
+        for (int i = 0; i < labels.length; i++) {
+            Point2D.Double p = pos.get(labels[i]);
+            if (p == null) pos.put(labels[i], new Point2D.Double(x[i], y[i]));
+            else p.setLocation(x[i], y[i]);
         }
     }
 
+    /** Disposition par forces, sans toucher au composant (appelable hors EDT) ; s'arrête si cancelled. */
+    static Map<String, Point2D.Double> computeLayout(WeightedGraph<String> graph, double minWeight,
+                                                     int iterations, BooleanSupplier cancelled) {
+        ForceLayout layout = ForceLayout.of(graph, minWeight);
+        layout.run(iterations, cancelled, 0, null);
+        return layout.positions();
+    }
+
     @Override protected void paintComponent(Graphics g0) {
         super.paintComponent(g0);
-        if (graph == null) return;
+        if (graph == null || pos.isEmpty()) return; // disposition pas encore prête
 
         Graphics2D g = (Graphics2D) g0.create();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
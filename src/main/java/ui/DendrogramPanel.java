@@ -4,106 +4,402 @@ import metrics.HierarchicalClustering.Node;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.*;
 import java.util.*;
 
+/**
+ * Dendrogramme (feuilles en bas, une ligne par niveau de fusion), dessiné en vue virtuelle :
+ *  - setRoot aplatit l'arbre une fois dans des tableaux primitifs (enfants, niveau, plage de feuilles, x) ;
+ *  - le rendu ne descend que dans les sous-arbres qui coupent la zone à repeindre ;
+ *  - un sous-arbre plus étroit que AUTO_COLLAPSE_PX à l'écran est dessiné comme un seul triangle ;
+ *  - clic sur un noeud : replier / déplier ; Ctrl+molette : zoom ; clic droit : coupe et pliage.
+ * La coupe à une hauteur h marque chaque arête qui la traverse (enfant <= h < parent) : les sous-arbres
+ * sous les marques sont les clusters de la coupe.
+ */
 public class DendrogramPanel extends JPanel {
     private Node root;
     private int leafGap = 120;   // espacement horizontal entre feuilles
     private int levelGap = 60;  // espacement vertical entre niveaux
     private boolean showHeights = true;
 
-    private final Map<Node, Integer> leafIndex = new HashMap<>();
-    private int leavesCount;
+    private static final int MARGIN_X = 100, MARGIN_Y = 40;
+    private static final int LABEL_SPAN = 200;     // débord horizontal admis pour un libellé centré
+    private static final int AUTO_COLLAPSE_PX = 12;
+    private static final Color LEAF_COLOR = new Color(0x4CA3FF);
+    private static final Color GLYPH_COLOR = new Color(0xD0D7E2);
+    private static final Color CUT_COLOR = new Color(0xD64545);
+
+    // arbre aplati : identifiants en pré-ordre (racine = 0)
+    private int count;
+    private Node[] nodes = new Node[0];
+    private int[] left = new int[0], right = new int[0], parent = new int[0];
+    private int[] level = new int[0];      // 0 pour une feuille, 1 + max des enfants sinon
+    private int[] leaves = new int[0];     // feuilles du sous-arbre
+    private int maxLevel;
+    private String[] heightLabel = new String[0]; // "h=…" formaté au premier affichage
+
+    // disposition courante (dépend des noeuds repliés)
+    private boolean[] collapsed = new boolean[0];
+    private int[] lo = new int[0], hi = new int[0]; // plage de positions (une par feuille ou noeud replié)
+    private int[] xs = new int[0];
+    private int slots;
+
+    private double zoom = 1.0;
+    private double cut = Double.NaN;
 
     private final Map<String, Color> colorByClass = new HashMap<>();
 
+    public DendrogramPanel() {
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+                int v = nodeAt(e.getPoint());
+                if (v >= 0 && left[v] >= 0) toggle(v);
+            }
+            @Override public void mousePressed(MouseEvent e) { if (e.isPopupTrigger()) showMenu(e); }
+            @Override public void mouseReleased(MouseEvent e) { if (e.isPopupTrigger()) showMenu(e); }
+        });
+        addMouseWheelListener(e -> {
+            if (!e.isControlDown()) {
+                // molette seule : défilement par le JScrollPane parent
+                Container p = getParent();
+                if (p != null) p.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, p));
+                return;
+            }
+            setZoom(zoom * (e.getWheelRotation() > 0 ? 0.8 : 1.25), e.getPoint());
+        });
+    }
+
     public void setRoot(Node root) {
         this.root = root;
-        reindexLeaves();
+        flatten();
+        layoutSlots();
         revalidate(); // <-- important pour JScrollPane
         repaint();
     }
 
-    private void reindexLeaves() {
-        leafIndex.clear();
-        leavesCount = 0;
-        if (root == null) return;
-        dfsIndex(root);
+    public void setLeafColors(Map<String, Color> colorByFqn) {
+        colorByClass.clear();
+        if (colorByFqn != null) colorByClass.putAll(colorByFqn);
+        repaint();
     }
 
-    private void dfsIndex(Node n) {
-        if (n.isLeaf()) {
-            leafIndex.put(n, leavesCount++);
-            return;
+    public double getZoom() { return zoom; }
+
+    public void setZoom(double z) { setZoom(z, null); }
+
+    /** Hauteur de coupe (NaN : aucune). */
+    public double getCut() { return cut; }
+
+    public void setCut(double h) {
+        cut = h;
+        repaint();
+    }
+
+    /** Nombre de clusters de la coupe courante (1 sans coupe). */
+    public int clustersAtCut() {
+        if (count == 0) return 0;
+        if (Double.isNaN(cut)) return 1;
+        int k = nodes[0].height <= cut ? 1 : 0;
+        for (int v = 0; v < count; v++) {
+            if (left[v] < 0 || nodes[v].height <= cut) continue;
+            if (nodes[left[v]].height <= cut) k++;
+            if (nodes[right[v]].height <= cut) k++;
         }
-        dfsIndex(n.left);
-        dfsIndex(n.right);
+        return k;
+    }
+
+    /** Replie les sous-arbres de la coupe (chacun devient un triangle). */
+    public void collapseAtCut() {
+        if (Double.isNaN(cut)) return;
+        for (int v = 0; v < count; v++) {
+            if (left[v] < 0) continue;
+            collapsed[v] = nodes[v].height <= cut && (v == 0 || nodes[parent[v]].height > cut);
+        }
+        relayout();
+    }
+
+    public void expandAll() {
+        Arrays.fill(collapsed, false);
+        relayout();
     }
 
     @Override
     public Dimension getPreferredSize() {
-        // largeur = nb de feuilles * leafGap + marges
-        int width = Math.max(800, leavesCount * leafGap + 200);
-        int height = Math.max(600, depth(root) * levelGap + 100);
-        return new Dimension(width, height);
+        // largeur = nb de positions * leafGap + marges
+        int width = Math.max(800, slots * leafGap + 2 * MARGIN_X);
+        int height = Math.max(600, leafY() + MARGIN_Y + 60);
+        return new Dimension((int) Math.min(Integer.MAX_VALUE, width * zoom),
+                (int) Math.min(Integer.MAX_VALUE, height * zoom));
+    }
+
+    // -------------------- aplatissement / disposition --------------------
+
+    private void flatten() {
+        count = 0;
+        if (root == null) { allocate(0); slots = 0; return; }
+        int total = 0;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            total++;
+            if (!n.isLeaf()) { stack.push(n.right); stack.push(n.left); }
+        }
+        allocate(total);
+
+        // pré-ordre (gauche d'abord) : ids croissants de la racine vers les feuilles
+        Node[] todo = new Node[total];
+        int[] todoParent = new int[total];
+        boolean[] todoLeft = new boolean[total];
+        int sp = 0;
+        todo[sp] = root; todoParent[sp] = -1; sp++;
+        while (sp > 0) {
+            sp--;
+            Node n = todo[sp];
+            int v = count++;
+            nodes[v] = n;
+            parent[v] = todoParent[sp];
+            if (todoParent[sp] >= 0) {
+                if (todoLeft[sp]) left[todoParent[sp]] = v; else right[todoParent[sp]] = v;
+            }
+            left[v] = right[v] = -1;
+            if (!n.isLeaf()) {
+                todo[sp] = n.right; todoParent[sp] = v; todoLeft[sp] = false; sp++;
+                todo[sp] = n.left; todoParent[sp] = v; todoLeft[sp] = true; sp++;
+            }
+        }
+        // niveaux et nombres de feuilles : enfants (ids plus grands) avant parents
+        for (int v = count - 1; v >= 0; v--) {
+            if (left[v] < 0) { level[v] = 0; leaves[v] = 1; continue; }
+            level[v] = 1 + Math.max(level[left[v]], level[right[v]]);
+            leaves[v] = leaves[left[v]] + leaves[right[v]];
+        }
+        maxLevel = level[0];
+    }
+
+    private void allocate(int n) {
+        nodes = new Node[n];
+        left = new int[n]; right = new int[n];
+        level = new int[n]; leaves = new int[n];
+        heightLabel = new String[n];
+        collapsed = new boolean[n];
+        lo = new int[n]; hi = new int[n]; xs = new int[n];
+        parent = new int[n];
+        maxLevel = 0;
+    }
+
+    /** Positions des feuilles et noeuds repliés (de gauche à droite), x des noeuds = milieu des enfants. */
+    private void layoutSlots() {
+        slots = 0;
+        if (count == 0) return;
+        int[] stack = new int[2 * count + 1];
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int v = stack[--sp];
+            if (v < 0) {                           // sortie : enfants placés
+                v = ~v;
+                lo[v] = lo[left[v]];
+                hi[v] = hi[right[v]];
+                xs[v] = (xs[left[v]] + xs[right[v]]) / 2;
+                continue;
+            }
+            if (left[v] < 0 || collapsed[v]) {
+                lo[v] = hi[v] = slots;
+                xs[v] = slots * leafGap;
+                slots++;
+                continue;
+            }
+            stack[sp++] = ~v;
+            stack[sp++] = right[v];
+            stack[sp++] = left[v];
+        }
+    }
+
+    private void relayout() {
+        layoutSlots();
+        revalidate();
+        repaint();
     }
 
+    private void toggle(int v) {
+        collapsed[v] = !collapsed[v];
+        relayout();
+    }
+
+    private int leafY() { return (maxLevel + 1) * levelGap; }
+
+    private int yOf(int v) { return leafY() - level[v] * levelGap; }
+
+    // -------------------- rendu --------------------
+
     @Override
     protected void paintComponent(Graphics g0) {
         super.paintComponent(g0);
-        if (root == null) return;
+        if (count == 0) return;
 
         Graphics2D g = (Graphics2D) g0.create();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(zoom, zoom);
+        g.translate(MARGIN_X, MARGIN_Y); // marge gauche et haut
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(-MARGIN_X, -MARGIN_Y, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        FontMetrics fm = g.getFontMetrics();
+        boolean text = zoom >= 0.35;           // en dessous, les libellés ne se lisent plus
+        int leafY = leafY();
 
-        g.translate(100, 40); // marge gauche et haut
-        drawNode(g, root);
-        g.dispose();
-    }
+        int[] stack = new int[count + 1];
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int v = stack[--sp];
+            // boîte du sous-arbre : de sa barre jusqu'aux libellés des feuilles
+            int x0 = lo[v] * leafGap - LABEL_SPAN, x1 = hi[v] * leafGap + LABEL_SPAN;
+            int y0 = yOf(v) - 20, y1 = leafY + 30;
+            if (x1 < clip.x || x0 > clip.x + clip.width || y1 < clip.y || y0 > clip.y + clip.height) continue;
 
-    private int depth(Node n) {
-        return n == null ? 0 : n.isLeaf() ? 1 : 1 + Math.max(depth(n.left), depth(n.right));
+            if (left[v] < 0) {
+                drawLeaf(g, fm, v, leafY, text);
+            } else if (collapsed[v] || (hi[v] - lo[v] + 1) * leafGap * zoom < AUTO_COLLAPSE_PX) {
+                drawGlyph(g, fm, v, leafY, text && collapsed[v]);
+            } else {
+                // le noeud lui-même (barre, verticales, libellé) peut être hors zone alors que ses descendants y sont
+                int l = left[v], r = right[v];
+                if (xs[r] + LABEL_SPAN >= clip.x && xs[l] - LABEL_SPAN <= clip.x + clip.width
+                        && Math.max(yOf(l), yOf(r)) >= clip.y && yOf(v) - 20 <= clip.y + clip.height) {
+                    drawInner(g, fm, v, text);
+                }
+                stack[sp++] = right[v];
+                stack[sp++] = left[v];
+            }
+        }
+        g.dispose();
     }
 
-    private Point drawNode(Graphics2D g, Node n) {
-        if (n.isLeaf()) {
-            int idx = leafIndex.get(n);
-            int x = idx * leafGap;
-            int y = depth(root) * levelGap;
-
-            String fqn = (n.label != null) ? n.label : "<unknown>";
-            Color c = colorByClass.getOrDefault(fqn, new Color(0x4CA3FF));
-            g.setColor(c);
-            g.fillOval(x - 6, y - 6, 12, 12);
-            g.setColor(c.darker());
-            g.drawOval(x - 6, y - 6, 12, 12);
+    private void drawLeaf(Graphics2D g, FontMetrics fm, int v, int y, boolean text) {
+        Node n = nodes[v];
+        int x = xs[v];
+        String fqn = (n.label != null) ? n.label : "<unknown>";
+        Color c = colorByClass.getOrDefault(fqn, LEAF_COLOR);
+        g.setColor(c);
+        g.fillOval(x - 6, y - 6, 12, 12);
+        g.setColor(c.darker());
+        g.drawOval(x - 6, y - 6, 12, 12);
 
+        if (text) {
             String label = n.label != null ? n.label : "leaf";
-            g.drawString(label, x - g.getFontMetrics().stringWidth(label) / 2, y + 18);
-            return new Point(x, y);
+            g.drawString(label, x - fm.stringWidth(label) / 2, y + 18);
+        }
+    }
+
+    /** Sous-arbre replié : triangle de sa barre jusqu'à la ligne des feuilles, avec son nombre de feuilles. */
+    private void drawGlyph(Graphics2D g, FontMetrics fm, int v, int leafY, boolean text) {
+        int x = xs[v], y = yOf(v);
+        int half = Math.max(leafGap / 4, (hi[v] - lo[v]) * leafGap / 2);
+        int[] px = {x, x - half, x + half}, py = {y, leafY, leafY};
+        g.setColor(GLYPH_COLOR);
+        g.fillPolygon(px, py, 3);
+        g.setColor(Color.DARK_GRAY);
+        g.drawPolygon(px, py, 3);
+        if (text) {
+            String s = "(" + leaves[v] + ")";
+            g.drawString(s, x - fm.stringWidth(s) / 2, leafY + 18);
         }
+    }
 
-        Point L = drawNode(g, n.left);
-        Point R = drawNode(g, n.right);
-        int y = Math.min(L.y, R.y) - levelGap;
-        int x = (L.x + R.x) / 2;
+    private void drawInner(Graphics2D g, FontMetrics fm, int v, boolean text) {
+        int l = left[v], r = right[v];
+        int y = yOf(v), yl = yOf(l), yr = yOf(r);
+        int x = xs[v];
 
         g.setColor(Color.DARK_GRAY);
-        g.drawLine(L.x, L.y, L.x, y);
-        g.drawLine(R.x, R.y, R.x, y);
-        g.drawLine(L.x, y, R.x, y);
+        g.drawLine(xs[l], yl, xs[l], y);
+        g.drawLine(xs[r], yr, xs[r], y);
+        g.drawLine(xs[l], y, xs[r], y);
         g.fillRect(x - 2, y - 2, 4, 4);
 
-        if (showHeights) {
-            String h = String.format("h=%.3f", n.height);
-            g.drawString(h, x - g.getFontMetrics().stringWidth(h) / 2, y - 4);
+        if (showHeights && text) {
+            String h = heightLabel[v];
+            if (h == null) h = heightLabel[v] = String.format("h=%.3f", nodes[v].height);
+            g.drawString(h, x - fm.stringWidth(h) / 2, y - 4);
+        }
+
+        if (!Double.isNaN(cut) && nodes[v].height > cut) {
+            g.setColor(CUT_COLOR);
+            cutMark(g, l, xs[l], yl, y);
+            cutMark(g, r, xs[r], yr, y);
         }
-        return new Point(x, y);
     }
 
-    public void setLeafColors(Map<String, Color> colorByFqn) {
-        colorByClass.clear();
-        if (colorByFqn != null) colorByClass.putAll(colorByFqn);
+    // trait rouge sur l'arête enfant -> parent si elle traverse la coupe, placé au prorata des hauteurs
+    private void cutMark(Graphics2D g, int child, int x, int yChild, int yParent) {
+        double hc = nodes[child].height, hp = nodes[parent[child]].height;
+        if (hc > cut) return;
+        double t = hp > hc ? (cut - hc) / (hp - hc) : 0.5;
+        int y = (int) Math.round(yChild + (yParent - yChild) * Math.max(0, Math.min(1, t)));
+        g.fillRect(x - 8, y - 1, 16, 3);
+    }
+
+    // -------------------- interaction --------------------
+
+    /** Noeud dont le repère est sous p (coordonnées écran), -1 sinon : descente par plages de positions. */
+    private int nodeAt(Point p) {
+        if (count == 0) return -1;
+        double x = p.x / zoom - MARGIN_X, y = p.y / zoom - MARGIN_Y;
+        int v = 0;
+        while (true) {
+            if (Math.abs(x - xs[v]) <= 8 && Math.abs(y - yOf(v)) <= 8) return v;
+            if (left[v] < 0 || collapsed[v]) return -1;
+            int split = hi[left[v]] * leafGap + leafGap / 2;
+            v = x < split ? left[v] : right[v];
+        }
+    }
+
+    private void showMenu(MouseEvent e) {
+        int v = nodeAt(e.getPoint());
+        JPopupMenu menu = new JPopupMenu();
+        if (v >= 0 && left[v] >= 0) {
+            double h = nodes[v].height;
+            JMenuItem cutHere = new JMenuItem(String.format("Couper à h=%.3f (ce noeud devient un cluster)", h));
+            cutHere.addActionListener(a -> setCut(h));
+            menu.add(cutHere);
+            JMenuItem toggle = new JMenuItem(collapsed[v] ? "Déplier" : "Replier");
+            toggle.addActionListener(a -> toggle(v));
+            menu.add(toggle);
+            menu.addSeparator();
+        }
+        if (!Double.isNaN(cut)) {
+            JMenuItem fold = new JMenuItem("Replier les " + clustersAtCut() + " clusters de la coupe");
+            fold.addActionListener(a -> collapseAtCut());
+            menu.add(fold);
+            JMenuItem clear = new JMenuItem("Retirer la coupe");
+            clear.addActionListener(a -> setCut(Double.NaN));
+            menu.add(clear);
+        }
+        JMenuItem expand = new JMenuItem("Tout déplier");
+        expand.addActionListener(a -> expandAll());
+        menu.add(expand);
+        menu.show(this, e.getX(), e.getY());
+    }
+
+    /** Zoom (borné) ; anchor (coordonnées écran, peut être null) reste sous le curseur. */
+    private void setZoom(double z, Point anchor) {
+        z = Math.max(0.005, Math.min(z, 4.0));
+        if (z == zoom) return;
+        double old = zoom;
+        zoom = z;
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        revalidate();
+        if (vp != null && anchor != null) {
+            Point view = vp.getViewPosition();
+            int ax = anchor.x - view.x, ay = anchor.y - view.y;
+            Point next = new Point((int) (anchor.x * z / old) - ax, (int) (anchor.y * z / old) - ay);
+            // appliquer après la nouvelle taille
+            SwingUtilities.invokeLater(() -> vp.setViewPosition(new Point(Math.max(0, next.x), Math.max(0, next.y))));
+        }
         repaint();
     }
 }
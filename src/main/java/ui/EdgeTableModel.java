@@ -0,0 +1,154 @@
+package ui;
+
+import metrics.CallGraphBuilder;
+import metrics.IntDiGraph;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Table des arêtes lue directement dans l'adjacence CSR d'un IntDiGraph figé : aucune ligne n'est recopiée,
+ * JTable ne demande que les cellules visibles.
+ * Tri et filtre produisent une vue (tableau de clés long) calculée hors EDT par computeView, puis
+ * installée sur l'EDT par setView ; sans vue, la ligne r est l'arête r dans l'ordre du graphe.
+ */
+final class EdgeTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int FROM = 0, TO = 1;
+    private static final String[] COLUMNS = {"From", "To"};
+
+    /** Ordre et filtre demandés ; column < 0 = ordre du graphe. */
+    static final class Query {
+        final int column;
+        final boolean descending;
+        final String filter;
+
+        Query(int column, boolean descending, String filter) {
+            this.column = column;
+            this.descending = descending;
+            this.filter = filter == null ? "" : filter.trim();
+        }
+
+        boolean isIdentity() { return column < 0 && filter.isEmpty(); }
+    }
+
+    /**
+     * Lignes retenues, dans l'ordre d'affichage : (rang du libellé trié, rang de l'autre extrémité) empaquetés,
+     * l'extrémité de tête étant la colonne de tri (From si pas de tri).
+     */
+    static final class View {
+        final Query query;
+        final long[] rows;
+        View(Query query, long[] rows) { this.query = query; this.rows = rows; }
+    }
+
+    private final IntDiGraph graph;
+    private View view; // null = toutes les arêtes, ordre du graphe
+
+    // index des libellés, construit à la première demande de tri ou de filtre (hors EDT)
+    private int[] rankOfNode, nodeOfRank;
+    private String[] lowerLabels;
+
+    EdgeTableModel(CallGraphBuilder.Graph<String> g) {
+        if (g instanceof IntDiGraph) {
+            this.graph = ((IntDiGraph) g).freeze();
+        } else if (g instanceof CallGraphBuilder.DiGraph) {
+            this.graph = IntDiGraph.fromDiGraph((CallGraphBuilder.DiGraph<String>) g);
+        } else {
+            this.graph = new IntDiGraph().freeze();
+        }
+    }
+
+    @Override public int getRowCount() { return view != null ? view.rows.length : graph.edgeCount(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int c) { return COLUMNS[c]; }
+    @Override public Class<?> getColumnClass(int c) { return String.class; }
+    @Override public boolean isCellEditable(int r, int c) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        View v = view;
+        int from, to;
+        if (v == null) {
+            from = graph.edgeSource(row);
+            to = graph.edgeTarget(row);
+        } else {
+            long k = v.rows[row];
+            int lead = nodeOfRank[(int) (k >>> 32)], other = nodeOfRank[(int) k];
+            boolean toFirst = v.query.column == TO;
+            from = toFirst ? other : lead;
+            to = toFirst ? lead : other;
+        }
+        return graph.label(col == FROM ? from : to);
+    }
+
+    /** Vue installée (null = ordre du graphe, sans filtre). */
+    Query query() { return view != null ? view.query : null; }
+
+    /** À appeler sur l'EDT avec le résultat de computeView. */
+    void setView(View v) {
+        this.view = (v == null || v.query.isIdentity()) ? null : v;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Calcule la vue (appelable hors EDT ; retourne null si cancelled).
+     * Le filtre (sous-chaîne, sans casse) est évalué une fois par noeud puis appliqué aux arêtes ;
+     * le tri porte sur des clés long (rangs des libellés), pas sur des chaînes.
+     */
+    View computeView(Query q, BooleanSupplier cancelled) {
+        if (q.isIdentity()) return new View(q, new long[0]);
+        ensureIndex();
+        int n = graph.nodeCount();
+
+        boolean[] match = null;
+        if (!q.filter.isEmpty()) {
+            String needle = q.filter.toLowerCase(Locale.ROOT);
+            match = new boolean[n];
+            for (int i = 0; i < n; i++) match[i] = lowerLabels[i].contains(needle);
+        }
+        if (cancelled.getAsBoolean()) return null;
+
+        boolean toFirst = q.column == TO;
+        long[] all = new long[graph.edgeCount()];
+        int[] count = {0};
+        boolean[] keep = match;
+        graph.forEachEdge((from, to) -> {
+            if (keep != null && !keep[from] && !keep[to]) return;
+            int lead = toFirst ? to : from, other = toFirst ? from : to;
+            all[count[0]++] = ((long) rankOfNode[lead] << 32) | rankOfNode[other];
+        });
+        long[] rows = Arrays.copyOf(all, count[0]);
+        if (cancelled.getAsBoolean()) return null;
+
+        // filtre seul : on garde l'ordre du graphe, celui du parcours
+        if (q.column >= 0) {
+            Arrays.sort(rows);
+            if (q.descending) {
+                for (int i = 0, j = rows.length - 1; i < j; i++, j--) { long t = rows[i]; rows[i] = rows[j]; rows[j] = t; }
+            }
+        }
+        return new View(q, rows);
+    }
+
+    // rangs des libellés dans l'ordre alphabétique + libellés en minuscules, une seule fois
+    private synchronized void ensureIndex() {
+        if (rankOfNode != null) return;
+        int n = graph.nodeCount();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(graph::label));
+        int[] rank = new int[n], node = new int[n];
+        for (int r = 0; r < n; r++) { node[r] = order[r]; rank[order[r]] = r; }
+        String[] lower = new String[n];
+        for (int i = 0; i < n; i++) lower[i] = graph.label(i).toLowerCase(Locale.ROOT);
+        lowerLabels = lower;
+        nodeOfRank = node;
+        rankOfNode = rank;
+    }
+}
@@ -0,0 +1,333 @@
+package ui;
+
+import metrics.CouplingGraphBuilder.WeightedGraph;
+import metrics.Instrumentation;
+
+import java.awt.geom.Point2D;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Disposition par forces (Fruchterman-Reingold) sur tableaux primitifs indexés par identifiant de noeud.
+ * La répulsion passe par un quadtree de Barnes-Hut (O(n log n) par itération au lieu de O(n²)) et,
+ * au-delà de PARALLEL_THRESHOLD noeuds, est répartie sur les coeurs (chaque noeud n'écrit que sa case).
+ * Le pas se réduit quand l'énergie remonte et le calcul s'arrête de lui-même quand les déplacements
+ * deviennent négligeables.
+ * Mêmes forces que l'ancienne boucle : répulsion k²/d, attraction d²/k * (0.5 + sqrt(poids)),
+ * température linéairement décroissante de 10 à 0.
+ */
+final class ForceLayout {
+
+    /** Reçoit l'état courant de la disposition ; x et y sont les tableaux de travail (à copier). */
+    interface FrameListener {
+        void frame(int iteration, double[] x, double[] y);
+    }
+
+    static final int PARALLEL_THRESHOLD = 1024;
+    private static final int MAX_DEPTH = 48;
+
+    final String[] labels;
+    final double[] x, y;
+    private final double[] dispX, dispY;
+    // arêtes retenues (a < b dans l'ordre des libellés, poids >= minWeight)
+    private final int[] edgeA, edgeB;
+    private final double[] edgeGain;
+    private final double k;
+
+    /** Critère d'approximation de Barnes-Hut (0 = calcul exact). */
+    double theta = 0.8;
+    /** Arrêt anticipé quand le déplacement moyen d'une itération passe sous ce seuil (en unités de k). */
+    double tolerance = 1e-3;
+
+    private QuadTree tree;
+    private double lastEnergy;
+
+    private ForceLayout(WeightedGraph<String> graph, double minWeight) {
+        int n = graph.nodes().size();
+        labels = graph.nodes().toArray(new String[0]);
+        Map<String, Integer> id = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) id.put(labels[i], i);
+
+        x = new double[n];
+        y = new double[n];
+        dispX = new double[n];
+        dispY = new double[n];
+        // même disposition initiale circulaire que l'ancienne version
+        int m = Math.max(1, n);
+        double R = 220 + 10 * Math.sqrt(m);
+        for (int i = 0; i < n; i++) {
+            double ang = 2 * Math.PI * i / m;
+            x[i] = R * Math.cos(ang);
+            y[i] = R * Math.sin(ang);
+        }
+        k = Math.sqrt(900.0 * 600.0 / m);
+
+        int count = 0;
+        int[] a = new int[16], b = new int[16];
+        double[] gain = new double[16];
+        for (var e : graph.edges().entrySet()) {
+            String v = e.getKey();
+            for (var f : e.getValue().entrySet()) {
+                String u = f.getKey();
+                if (v.compareTo(u) >= 0) continue;
+                double w = f.getValue();
+                if (w < minWeight) continue;
+                if (count == a.length) {
+                    a = Arrays.copyOf(a, count * 2);
+                    b = Arrays.copyOf(b, count * 2);
+                    gain = Arrays.copyOf(gain, count * 2);
+                }
+                a[count] = id.get(v);
+                b[count] = id.get(u);
+                gain[count] = 0.5 + Math.sqrt(Math.max(0, w));
+                count++;
+            }
+        }
+        edgeA = Arrays.copyOf(a, count);
+        edgeB = Arrays.copyOf(b, count);
+        edgeGain = Arrays.copyOf(gain, count);
+    }
+
+    static ForceLayout of(WeightedGraph<String> graph, double minWeight) {
+        return new ForceLayout(Objects.requireNonNull(graph, "graph"), minWeight);
+    }
+
+    int size() { return labels.length; }
+
+    /**
+     * Au plus iterations itérations ; s'arrête plus tôt si cancelled ou si la disposition est stable.
+     * Le pas est le plus petit de la température linéaire et d'un pas adaptatif (refroidissement de Hu) :
+     * réduit dès que l'énergie (somme des forces²) remonte, les noeuds qui oscillent se calment
+     * au lieu de sauter de t à chaque itération jusqu'à la fin du planning.
+     * listener (peut être null) est appelé toutes les frameEvery itérations et à la fin.
+     * Retourne le nombre d'itérations effectuées.
+     */
+    int run(int iterations, BooleanSupplier cancelled, int frameEvery, FrameListener listener) {
+        int n = labels.length;
+        if (n == 0) return 0;
+        try (Instrumentation.Phase p = Instrumentation.phase("layout")) {
+            int done = iterate(iterations, cancelled, frameEvery, listener);
+            p.count("nodes", n).count("edges", edgeA.length).count("iterations", done);
+            return done;
+        }
+    }
+
+    private int iterate(int iterations, BooleanSupplier cancelled, int frameEvery, FrameListener listener) {
+        int n = labels.length;
+        double adaptive = 10.0, energy = Double.POSITIVE_INFINITY;
+        int progress = 0, stable = 0;
+        int it = 0;
+        while (it < iterations) {
+            if (cancelled.getAsBoolean()) break;
+            double t = Math.min((1.0 - (double) it / iterations) * 10.0, adaptive);
+            double moved = step(t);
+            it++;
+            if (listener != null && frameEvery > 0 && it % frameEvery == 0) listener.frame(it, x, y);
+
+            if (lastEnergy < energy) {
+                if (++progress >= 5) { progress = 0; adaptive = Math.min(10.0, adaptive / 0.9); }
+            } else {
+                progress = 0;
+                adaptive *= 0.9;
+            }
+            energy = lastEnergy;
+            // quelques itérations calmes d'affilée : inutile d'aller au bout du planning
+            stable = (moved / n < tolerance * k) ? stable + 1 : 0;
+            if (stable >= 5) break;
+        }
+        if (listener != null) listener.frame(it, x, y);
+        return it;
+    }
+
+    /** Une itération au pas t ; retourne la somme des déplacements (l'énergie est notée dans lastEnergy). */
+    double step(double t) {
+        int n = labels.length;
+        repulsion();
+
+        for (int e = 0; e < edgeA.length; e++) {
+            int v = edgeA[e], u = edgeB[e];
+            double dx = x[v] - x[u], dy = y[v] - y[u];
+            double dist = Math.hypot(dx, dy) + 0.01;
+            double force = (dist * dist) / k * edgeGain[e];
+            double fx = (dx / dist) * force, fy = (dy / dist) * force;
+            dispX[v] -= fx; dispY[v] -= fy;
+            dispX[u] += fx; dispY[u] += fy;
+        }
+
+        double moved = 0, e2 = 0;
+        for (int i = 0; i < n; i++) {
+            double len = Math.hypot(dispX[i], dispY[i]);
+            e2 += len * len;
+            if (len > 0) {
+                double s = Math.min(len, t);
+                x[i] += (dispX[i] / len) * s;
+                y[i] += (dispY[i] / len) * s;
+                moved += s;
+            }
+        }
+        lastEnergy = e2;
+        return moved;
+    }
+
+    private void repulsion() {
+        int n = labels.length;
+        if (tree == null) tree = new QuadTree(n);
+        tree.build(x, y);
+        double kk = k * k;
+        if (n < PARALLEL_THRESHOLD) {
+            int[] stack = new int[4 * MAX_DEPTH + 4];
+            for (int i = 0; i < n; i++) repulse(i, kk, stack);
+        } else {
+            int chunk = 256;
+            IntStream.range(0, (n + chunk - 1) / chunk).parallel().forEach(c -> {
+                int[] stack = new int[4 * MAX_DEPTH + 4];
+                int end = Math.min(n, (c + 1) * chunk);
+                for (int i = c * chunk; i < end; i++) repulse(i, kk, stack);
+            });
+        }
+    }
+
+    // somme des forces de répulsion sur i, en parcourant l'arbre avec une pile explicite
+    private void repulse(int i, double kk, int[] stack) {
+        QuadTree q = tree;
+        double px = x[i], py = y[i];
+        double fx = 0, fy = 0;
+        double theta2 = theta * theta;
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int c = stack[--sp];
+            double mass = q.mass[c];
+            if (mass == 0) continue;
+            if (q.body[c] == i && mass == 1) continue; // la feuille ne contient que i
+            double dx = px - q.comX[c] / mass, dy = py - q.comY[c] / mass;
+            double d2 = dx * dx + dy * dy;
+            double size = 2 * q.half[c];
+            boolean leaf = q.body[c] >= 0;
+            if (leaf || size * size < theta2 * d2) {
+                // feuille ou cellule assez lointaine : tout son contenu agit depuis le centre de masse
+                double m = mass;
+                if (leaf && q.body[c] == i) m -= 1; // points confondus avec i
+                double dist = Math.sqrt(d2) + 0.01;
+                double force = m * kk / dist;
+                fx += (dx / dist) * force;
+                fy += (dy / dist) * force;
+            } else {
+                for (int j = 0; j < 4; j++) {
+                    int ch = q.child[4 * c + j];
+                    if (ch >= 0) stack[sp++] = ch;
+                }
+            }
+        }
+        dispX[i] = fx;
+        dispY[i] = fy;
+    }
+
+    /** Copie la disposition courante dans des points (ordre des noeuds du graphe). */
+    Map<String, Point2D.Double> positions() {
+        Map<String, Point2D.Double> out = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) out.put(labels[i], new Point2D.Double(x[i], y[i]));
+        return out;
+    }
+
+    /** Quadtree en tableaux plats, reconstruit à chaque itération sans réallocation. */
+    private static final class QuadTree {
+        double[] cx, cy, half, comX, comY, mass;
+        int[] child, body; // child[4*c+q] = -1 si absent ; body = point d'une feuille non vide, -1 sinon
+        int cells;
+
+        QuadTree(int n) { allocate(Math.max(16, 2 * n + 1)); }
+
+        private void allocate(int cap) {
+            cx = new double[cap]; cy = new double[cap]; half = new double[cap];
+            comX = new double[cap]; comY = new double[cap]; mass = new double[cap];
+            child = new int[4 * cap]; body = new int[cap];
+        }
+
+        private void grow() {
+            int cap = cx.length * 2;
+            cx = Arrays.copyOf(cx, cap); cy = Arrays.copyOf(cy, cap); half = Arrays.copyOf(half, cap);
+            comX = Arrays.copyOf(comX, cap); comY = Arrays.copyOf(comY, cap); mass = Arrays.copyOf(mass, cap);
+            child = Arrays.copyOf(child, 4 * cap); body = Arrays.copyOf(body, cap);
+        }
+
+        private int newCell(double x, double y, double h) {
+            if (cells == cx.length) grow();
+            int c = cells++;
+            cx[c] = x; cy[c] = y; half[c] = h;
+            comX[c] = 0; comY[c] = 0; mass[c] = 0;
+            body[c] = -1;
+            Arrays.fill(child, 4 * c, 4 * c + 4, -1);
+            return c;
+        }
+
+        void build(double[] xs, double[] ys) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < xs.length; i++) {
+                minX = Math.min(minX, xs[i]); maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]); maxY = Math.max(maxY, ys[i]);
+            }
+            double h = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+            cells = 0;
+            newCell((minX + maxX) / 2, (minY + maxY) / 2, h);
+            for (int i = 0; i < xs.length; i++) insert(i, xs, ys);
+        }
+
+        private void insert(int i, double[] xs, double[] ys) {
+            double px = xs[i], py = ys[i];
+            int c = 0;
+            for (int depth = 0; ; depth++) {
+                boolean leaf = child[4 * c] < 0 && child[4 * c + 1] < 0
+                        && child[4 * c + 2] < 0 && child[4 * c + 3] < 0;
+                if (leaf && mass[c] == 0) {
+                    body[c] = i;
+                    add(c, px, py, 1);
+                    return;
+                }
+                if (leaf && depth >= MAX_DEPTH) {
+                    // points (quasi) confondus : la feuille les agrège
+                    add(c, px, py, 1);
+                    return;
+                }
+                if (leaf) {
+                    // éclate la feuille : son point descend d'un niveau
+                    int old = body[c];
+                    body[c] = -1;
+                    double m = mass[c];
+                    int q = quadrant(c, xs[old], ys[old]);
+                    int ch = childCell(c, q);
+                    body[ch] = old;
+                    comX[ch] = comX[c]; comY[ch] = comY[c]; mass[ch] = m;
+                    // child[4*c+q] est maintenant >= 0 : c n'est plus une feuille
+                }
+                add(c, px, py, 1);
+                c = childCell(c, quadrant(c, px, py));
+                if (mass[c] == 0) {
+                    body[c] = i;
+                    add(c, px, py, 1);
+                    return;
+                }
+            }
+        }
+
+        private void add(int c, double px, double py, double m) {
+            comX[c] += px * m; comY[c] += py * m; mass[c] += m;
+        }
+
+        private int quadrant(int c, double px, double py) {
+            return (px >= cx[c] ? 1 : 0) | (py >= cy[c] ? 2 : 0);
+        }
+
+        private int childCell(int c, int q) {
+            int ch = child[4 * c + q];
+            if (ch < 0) {
+                double h = half[c] / 2;
+                ch = newCell(cx[c] + ((q & 1) != 0 ? h : -h), cy[c] + ((q & 2) != 0 ? h : -h), h);
+                child[4 * c + q] = ch; // newCell peut avoir réalloué child : affectation après coup
+            }
+            return ch;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ui;
 
-import metrics.CallGraphBuilder;
+import metrics.CouplingGraphBuilder;
+import metrics.CouplingMatrix;
 import metrics.HierarchicalClustering;
 import metrics.MetricsCalculator;
 import model.ClassInfo;
@@ -21,6 +22,14 @@ public class MetricsUI extends JFrame {
     private MetricsCalculator.Metrics result;
     private int thresholdX;
 
+    // Pipeline (graphe d'appel -> couplage -> clustering) partagé entre les onglets
+    private final AnalysisResults results;
+    private final JTabbedPane tabs = new JTabbedPane();
+    private final JProgressBar progress = new JProgressBar(0, 100);
+    private final JLabel stageLabel = new JLabel(" ");
+    private final JButton cancelBtn = new JButton("Annuler");
+    private SwingWorker<Void, ?> pipeline;
+
     // Onglet "Projet"
     private final JLabel m1 = new JLabel();  // #classes
     private final JLabel m2 = new JLabel();  // LOC app
@@ -59,57 +68,182 @@ public class MetricsUI extends JFrame {
         setPreferredSize(new Dimension(1200, 820));
         setLookAndFeelNimbus();
 
-        var tabs = new JTabbedPane();
-
-        CallGraphPanel callGraphPanel = new CallGraphPanel(classes);
-        tabs.addTab("Call Graph", callGraphPanel);
+        this.results = new AnalysisResults(classes);
 
-        CouplingPanel couplingPanel = new CouplingPanel(classes, (a, b) -> {
-            Optional<ClassInfo> A = classes.stream().filter(c -> c.className.equals(a)).findFirst();
-            Optional<ClassInfo> B = classes.stream().filter(c -> c.className.equals(b)).findFirst();
-            if (A.isPresent() && B.isPresent())
-                return MetricsCalculator.calculateCoupling(CallGraphBuilder.buildMethodGraph(classes, true), classes,A.get(), B.get());
-            return 0;
-        });
+        // La fenêtre s'ouvre tout de suite : chaque onglet se remplit quand son étape est prête
+        tabs.addTab("Call Graph", new CallGraphPanel(results));
+        tabs.addTab("Couplage", placeholder());
+        tabs.addTab("Graphe de couplage", placeholder());
+        tabs.addTab("Dendrogram", placeholder());
+        tabs.addTab("Modules", placeholder());
 
-        tabs.addTab("Couplage", couplingPanel);
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(tabs, BorderLayout.CENTER);
+        content.add(buildStatusBar(), BorderLayout.SOUTH);
+        setContentPane(content);
+       // fillProjectTab();
+       // fillClassesTab();
+       // fillMethodsTab();
+        pack();
+        setLocationRelativeTo(null);
 
-        CouplingWeightedGraphPanel couplingWeightedGraphPanel = new CouplingWeightedGraphPanel();
+        startPipeline();
+    }
 
-        CallGraphBuilder.DiGraph<String> gMethods =
-                CallGraphBuilder.buildMethodGraph(classes, /* includeExternal */ true);
+    // =============== Pipeline en tâche de fond ===============
 
-        metrics.CouplingGraphBuilder.WeightedGraph<String> gCoupling =
-                metrics.CouplingGraphBuilder.buildFromCalculator(gMethods, classes);
+    /** Étapes du pipeline, dans l'ordre ; tabIndex = onglet rempli à la fin de l'étape (-1 : aucun). */
+    private enum Stage {
+        METHOD_GRAPH("Graphe d'appel", -1),
+        COUPLING("Matrice de couplage", 1),
+        COUPLING_GRAPH("Graphe de couplage", 2),
+        DENDROGRAM("Clustering (SINGLE)", 3);
 
-        couplingWeightedGraphPanel.setGraph(gCoupling);
+        final String label;
+        final int tabIndex;
+        Stage(String label, int tabIndex) { this.label = label; this.tabIndex = tabIndex; }
+    }
 
-        tabs.addTab("Graphe de couplage", couplingWeightedGraphPanel);
+    /**
+     * Étape terminée + sa valeur, transmise telle quelle à l'EDT : process() n'a pas à redemander results,
+     * dont chaque lecture attend la tâche (FutureTask) de sa clé.
+     */
+    private static final class StageDone {
+        final Stage stage;
+        final Object value;
+        StageDone(Stage stage, Object value) { this.stage = stage; this.value = value; }
+    }
 
-        // Coupling provider via ta fonction existante
-        HierarchicalClustering.Coupling couplingFn = (A, B) ->
-                metrics.MetricsCalculator.calculateCoupling(gMethods, classes, A, B);
+    private JPanel buildStatusBar() {
+        JPanel bar = new JPanel(new BorderLayout(8, 0));
+        bar.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        progress.setStringPainted(true);
+        progress.setPreferredSize(new Dimension(260, 18));
+        bar.add(stageLabel, BorderLayout.CENTER);
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        right.add(progress);
+        right.add(cancelBtn);
+        bar.add(right, BorderLayout.EAST);
+        cancelBtn.addActionListener(e -> {
+            if (pipeline != null && !pipeline.isDone()) pipeline.cancel(true);
+            else startPipeline(); // "Relancer" : les étapes déjà calculées sont relues dans results
+        });
+        return bar;
+    }
 
-        metrics.HierarchicalClustering.Node root =
-                metrics.HierarchicalClustering.cluster(classes, couplingFn, HierarchicalClustering.Linkage.SINGLE);
+    /**
+     * Lance (ou relance) les étapes en tâche de fond. L'annulation prend effet entre deux étapes ;
+     * une étape commencée va à son terme et reste en cache dans results.
+     */
+    private void startPipeline() {
+        final Stage[] stages = Stage.values();
+        cancelBtn.setText("Annuler");
+        progress.setValue(0);
+        stageLabel.setText(stages[0].label + "…");
+        for (Stage st : stages) {
+            if (st.tabIndex >= 0 && tabs.getComponentAt(st.tabIndex) instanceof JLabel) {
+                tabs.setComponentAt(st.tabIndex, placeholder());
+            }
+        }
 
-        DendrogramPanel dendrogramPanel = new DendrogramPanel();
-        dendrogramPanel.setRoot(root);
+        pipeline = new SwingWorker<Void, StageDone>() {
+            @Override protected Void doInBackground() {
+                for (int i = 0; i < stages.length; i++) {
+                    if (isCancelled()) return null;
+                    Object value;
+                    switch (stages[i]) {
+                        case METHOD_GRAPH:   value = results.methodGraph(); break;
+                        case COUPLING:       value = results.couplingMatrix(); break;
+                        case COUPLING_GRAPH: value = results.couplingGraph(); break;
+                        default:             value = results.dendrogram(HierarchicalClustering.Linkage.SINGLE);
+                    }
+                    publish(new StageDone(stages[i], value));
+                    setProgress((i + 1) * 100 / stages.length);
+                }
+                return null;
+            }
 
-        JScrollPane scroll = new JScrollPane(dendrogramPanel);
-        scroll.getHorizontalScrollBar().setUnitIncrement(16);
-        scroll.getVerticalScrollBar().setUnitIncrement(16);
+            @Override protected void process(List<StageDone> chunks) {
+                for (StageDone d : chunks) {
+                    if (isCancelled()) return;
+                    onStageDone(d);
+                    int next = d.stage.ordinal() + 1;
+                    stageLabel.setText(next < stages.length ? stages[next].label + "…" : "Terminé");
+                }
+            }
 
-        tabs.addTab("Dendrogram", scroll);
+            @Override protected void done() {
+                if (isCancelled()) {
+                    stageLabel.setText("Annulé");
+                    for (Stage st : stages) {
+                        if (st.tabIndex >= 0 && tabs.getComponentAt(st.tabIndex) instanceof JLabel) {
+                            ((JLabel) tabs.getComponentAt(st.tabIndex)).setText("Calcul annulé");
+                        }
+                    }
+                    cancelBtn.setText("Relancer");
+                    return;
+                }
+                try {
+                    get();
+                    stageLabel.setText("Terminé");
+                    cancelBtn.setEnabled(false);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    stageLabel.setText("Erreur : " + cause.getMessage());
+                    cancelBtn.setText("Relancer");
+                }
+            }
+        };
+        pipeline.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) progress.setValue((Integer) evt.getNewValue());
+        });
+        pipeline.execute();
+    }
 
-        tabs.addTab("Modules", new ui.ModulesPanel(classes, couplingFn));
+    /** Sur l'EDT : installe l'onglet correspondant à l'étape terminée. */
+    private void onStageDone(StageDone d) {
+        // relance après annulation : les onglets déjà installés restent tels quels
+        if (d.stage.tabIndex >= 0 && !(tabs.getComponentAt(d.stage.tabIndex) instanceof JLabel)) return;
+        switch (d.stage) {
+            case COUPLING: {
+                CouplingMatrix matrix = (CouplingMatrix) d.value;
+                tabs.setComponentAt(d.stage.tabIndex, new CouplingPanel(classes, (a, b) -> {
+                    ClassInfo A = results.classBySimpleName(a), B = results.classBySimpleName(b);
+                    if (A != null && B != null) return matrix.weight(A, B);
+                    return 0;
+                }));
+                break;
+            }
+            case COUPLING_GRAPH: {
+                @SuppressWarnings("unchecked")
+                CouplingGraphBuilder.WeightedGraph<String> gCoupling = (CouplingGraphBuilder.WeightedGraph<String>) d.value;
+                CouplingWeightedGraphPanel couplingWeightedGraphPanel = new CouplingWeightedGraphPanel();
+                couplingWeightedGraphPanel.setGraph(gCoupling); // disposition calculée en tâche de fond
+                tabs.setComponentAt(d.stage.tabIndex, couplingWeightedGraphPanel);
+                break;
+            }
+            case DENDROGRAM: {
+                DendrogramPanel dendrogramPanel = new DendrogramPanel();
+                dendrogramPanel.setRoot((HierarchicalClustering.Node) d.value);
+
+                JScrollPane scroll = new JScrollPane(dendrogramPanel);
+                scroll.getHorizontalScrollBar().setUnitIncrement(16);
+                scroll.getVerticalScrollBar().setUnitIncrement(16);
+                tabs.setComponentAt(d.stage.tabIndex, scroll);
+
+                // Modules : réutilise le dendrogramme SINGLE déjà calculé
+                tabs.setComponentAt(4, new ModulesPanel(results));
+                break;
+            }
+            default:
+                break;
+        }
+    }
 
-        setContentPane(tabs);
-       // fillProjectTab();
-       // fillClassesTab();
-       // fillMethodsTab();
-        pack();
-        setLocationRelativeTo(null);
+    private static JLabel placeholder() {
+        JLabel l = new JLabel("Calcul en cours…", SwingConstants.CENTER);
+        l.setForeground(Color.GRAY);
+        return l;
     }
 
     // =============== Panels ===============
@@ -9,12 +9,19 @@ import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.util.List;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class ModulesPanel extends JPanel {
 
     private final List<ClassInfo> classes;
-    private final HierarchicalClustering.Coupling couplingFn;
+    /** Modules d'un dendrogramme (calculés ou relus en cache). */
+    private interface Identifier {
+        ModuleIdentifier.Result identify(HierarchicalClustering.Linkage linkage, HierarchicalClustering.Node root, double CP);
+    }
+
+    private final Identifier identifier;
+    private final Function<HierarchicalClustering.Linkage, HierarchicalClustering.Node> clusterer;
 
     // UI
     private final JComboBox<HierarchicalClustering.Linkage> cbLinkage =
@@ -30,15 +37,27 @@ public class ModulesPanel extends JPanel {
     // état courant
     private HierarchicalClustering.Node root;
     private ModuleIdentifier.Result result;
+    private SwingWorker<ModuleIdentifier.Result, Void> worker;
 
     public ModulesPanel(List<ClassInfo> classes,
                         HierarchicalClustering.Coupling couplingFn) {
         this.classes = Objects.requireNonNull(classes);
-        this.couplingFn = Objects.requireNonNull(couplingFn);
+        Objects.requireNonNull(couplingFn);
+        this.identifier = (linkage, root, CP) -> ModuleIdentifier.identify(root, couplingFn, CP);
+        this.clusterer = linkage -> HierarchicalClustering.cluster(classes, couplingFn, linkage);
         buildUI();
         runClustering(); // premier calcul
     }
 
+    /** Variante partagée : dendrogrammes et couplage lus dans results (calculés une seule fois pour tous les onglets). */
+    public ModulesPanel(AnalysisResults results) {
+        this.classes = results.classes();
+        this.identifier = (linkage, root, CP) -> results.modules(linkage, CP);
+        this.clusterer = results::dendrogram;
+        buildUI();
+        runClustering();
+    }
+
     private void buildUI() {
         setLayout(new BorderLayout(8, 8));
 
@@ -72,27 +91,49 @@ public class ModulesPanel extends JPanel {
         btnRun.addActionListener(e -> runClustering());
     }
 
+    /** Clustering + modules en tâche de fond ; le résultat est appliqué sur l'EDT. */
     private void runClustering() {
         double CP = ((Number) spCP.getValue()).doubleValue();
         HierarchicalClustering.Linkage linkage = (HierarchicalClustering.Linkage) cbLinkage.getSelectedItem();
 
-        // 1) dendrogramme
-        root = HierarchicalClustering.cluster(classes, couplingFn, linkage);
-        dendro.setRoot(root);
-
-        // 2) identification modules
-        result = ModuleIdentifier.identify(root, couplingFn, CP);
-
-        // 3) couleurs par module (feuilles)
-        Map<String, Color> colorByFqn = colorize(result.modules);
-        dendro.setLeafColors(colorByFqn);
-
-        // 4) table
-        tableModel.setData(result.modules, result.avgCouplings);
-
-        // 5) info
-        String feas = result.feasible ? "OK" : "infeasible (borne M/2 atteinte)";
-        lblInfo.setText("Modules: " + result.modules.size() + "  |  " + feas);
+        if (worker != null) worker.cancel(true);
+        btnRun.setEnabled(false);
+        lblInfo.setText("Calcul en cours…");
+        final HierarchicalClustering.Node[] computedRoot = new HierarchicalClustering.Node[1];
+        worker = new SwingWorker<ModuleIdentifier.Result, Void>() {
+            @Override protected ModuleIdentifier.Result doInBackground() {
+                // 1) dendrogramme
+                computedRoot[0] = clusterer.apply(linkage);
+                if (isCancelled() || computedRoot[0] == null) return null;
+                // 2) identification modules
+                return identifier.identify(linkage, computedRoot[0], CP);
+            }
+            @Override protected void done() {
+                if (isCancelled()) return;
+                btnRun.setEnabled(true);
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    lblInfo.setText("Erreur : " + ex.getMessage());
+                    return;
+                }
+                root = computedRoot[0];
+                dendro.setRoot(root);
+                if (result == null) { lblInfo.setText("—"); return; }
+
+                // 3) couleurs par module (feuilles)
+                Map<String, Color> colorByFqn = colorize(result.modules);
+                dendro.setLeafColors(colorByFqn);
+
+                // 4) table
+                tableModel.setData(result.modules, result.avgCouplings);
+
+                // 5) info
+                String feas = result.feasible ? "OK" : "infeasible (borne M/2 atteinte)";
+                lblInfo.setText("Modules: " + result.modules.size() + "  |  " + feas);
+            }
+        };
+        worker.execute();
     }
 
     private Map<String, Color> colorize(List<Set<ClassInfo>> modules) {
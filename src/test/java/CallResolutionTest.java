@@ -0,0 +1,59 @@
+import metrics.CallGraphBuilder;
+import metrics.CallGraphBuilder.Resolution;
+import model.ClassInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** CHA/RTA : les appels sans dispatch (super.m(), private, final) visent la seule déclaration. */
+class CallResolutionTest {
+
+    @TempDir Path src;
+
+    private List<ClassInfo> analyze() throws IOException {
+        write("A", "public class A { public void m() {} }");
+        write("B", "public class B extends A {\n"
+                + "  public void m() { super.m(); helper(); f(); }\n"
+                + "  private void helper() {}\n"
+                + "  public final void f() {}\n"
+                + "}");
+        write("C", "public class C extends B { public void m() {} }");
+        // A n'est jamais instancié : RTA ne doit pas pour autant perdre B.m -> A.m
+        write("Main", "public class Main { void run() { A a = new C(); a.m(); new B().m(); } }");
+        return SpoonAnalyzer.analyze(src.toString(), new String[0]);
+    }
+
+    private void write(String name, String body) throws IOException {
+        Files.writeString(src.resolve("p").resolve(name + ".java"), "package p;\n" + body + "\n");
+    }
+
+    private static Set<String> callees(List<ClassInfo> classes, Resolution resolution, String from) {
+        Set<String> out = CallGraphBuilder.buildMethodGraph(classes, false, resolution).edges().get(from);
+        return out == null ? Set.of() : new TreeSet<>(out);
+    }
+
+    @Test
+    void superAndPrivateCallsAreNotDispatched() throws IOException {
+        Files.createDirectories(src.resolve("p"));
+        List<ClassInfo> classes = analyze();
+        Set<String> expected = new TreeSet<>(List.of("p.A.m()", "p.B.helper()", "p.B.f()"));
+        for (Resolution r : List.of(Resolution.CHA, Resolution.RTA)) {
+            assertEquals(expected, callees(classes, r, "p.B.m()"), r.name());
+        }
+    }
+
+    @Test
+    void virtualCallsStillExpand() throws IOException {
+        Files.createDirectories(src.resolve("p"));
+        List<ClassInfo> classes = analyze();
+        Set<String> rta = callees(classes, Resolution.RTA, "p.Main.run()");
+        assertTrue(rta.containsAll(List.of("p.B.m()", "p.C.m()")), rta.toString());
+        assertFalse(rta.contains("p.A.m()"), rta.toString());
+    }
+}
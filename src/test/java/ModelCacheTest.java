@@ -0,0 +1,118 @@
+import metrics.Instrumentation;
+import model.ClassInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import processors.ModelCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Une analyse avec cache chaud, après modification d'un fichier, donne le même modèle qu'une analyse à froid. */
+class ModelCacheTest {
+
+    @TempDir Path tmp;
+
+    private Path src;
+    private ModelCache cache;
+
+    private void write(String pkg, String name, String body) throws IOException {
+        Path dir = Files.createDirectories(src.resolve(pkg));
+        Files.writeString(dir.resolve(name + ".java"), "package " + pkg + ";\n" + body + "\n");
+    }
+
+    private void write(String name, String body) throws IOException {
+        write("p", name, body);
+    }
+
+    private String analyze(Path cacheDir) throws IOException {
+        cache = new ModelCache(cacheDir, Long.MAX_VALUE, SpoonAnalyzer.COMPLIANCE_LEVEL);
+        return ModelDump.of(SpoonAnalyzer.analyze(src.toString(), new String[0], cache));
+    }
+
+    /** Analyse à froid ; doit aussi donner, au tri près, le modèle de l'analyse sans cache. */
+    private String cold() throws IOException {
+        String dump = analyze(Files.createTempDirectory(tmp, "cold"));
+        List<ClassInfo> plain = new ArrayList<>(SpoonAnalyzer.analyze(src.toString(), new String[0]));
+        List<ClassInfo> cached = new ArrayList<>(SpoonAnalyzer.analyze(src.toString(), new String[0], cache));
+        plain.sort(Comparator.comparing(ci -> ci.qualifiedName));
+        cached.sort(Comparator.comparing(ci -> ci.qualifiedName));
+        assertEquals(ModelDump.of(plain), ModelDump.of(cached));
+        return dump;
+    }
+
+    /** Nombre de types parsés par la dernière analyse (phase "parsing"). */
+    private static long parsedTypes() {
+        Matcher m = Pattern.compile("parsing .* types=(\\d+)").matcher(Instrumentation.summary());
+        return m.find() ? Long.parseLong(m.group(1)) : 0;
+    }
+
+    @Test
+    void warmRunMatchesColdRunAfterEdits() throws IOException {
+        src = Files.createDirectories(tmp.resolve("src"));
+        Path warm = tmp.resolve("warm");
+
+        write("I", "public interface I { void m(); }");
+        write("A", "public abstract class A implements I { public void m() {} public abstract void k(); }");
+        write("B", "public class B extends A {\n"
+                + "  public void m() { super.m(); helper(); f(); }\n"
+                + "  private void helper() {}\n"
+                + "  public final void f() {}\n"
+                + "  public void k() {}\n"
+                + "}");
+        write("X", "public class X { void run(B b) { b.m(); } }");
+        write("q", "Q1", "public class Q1 { void q() { new Q2().q(); } }");
+        write("q", "Q2", "public class Q2 { void q() {} }");
+        String initial = cold();
+        assertTrue(initial.contains("isAbstract: true"), initial);
+        assertTrue(initial.contains("nonVirtual: true"), initial);
+        assertTrue(initial.contains("- p.A"), initial);
+        assertEquals(initial, analyze(warm));
+
+        // X seul modifié : B, en cache, doit rester résolu (b.n() déclaré par A) ; q n'est pas reparsé
+        write("X", "public class X { void run(B b) { b.m(); b.n(); } }");
+        write("A", "public abstract class A implements I { public void m() {} public void n() {} public abstract void k(); }");
+        Instrumentation.reset();
+        String warmRun = analyze(warm);
+        assertTrue(parsedTypes() > 0 && parsedTypes() <= 4, Instrumentation.summary());
+        assertEquals(cold(), warmRun);
+
+        write("X", "public class X { void run(B b) { b.m(); b.n(); b.toString(); } }");
+        Instrumentation.reset();
+        warmRun = analyze(warm);
+        assertTrue(parsedTypes() <= 4, Instrumentation.summary());
+        assertEquals(cold(), warmRun);
+
+        // X inchangé, mais b.n() est désormais déclaré par B : l'entrée de X doit être invalidée
+        write("B", "public class B extends A {\n"
+                + "  public void m() { super.m(); helper(); f(); }\n"
+                + "  public void n() {}\n"
+                + "  private void helper() {}\n"
+                + "  public final void f() {}\n"
+                + "  public void k() {}\n"
+                + "}");
+        String expected = cold();
+        assertTrue(Pattern.compile("name: n\\s+declaringType: p\\.B").matcher(expected).find(), expected);
+        assertEquals(expected, analyze(warm));
+
+        // fichier ajouté : la résolution des autres peut changer
+        write("C", "public class C extends B {}");
+        assertEquals(cold(), analyze(warm));
+
+        // fichier ajouté sans rapport : seul lui manque
+        write("q", "Q3", "public class Q3 {}");
+        String unrelated = analyze(warm);
+        assertEquals(1, cache.misses(), cache.report());
+        assertEquals(cold(), unrelated);
+
+        // Q2 gagne une surcharge plus précise : Q1 doit être réextrait
+        write("q", "Q2", "public class Q2 { void q() {} void q(int i) {} }");
+        write("q", "Q1", "public class Q1 { void q() { new Q2().q(); new Q2().q(1); } }");
+        assertEquals(cold(), analyze(warm));
+    }
+}
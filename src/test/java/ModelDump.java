@@ -0,0 +1,42 @@
+import model.ClassInfo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/** Rendu de tous les champs publics du modèle (toString en omet plusieurs), pour comparer deux analyses. */
+final class ModelDump {
+
+    private ModelDump() {}
+
+    static String of(List<ClassInfo> classes) {
+        StringBuilder sb = new StringBuilder();
+        for (ClassInfo ci : classes) dump(ci, sb, "");
+        return sb.toString();
+    }
+
+    private static void dump(Object o, StringBuilder sb, String indent) {
+        if (o instanceof List) {
+            sb.append('\n');
+            for (Object e : (List<?>) o) {
+                sb.append(indent).append("- ");
+                dump(e, sb, indent + "  ");
+            }
+            return;
+        }
+        if (o == null || o instanceof String || o instanceof Number || o instanceof Boolean) {
+            sb.append(o).append('\n');
+            return;
+        }
+        sb.append(o.getClass().getSimpleName()).append('\n');
+        for (Field f : o.getClass().getFields()) {
+            if (Modifier.isStatic(f.getModifiers())) continue;
+            sb.append(indent).append("  ").append(f.getName()).append(": ");
+            try {
+                dump(f.get(o), sb, indent + "  ");
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
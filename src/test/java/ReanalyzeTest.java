@@ -0,0 +1,103 @@
+import metrics.CallGraphBuilder;
+import metrics.CouplingMatrix;
+import metrics.IncrementalGraphs;
+import model.ClassInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import processors.ModelRepo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** reanalyze + IncrementalGraphs.update donnent le même modèle et les mêmes graphes qu'une analyse à froid. */
+class ReanalyzeTest {
+
+    @TempDir Path src;
+
+    private ModelRepo repo;
+    private IncrementalGraphs graphs;
+
+    private File write(String pkg, String name, String body) throws IOException {
+        Path dir = Files.createDirectories(src.resolve(pkg));
+        return Files.writeString(dir.resolve(name + ".java"), "package " + pkg + ";\n" + body + "\n").toFile();
+    }
+
+    private void reanalyze(Set<File> added, Set<File> modified, Set<File> deleted) {
+        ModelRepo.Delta delta = SpoonAnalyzer.reanalyze(repo, new String[0], added, modified, deleted);
+        graphs.update(delta.removedFqns, delta.upserted);
+    }
+
+    private static List<ClassInfo> sorted(Collection<ClassInfo> classes) {
+        List<ClassInfo> out = new ArrayList<>(classes);
+        out.sort(Comparator.comparing(ci -> ci.qualifiedName));
+        return out;
+    }
+
+    private static Map<String, Set<String>> edges(CallGraphBuilder.Graph<String> g) {
+        Map<String, Set<String>> out = new TreeMap<>();
+        for (Map.Entry<String, Set<String>> e : g.edges().entrySet()) out.put(e.getKey(), new TreeSet<>(e.getValue()));
+        return out;
+    }
+
+    private static Map<String, Float> weights(CouplingMatrix m) {
+        Map<String, Float> out = new TreeMap<>();
+        m.forEachNonZero((a, b, w) -> out.put(m.fqnOf(a) + " " + m.fqnOf(b), w));
+        return out;
+    }
+
+    /** Compare à une analyse à froid ; renvoie son rendu. */
+    private String assertMatchesCold() {
+        List<ClassInfo> cold = SpoonAnalyzer.analyze(src.toString(), new String[0]);
+        String expected = ModelDump.of(sorted(cold));
+        assertEquals(expected, ModelDump.of(sorted(repo.classesByFqn.values())));
+        assertEquals(expected, ModelDump.of(sorted(graphs.classes())));
+        assertEquals(edges(CallGraphBuilder.buildMethodGraph(cold, false)), edges(graphs.methodGraph()));
+        assertEquals(edges(CallGraphBuilder.buildClassGraph(cold, false)), edges(graphs.classGraph()));
+        assertEquals(weights(CouplingMatrix.build(CallGraphBuilder.buildMethodGraph(cold, false), cold)),
+                weights(graphs.coupling()));
+        return expected;
+    }
+
+    @Test
+    void incrementalUpdatesMatchColdAnalysis() throws IOException {
+        File a = write("a", "A", "import b.B;\n"
+                + "public class A { void run(B b) { b.foo(1); b.bar(\"s\"); b.inherited(); } }");
+        File x = write("a", "X", "public class X { void run(b.B b) { b.m(); } }");
+        File b = write("b", "B", "public class B extends Base { public void foo(long x) {} public void bar(Object o) {} }");
+        write("b", "Base", "public class Base { public void inherited() {} public void m() {} }");
+
+        repo = SpoonAnalyzer.analyzeRepo(src.toString(), new String[0]);
+        graphs = new IncrementalGraphs(repo.asList(), false);
+        String initial = assertMatchesCold();
+        assertTrue(initial.contains("qualifiedSignature: foo(long)"), initial);
+
+        // commentaire seul : A doit rester résolu contre b.B et b.Base
+        Files.writeString(a.toPath(), Files.readString(a.toPath()) + "// edit\n");
+        reanalyze(Set.of(), Set.of(a), Set.of());
+        assertMatchesCold();
+
+        // X inchangé, mais b.m() vise désormais la redéfinition de B
+        Files.writeString(b.toPath(), "package b;\npublic class B extends Base { public void foo(long x) {} "
+                + "public void bar(Object o) {} public void m() {} }\n");
+        reanalyze(Set.of(), Set.of(b), Set.of());
+        String afterOverride = assertMatchesCold();
+        assertTrue(Pattern.compile("name: m\\s+declaringType: b\\.B").matcher(afterOverride).find(), afterOverride);
+
+        // fichier ajouté, utilisé par un fichier modifié
+        File c = write("c", "C", "public class C extends b.B { public void own() {} }");
+        Files.writeString(x.toPath(), "package a;\npublic class X { void run(c.C c) { c.m(); c.own(); c.inherited(); } }\n");
+        reanalyze(Set.of(c), Set.of(x), Set.of());
+        assertMatchesCold();
+
+        // fichier supprimé : ce qui l'appelait ne le résout plus
+        Files.delete(c.toPath());
+        reanalyze(Set.of(), Set.of(), Set.of(c));
+        assertMatchesCold();
+    }
+}
@@ -0,0 +1,46 @@
+import model.ClassInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import processors.StringPool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** L'analyse par fragments donne le même modèle que le Launcher unique, appels entre paquetages compris. */
+class ShardedAnalysisTest {
+
+    @TempDir Path src;
+
+    private void write(String pkg, String name, String body) throws IOException {
+        Path dir = Files.createDirectories(src.resolve(pkg));
+        Files.writeString(dir.resolve(name + ".java"), "package " + pkg + ";\n" + body + "\n");
+    }
+
+    private String analyze(int parallelism, SpoonAnalyzer.Extraction extraction) {
+        List<ClassInfo> classes = SpoonAnalyzer.analyze(src.toString(), new String[0], parallelism,
+                new StringPool(), extraction);
+        return ModelDump.of(classes);
+    }
+
+    @Test
+    void crossPackageCallsResolveAsWithOneLauncher() throws IOException {
+        write("a", "A", "import b.B;\nimport c.*;\n"
+                + "public class A { void run(B b, C c, Helper h) { b.foo(1); b.bar(\"s\"); b.inherited(); c.x(); h.z(); } }");
+        write("a", "Same", "public class Same {}\nclass Helper { void z() {} }");
+        write("b", "B", "public class B extends Base { public void foo(long x) {} public void bar(Object o) {} }");
+        write("b", "Base", "public class Base { public void inherited() {} }");
+        write("c", "C", "public class C { public void x() {} }");
+
+        for (SpoonAnalyzer.Extraction extraction : SpoonAnalyzer.Extraction.values()) {
+            String expected = analyze(1, extraction);
+            assertTrue(expected.contains("qualifiedSignature: foo(long)"), expected);
+            assertTrue(expected.contains("qualifiedSignature: bar(java.lang.Object)"), expected);
+            assertTrue(expected.contains("declaringType: b.Base"), expected);
+            assertEquals(expected, analyze(4, extraction), extraction.name());
+        }
+    }
+}